@@ -0,0 +1,90 @@
+package com.mazaiting.zxing.benchmark;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+import com.mazaiting.zxing.util.ReusableHybridBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * HybridBinarizer against GlobalHistogramBinarizer on the framing rect crop: the whole matrix,
+ * as the 2D readers ask for it, and the rows a 1D reader samples without TRY_HARDER. The reusable
+ * binarizer should show next to no allocation under {@code -prof gc}.
+ * 二值化基准测试
+ */
+@State(Scope.Thread)
+public class BinarizerBenchmark {
+
+  /** OneDReader scans about this many rows around the middle of the image. */
+  private static final int SAMPLED_ROWS = 15;
+
+  @Param({"640x480", "1280x720", "1920x1080"})
+  public String previewSize;
+
+  private LuminanceSource source;
+  private BitArray row;
+  private ReusableHybridBinarizer.Buffers buffers;
+
+  @Setup
+  public void setUp() {
+    int width = PreviewFrames.width(previewSize);
+    int height = PreviewFrames.height(previewSize);
+    byte[] data = PreviewFrames.nv21(width, height);
+    int size = PreviewFrames.framingSize(height);
+    source = new RotatedPlanarYUVLuminanceSource(data, width, height,
+        (height - size) / 2, (width - size) / 2, size, size, 90, false);
+    row = new BitArray(size);
+    buffers = new ReusableHybridBinarizer.Buffers();
+  }
+
+  @Benchmark
+  public BitMatrix hybridBlackMatrix() throws NotFoundException {
+    return new HybridBinarizer(source).getBlackMatrix();
+  }
+
+  @Benchmark
+  public BitMatrix reusableBlackMatrix() throws NotFoundException {
+    return new ReusableHybridBinarizer(source, buffers).getBlackMatrix();
+  }
+
+  @Benchmark
+  public BitMatrix globalHistogramBlackMatrix() throws NotFoundException {
+    return new GlobalHistogramBinarizer(source).getBlackMatrix();
+  }
+
+  @Benchmark
+  public void hybridBlackRows(Blackhole blackhole) throws NotFoundException {
+    sampleRows(new HybridBinarizer(source), blackhole);
+  }
+
+  @Benchmark
+  public void globalHistogramBlackRows(Blackhole blackhole) throws NotFoundException {
+    sampleRows(new GlobalHistogramBinarizer(source), blackhole);
+  }
+
+  @Benchmark
+  public void reusableBlackRows(Blackhole blackhole) throws NotFoundException {
+    sampleRows(new ReusableHybridBinarizer(source, buffers), blackhole);
+  }
+
+  private void sampleRows(Binarizer binarizer, Blackhole blackhole)
+      throws NotFoundException {
+    int height = source.getHeight();
+    int step = Math.max(1, height / (SAMPLED_ROWS + 1));
+    for (int i = 1; i <= SAMPLED_ROWS; i++) {
+      blackhole.consume(binarizer.getBlackRow(Math.min(height - 1, i * step), row));
+    }
+  }
+
+}
@@ -0,0 +1,30 @@
+package com.mazaiting.zxing.benchmark;
+
+import com.google.zxing.WriterException;
+import com.mazaiting.zxing.util.EncodeFormatManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encoding a QR code into the pixels of EncodeFormatManager.encodeQrCode, short of creating the
+ * Bitmap, at the sizes the sample app asks for.
+ * 编码基准测试
+ */
+@State(Scope.Thread)
+public class EncodeBenchmark {
+
+  @Param({"256", "512", "1024"})
+  public int width;
+
+  @Param({"12345678", "https://github.com/mazaiting/zxing_android?utm_source=benchmark&id=0042"})
+  public String content;
+
+  @Benchmark
+  public int[] encodeQrCode() throws WriterException {
+    return EncodeFormatManager.encodeQrCodePixels(content, width);
+  }
+
+}
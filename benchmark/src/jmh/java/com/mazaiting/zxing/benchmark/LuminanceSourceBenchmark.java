@@ -0,0 +1,81 @@
+package com.mazaiting.zxing.benchmark;
+
+import com.mazaiting.zxing.camera.PlanarYUVLuminanceSource;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading the framing rect out of a preview frame: the upright crop of PlanarYUVLuminanceSource
+ * against the rotated view the decoder uses, row by row, as a matrix, and as greyscale pixels for
+ * the result bitmap.
+ * 亮度资源基准测试
+ */
+@State(Scope.Thread)
+public class LuminanceSourceBenchmark {
+
+  @Param({"640x480", "1280x720", "1920x1080"})
+  public String previewSize;
+
+  private PlanarYUVLuminanceSource planar;
+  private RotatedPlanarYUVLuminanceSource rotated;
+  private byte[] row;
+
+  @Setup
+  public void setUp() {
+    int width = PreviewFrames.width(previewSize);
+    int height = PreviewFrames.height(previewSize);
+    byte[] data = PreviewFrames.nv21(width, height);
+    int size = PreviewFrames.framingSize(height);
+    planar = new PlanarYUVLuminanceSource(data, width, height,
+        (width - size) / 2, (height - size) / 2, size, size);
+    rotated = new RotatedPlanarYUVLuminanceSource(data, width, height,
+        (height - size) / 2, (width - size) / 2, size, size, 90, false);
+    row = new byte[size];
+  }
+
+  @Benchmark
+  public void planarGetRow(Blackhole blackhole) {
+    for (int y = 0; y < planar.getHeight(); y++) {
+      blackhole.consume(planar.getRow(y, row));
+    }
+  }
+
+  @Benchmark
+  public byte[] planarGetMatrix() {
+    return planar.getMatrix();
+  }
+
+  @Benchmark
+  public int[] planarRenderCroppedGreyscale() {
+    return planar.renderCroppedGreyscalePixels();
+  }
+
+  @Benchmark
+  public void rotatedGetRow(Blackhole blackhole) {
+    for (int y = 0; y < rotated.getHeight(); y++) {
+      blackhole.consume(rotated.getRow(y, row));
+    }
+  }
+
+  @Benchmark
+  public byte[] rotatedGetMatrix() {
+    return rotated.getMatrix();
+  }
+
+  @Benchmark
+  public int[] rotatedRenderCroppedGreyscale() {
+    return rotated.renderCroppedGreyscalePixels();
+  }
+
+  @Benchmark
+  public byte[] subsampled2xGetMatrix() {
+    return rotated.subsample(2).getMatrix();
+  }
+
+}
@@ -0,0 +1,68 @@
+package com.mazaiting.zxing.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import java.util.Random;
+
+/**
+ * Synthetic NV21 preview frames for the benchmarks: a noisy, unevenly lit background with a QR
+ * code in the middle of the framing rect, as the camera delivers it in landscape.
+ * 基准测试用预览帧
+ */
+final class PreviewFrames {
+
+  private PreviewFrames() {
+  }
+
+  static int width(String size) {
+    return Integer.parseInt(size.substring(0, size.indexOf('x')));
+  }
+
+  static int height(String size) {
+    return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+  }
+
+  /**
+   * The side of the framing rect in preview pixels: CameraManager caps it at 500 screen pixels,
+   * scaled from a 1080 pixel wide portrait screen to the rotated preview.
+   */
+  static int framingSize(int previewHeight) {
+    return 500 * previewHeight / 1080;
+  }
+
+  static byte[] nv21(int width, int height) {
+    byte[] data = new byte[width * height * 3 / 2];
+    Random random = new Random(42L);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int light = 90 + 100 * x / width + random.nextInt(24);
+        data[y * width + x] = (byte) light;
+      }
+    }
+    for (int i = width * height; i < data.length; i++) {
+      data[i] = (byte) 128;
+    }
+    int size = framingSize(height) * 3 / 4;
+    BitMatrix code;
+    try {
+      code = new QRCodeWriter().encode("https://github.com/mazaiting/zxing_android",
+          BarcodeFormat.QR_CODE, size, size);
+    } catch (WriterException e) {
+      throw new IllegalStateException(e);
+    }
+    int left = (width - code.getWidth()) / 2;
+    int top = (height - code.getHeight()) / 2;
+    for (int y = 0; y < code.getHeight(); y++) {
+      for (int x = 0; x < code.getWidth(); x++) {
+        if (code.get(x, y)) {
+          data[(top + y) * width + left + x] = (byte) (20 + random.nextInt(24));
+        }
+      }
+    }
+    return data;
+  }
+
+}
@@ -0,0 +1,57 @@
+package com.mazaiting.zxing.benchmark;
+
+import com.mazaiting.zxing.camera.PlanarYUVLuminanceSource;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Getting the portrait framing rect out of a landscape frame: the loop DecodeHandler used to run,
+ * which rotates the whole frame into a new array before cropping, against reading the crop
+ * through the rotated view.
+ * 旋转基准测试
+ */
+@State(Scope.Thread)
+public class RotateBenchmark {
+
+  @Param({"640x480", "1280x720", "1920x1080"})
+  public String previewSize;
+
+  private byte[] data;
+  private int width;
+  private int height;
+  private int size;
+
+  @Setup
+  public void setUp() {
+    width = PreviewFrames.width(previewSize);
+    height = PreviewFrames.height(previewSize);
+    data = PreviewFrames.nv21(width, height);
+    size = PreviewFrames.framingSize(height);
+  }
+
+  @Benchmark
+  public byte[] copyRotateThenCrop() {
+    byte[] rotatedData = new byte[data.length];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        rotatedData[x * height + height - y - 1] = data[x + y * width];
+      }
+    }
+    PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(rotatedData, height, width,
+        (height - size) / 2, (width - size) / 2, size, size);
+    return source.getMatrix();
+  }
+
+  @Benchmark
+  public byte[] rotatedView() {
+    RotatedPlanarYUVLuminanceSource source = new RotatedPlanarYUVLuminanceSource(data, width,
+        height, (height - size) / 2, (width - size) / 2, size, size, 90, false);
+    return source.getMatrix();
+  }
+
+}
@@ -0,0 +1,137 @@
+package com.mazaiting.zxing.benchmark;
+
+import com.mazaiting.zxing.camera.PlanarYUVRotator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Making a real rotated copy of the Y plane: the loop DecodeHandler used to rotate whole frames
+ * with, a pixel by pixel copy of the framing rect, and the tiled copy of PlanarYUVRotator, of the
+ * framing rect and of the whole frame, in every orientation. All of them write into a buffer kept
+ * across invocations, so only the memory access patterns are compared.
+ * 分块旋转基准测试
+ */
+@State(Scope.Thread)
+public class TransposeBenchmark {
+
+  @Param({"1280x720", "1920x1080"})
+  public String previewSize;
+
+  @Param({"0", "90", "180", "270"})
+  public int rotation;
+
+  @Param({"false", "true"})
+  public boolean mirror;
+
+  private byte[] data;
+  private int width;
+  private int height;
+  private int size;
+  private byte[] output;
+
+  @Setup
+  public void setUp() {
+    width = PreviewFrames.width(previewSize);
+    height = PreviewFrames.height(previewSize);
+    data = PreviewFrames.nv21(width, height);
+    size = PreviewFrames.framingSize(height);
+    output = new byte[width * height];
+  }
+
+  /**
+   * The clockwise quarter turn of the whole frame DecodeHandler used to make, whatever the
+   * orientation asked for.
+   */
+  @Benchmark
+  public byte[] legacyWholeFrame() {
+    byte[] rotatedData = output;
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        rotatedData[x * height + height - y - 1] = data[x + y * width];
+      }
+    }
+    return rotatedData;
+  }
+
+  @Benchmark
+  public byte[] tiledWholeFrame() {
+    boolean swap = rotation == 90 || rotation == 270;
+    return PlanarYUVRotator.rotate(data, width, height, 0, 0,
+        swap ? height : width, swap ? width : height, rotation, mirror, output);
+  }
+
+  /**
+   * The framing rect, one output row at a time, each read with the step of the orientation.
+   */
+  @Benchmark
+  public byte[] stridedCrop() {
+    boolean swap = rotation == 90 || rotation == 270;
+    int rotatedWidth = swap ? height : width;
+    int rotatedHeight = swap ? width : height;
+    int left = (rotatedWidth - size) / 2;
+    int top = (rotatedHeight - size) / 2;
+    int xStep;
+    int yStep;
+    int origin;
+    switch (rotation) {
+      case 90:
+        xStep = -width;
+        yStep = 1;
+        break;
+      case 180:
+        xStep = -1;
+        yStep = -width;
+        break;
+      case 270:
+        xStep = width;
+        yStep = -1;
+        break;
+      default:
+        xStep = 1;
+        yStep = width;
+        break;
+    }
+    int originX = mirror ? rotatedWidth - 1 - left : left;
+    switch (rotation) {
+      case 90:
+        origin = (height - 1 - originX) * width + top;
+        break;
+      case 180:
+        origin = (height - 1 - top) * width + width - 1 - originX;
+        break;
+      case 270:
+        origin = originX * width + width - 1 - top;
+        break;
+      default:
+        origin = top * width + originX;
+        break;
+    }
+    if (mirror) {
+      xStep = -xStep;
+    }
+    int rowOffset = origin;
+    for (int y = 0; y < size; y++) {
+      int offset = rowOffset;
+      for (int x = 0; x < size; x++) {
+        output[y * size + x] = data[offset];
+        offset += xStep;
+      }
+      rowOffset += yStep;
+    }
+    return output;
+  }
+
+  @Benchmark
+  public byte[] tiledCrop() {
+    boolean swap = rotation == 90 || rotation == 270;
+    int rotatedWidth = swap ? height : width;
+    int rotatedHeight = swap ? width : height;
+    return PlanarYUVRotator.rotate(data, width, height, (rotatedWidth - size) / 2,
+        (rotatedHeight - size) / 2, size, size, rotation, mirror, output);
+  }
+
+}
@@ -0,0 +1,291 @@
+package com.mazaiting.zxing.replay;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A recorded scan: NV21 preview frames as the camera delivered them, and what the scanner knew
+ * about them. A recording is a directory, or a zip file of one, holding
+ *
+ * <pre>
+ * recording.properties   width, height, rotation, framingRect and optionally mirror,
+ *                        formats, characterSet, expected, expectedCorrect and
+ *                        expectedRejected, see below
+ * 000000.nv21            one file per frame, named by its capture time in milliseconds
+ * 000033.nv21            since the start of the recording
+ * ...
+ * </pre>
+ *
+ * The properties are the preview size as delivered by the camera, the display rotation in
+ * degrees, the framing rect in rotated preview coordinates as {@code left,top,width,height}
+ * (what {@code CameraManager.getFramingRectInPreview()} returned), whether the rotated frame is
+ * mirrored, the comma separated barcode formats scanned for, the character set, and the text the
+ * barcode in the recording is known to hold. A recording checked in as a fixture may also say how
+ * many frames decode to that text and how many the quality gate rejects, when replayed at full
+ * speed without a budget; {@link Replay} fails it if the counts differ.
+ * 录制的预览帧
+ */
+public final class Recording implements Closeable {
+
+  static final String PROPERTIES = "recording.properties";
+  static final String FRAME_SUFFIX = ".nv21";
+
+  private final String name;
+  private final File directory;
+  private final ZipFile zipFile;
+  private final List<String> frameNames = new ArrayList<>();
+  private final long[] frameTimes;
+  private final int width;
+  private final int height;
+  private final int rotation;
+  private final boolean mirror;
+  private final int[] framingRect;
+  private final List<BarcodeFormat> formats;
+  private final String characterSet;
+  private final String expectedText;
+  private final int expectedCorrectCount;
+  private final int expectedRejectedCount;
+
+  private Recording(File file) throws IOException {
+    name = file.getName();
+    Properties properties = new Properties();
+    if (file.isDirectory()) {
+      directory = file;
+      zipFile = null;
+      File[] files = file.listFiles();
+      if (files != null) {
+        for (File frameFile : files) {
+          if (frameFile.getName().endsWith(FRAME_SUFFIX)) {
+            frameNames.add(frameFile.getName());
+          }
+        }
+      }
+      try (InputStream in = new FileInputStream(new File(file, PROPERTIES))) {
+        properties.load(in);
+      }
+    } else {
+      directory = null;
+      zipFile = new ZipFile(file);
+      ZipEntry propertiesEntry = null;
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (entry.getName().endsWith(FRAME_SUFFIX)) {
+          frameNames.add(entry.getName());
+        } else if (entry.getName().endsWith(PROPERTIES)) {
+          propertiesEntry = entry;
+        }
+      }
+      if (propertiesEntry == null) {
+        zipFile.close();
+        throw new IOException(PROPERTIES + " missing in " + file);
+      }
+      try (InputStream in = zipFile.getInputStream(propertiesEntry)) {
+        properties.load(in);
+      }
+    }
+
+    Collections.sort(frameNames, new Comparator<String>() {
+      @Override
+      public int compare(String a, String b) {
+        return Long.compare(timeOf(a), timeOf(b));
+      }
+    });
+    frameTimes = new long[frameNames.size()];
+    for (int i = 0; i < frameTimes.length; i++) {
+      frameTimes[i] = timeOf(frameNames.get(i));
+    }
+
+    width = intProperty(properties, "width");
+    height = intProperty(properties, "height");
+    rotation = Integer.parseInt(properties.getProperty("rotation", "90").trim());
+    mirror = Boolean.parseBoolean(properties.getProperty("mirror", "false").trim());
+    String[] rect = required(properties, "framingRect").split(",");
+    if (rect.length != 4) {
+      throw new IOException("framingRect must be left,top,width,height: " + rect.length);
+    }
+    framingRect = new int[4];
+    for (int i = 0; i < 4; i++) {
+      framingRect[i] = Integer.parseInt(rect[i].trim());
+    }
+    String formatNames = properties.getProperty("formats");
+    if (formatNames == null || formatNames.trim().isEmpty()) {
+      formats = null;
+    } else {
+      formats = new ArrayList<>();
+      for (String format : formatNames.split(",")) {
+        formats.add(BarcodeFormat.valueOf(format.trim()));
+      }
+    }
+    characterSet = properties.getProperty("characterSet");
+    expectedText = properties.getProperty("expected");
+    expectedCorrectCount = optionalIntProperty(properties, "expectedCorrect");
+    expectedRejectedCount = optionalIntProperty(properties, "expectedRejected");
+  }
+
+  /**
+   * @param file A recording directory, or a zip file of one.
+   */
+  public static Recording open(File file) throws IOException {
+    return new Recording(file);
+  }
+
+  /**
+   * @return The capture time in milliseconds a frame file is named by.
+   */
+  private static long timeOf(String frameName) {
+    String baseName = frameName.substring(frameName.lastIndexOf('/') + 1,
+        frameName.length() - FRAME_SUFFIX.length());
+    try {
+      return Long.parseLong(baseName);
+    } catch (NumberFormatException nfe) {
+      throw new IllegalArgumentException("Frame file is not named by its time: " + frameName);
+    }
+  }
+
+  private static String required(Properties properties, String key) throws IOException {
+    String value = properties.getProperty(key);
+    if (value == null) {
+      throw new IOException(PROPERTIES + " lacks " + key);
+    }
+    return value.trim();
+  }
+
+  private static int intProperty(Properties properties, String key) throws IOException {
+    return Integer.parseInt(required(properties, key));
+  }
+
+  /**
+   * @return The value of the key, or -1 if there is none.
+   */
+  private static int optionalIntProperty(Properties properties, String key) {
+    String value = properties.getProperty(key);
+    return value == null ? -1 : Integer.parseInt(value.trim());
+  }
+
+  /**
+   * Reads one frame; its Y plane comes first, as the camera delivers it.
+   *
+   * @param index The frame index, in capture order.
+   */
+  public byte[] readFrame(int index) throws IOException {
+    String frameName = frameNames.get(index);
+    byte[] data;
+    if (zipFile != null) {
+      try (InputStream in = zipFile.getInputStream(zipFile.getEntry(frameName))) {
+        data = readFully(in);
+      }
+    } else {
+      try (InputStream in = new FileInputStream(new File(directory, frameName))) {
+        data = readFully(in);
+      }
+    }
+    if (data.length < width * height) {
+      throw new IOException(frameName + " holds " + data.length + " bytes, less than a "
+          + width + "x" + height + " Y plane");
+    }
+    return data;
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[64 * 1024];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getFrameCount() {
+    return frameNames.size();
+  }
+
+  /**
+   * @return The capture time of a frame, in milliseconds since the start of the recording.
+   */
+  public long getFrameTimeMillis(int index) {
+    return frameTimes[index];
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getRotation() {
+    return rotation;
+  }
+
+  public boolean isMirror() {
+    return mirror;
+  }
+
+  /**
+   * @return The framing rect in rotated preview coordinates: left, top, width, height.
+   */
+  public int[] getFramingRect() {
+    return framingRect.clone();
+  }
+
+  /**
+   * @return The formats scanned for, or null for all supported ones.
+   */
+  public List<BarcodeFormat> getFormats() {
+    return formats;
+  }
+
+  public String getCharacterSet() {
+    return characterSet;
+  }
+
+  /**
+   * @return The text of the recorded barcode, or null if it is not known.
+   */
+  public String getExpectedText() {
+    return expectedText;
+  }
+
+  /**
+   * @return The number of frames known to decode to the expected text, or -1 if not known.
+   */
+  public int getExpectedCorrectCount() {
+    return expectedCorrectCount;
+  }
+
+  /**
+   * @return The number of frames the quality gate is known to reject, or -1 if not known.
+   */
+  public int getExpectedRejectedCount() {
+    return expectedRejectedCount;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (zipFile != null) {
+      zipFile.close();
+    }
+  }
+
+}
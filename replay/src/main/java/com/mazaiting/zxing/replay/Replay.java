@@ -0,0 +1,149 @@
+package com.mazaiting.zxing.replay;
+
+import com.mazaiting.zxing.util.FrameQualityGate;
+import com.mazaiting.zxing.util.ScanMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays recordings from the command line and checks them against thresholds, so that a
+ * regression in decode accuracy or speed fails a CI build:
+ *
+ * <pre>
+ * Replay [--recorded-timing] [--multiple] [--frames] [--budget-millis millis]
+ *        [--row-padding bytes] [--min-decode-rate fraction] [--min-accuracy fraction]
+ *        [--max-frames-to-decode count] [--max-p90-millis millis]
+ *        recording...
+ * </pre>
+ *
+ * A recording is a directory or zip file as described in {@link Recording}; one which says how
+ * many frames are correct and rejected must match those counts as well, unless replayed at
+ * recorded timing or within a budget. The exit code is 0 if
+ * every recording met every threshold, 1 if one did not, and 2 on bad arguments.
+ * Frames are decoded without a time limit unless {@code --budget-millis} sets one, such as the
+ * 250 ms the scanner uses on a device; a budget makes the results depend on the machine's speed.
+ * {@code --row-padding} decodes the frames as padded YUV_420_888 Y planes, as a Camera2 backend
+ * delivers them, instead of as byte[] frames.
+ * 回放命令行入口
+ */
+public final class Replay {
+
+  private Replay() {
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    boolean recordedTiming = false;
+    boolean multiple = false;
+    boolean printFrames = false;
+    // No budget by default, so the thresholds do not depend on how fast the machine is.
+    long budgetMillis = 0L;
+    int rowPadding = -1;
+    double minDecodeRate = 0.0;
+    double minAccuracy = 0.0;
+    int maxFramesToDecode = Integer.MAX_VALUE;
+    long maxP90Millis = Long.MAX_VALUE;
+    List<File> recordings = new ArrayList<>();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String arg = args[i];
+        if ("--recorded-timing".equals(arg)) {
+          recordedTiming = true;
+        } else if ("--multiple".equals(arg)) {
+          multiple = true;
+        } else if ("--frames".equals(arg)) {
+          printFrames = true;
+        } else if ("--budget-millis".equals(arg)) {
+          budgetMillis = Long.parseLong(args[++i]);
+        } else if ("--row-padding".equals(arg)) {
+          rowPadding = Integer.parseInt(args[++i]);
+          if (rowPadding < 0) {
+            throw new IllegalArgumentException("Row padding must not be negative: " + rowPadding);
+          }
+        } else if ("--min-decode-rate".equals(arg)) {
+          minDecodeRate = Double.parseDouble(args[++i]);
+        } else if ("--min-accuracy".equals(arg)) {
+          minAccuracy = Double.parseDouble(args[++i]);
+        } else if ("--max-frames-to-decode".equals(arg)) {
+          maxFramesToDecode = Integer.parseInt(args[++i]);
+        } else if ("--max-p90-millis".equals(arg)) {
+          maxP90Millis = Long.parseLong(args[++i]);
+        } else if (arg.startsWith("--")) {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        } else {
+          recordings.add(new File(arg));
+        }
+      }
+      if (recordings.isEmpty()) {
+        throw new IllegalArgumentException("No recording given");
+      }
+    } catch (RuntimeException e) {
+      System.err.println(e.getMessage());
+      System.err.println("Usage: Replay [--recorded-timing] [--multiple] [--frames]"
+          + " [--budget-millis millis] [--row-padding bytes]"
+          + " [--min-decode-rate fraction] [--min-accuracy fraction]"
+          + " [--max-frames-to-decode count] [--max-p90-millis millis] recording...");
+      System.exit(2);
+      return;
+    }
+
+    ReplayEngine engine = new ReplayEngine(recordedTiming, multiple, budgetMillis,
+        rowPadding);
+    boolean passed = true;
+    for (File file : recordings) {
+      ReplayReport report;
+      int expectedCorrect;
+      int expectedRejected;
+      try (Recording recording = Recording.open(file)) {
+        report = engine.replay(recording);
+        expectedCorrect = recording.getExpectedCorrectCount();
+        expectedRejected = recording.getExpectedRejectedCount();
+      }
+      System.out.println(report);
+      if (printFrames) {
+        System.out.println("frame\ttime ms\tlatency us\ttext");
+        for (ReplayReport.FrameResult frame : report.getFrames()) {
+          System.out.println(frame);
+        }
+      }
+      List<String> failures = new ArrayList<>();
+      // Counts only repeat when every frame is decoded in full.
+      if (recordedTiming || budgetMillis > 0) {
+        expectedCorrect = -1;
+        expectedRejected = -1;
+      }
+      if (expectedCorrect >= 0 && report.getCorrectCount() != expectedCorrect) {
+        failures.add(report.getCorrectCount() + " frames correct, expected " + expectedCorrect);
+      }
+      FrameQualityGate gate = report.getQualityGate();
+      long rejected = gate.getBlurRejectCount() + gate.getFlatRejectCount();
+      if (expectedRejected >= 0 && rejected != expectedRejected) {
+        failures.add(rejected + " frames rejected by the quality gate, expected "
+            + expectedRejected);
+      }
+      if (report.getDecodeRate() < minDecodeRate) {
+        failures.add("decode rate below " + minDecodeRate);
+      }
+      if (report.getAccuracy() < minAccuracy) {
+        failures.add("accuracy below " + minAccuracy);
+      }
+      if (report.getFramesToFirstDecode() == 0 && maxFramesToDecode != Integer.MAX_VALUE
+          || report.getFramesToFirstDecode() > maxFramesToDecode) {
+        failures.add("not decoded within " + maxFramesToDecode + " frames");
+      }
+      long p90Millis = report.getMetrics().getHistogram(ScanMetrics.Stage.TOTAL)
+          .getPercentileMicros(90) / 1000L;
+      if (p90Millis > maxP90Millis) {
+        failures.add("p90 latency " + p90Millis + " ms above " + maxP90Millis + " ms");
+      }
+      for (String failure : failures) {
+        System.out.println("FAILED " + report.getRecordingName() + ": " + failure);
+      }
+      passed &= failures.isEmpty();
+    }
+    System.exit(passed ? 0 : 1);
+  }
+
+}
@@ -0,0 +1,161 @@
+package com.mazaiting.zxing.replay;
+
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+import com.mazaiting.zxing.camera.CameraBackend;
+import com.mazaiting.zxing.camera.FakeCameraBackend;
+import com.mazaiting.zxing.camera.PreviewFrame;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+import com.mazaiting.zxing.util.DecodeBudget;
+import com.mazaiting.zxing.util.DecodeMetrics;
+import com.mazaiting.zxing.util.FormatScheduler;
+import com.mazaiting.zxing.util.FrameDecoder;
+import com.mazaiting.zxing.util.FrameQualityGate;
+import com.mazaiting.zxing.util.HintEscalation;
+import com.mazaiting.zxing.util.RegionTracker;
+import com.mazaiting.zxing.util.SceneChangeDetector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Hashtable;
+
+/**
+ * Pushes the frames of a {@link Recording} through the decode path of a scanner's decode
+ * worker: the rotated framing rect view, the scene change detector, the quality gate, the
+ * pyramid or multiple barcode decode within the frame budget, and the stage timings, without a
+ * camera or a Looper.
+ *
+ * At full speed every frame is decoded back to back. At recorded timing frames are delivered
+ * when they were captured, and a frame which is superseded by a newer one while the decoder is
+ * busy is skipped, like a single worker taking the latest frame from the frame scheduler.
+ *
+ * With a row padding, frames are delivered as the Y planes of YUV_420_888 images through a
+ * {@link FakeCameraBackend} and read in place, as frames from a Camera2 backend are.
+ * 回放引擎
+ */
+public final class ReplayEngine {
+
+  private final boolean recordedTiming;
+  private final boolean multiple;
+  private final long budgetMillis;
+  private final int rowPadding;
+
+  /**
+   * @param recordedTiming Whether to deliver frames at the time they were captured rather than
+   *                       as fast as they are decoded.
+   * @param multiple       Whether to decode every barcode in a frame, as in multiple scan mode.
+   * @param budgetMillis   How long a frame may take before it is abandoned, 0 for no limit.
+   * @param rowPadding     Bytes of padding after each row of image frames, or -1 to decode the
+   *                       byte[] frames as recorded.
+   */
+  public ReplayEngine(boolean recordedTiming, boolean multiple, long budgetMillis,
+                      int rowPadding) {
+    this.recordedTiming = recordedTiming;
+    this.multiple = multiple;
+    this.budgetMillis = budgetMillis;
+    this.rowPadding = rowPadding;
+  }
+
+  public ReplayReport replay(Recording recording) throws IOException, InterruptedException {
+    Hashtable<DecodeHintType, Object> hints = FrameDecoder.createHints(recording.getFormats(),
+        recording.getCharacterSet(), null);
+    DecodeMetrics metrics = new DecodeMetrics();
+    FrameQualityGate qualityGate = new FrameQualityGate();
+    SceneChangeDetector sceneDetector = new SceneChangeDetector();
+    HintEscalation escalation = new HintEscalation();
+    DecodeBudget budget = new DecodeBudget();
+    budget.setBudgetMillis(budgetMillis);
+    FrameDecoder decoder = new FrameDecoder(hints, new FormatScheduler(), new RegionTracker(),
+        escalation, qualityGate, sceneDetector, budget, metrics);
+    ReplayReport report = new ReplayReport(recording.getName(), recording.getFrameCount(),
+        metrics, escalation, qualityGate, sceneDetector, budget);
+    String expected = recording.getExpectedText();
+    int[] rect = recording.getFramingRect();
+    int width = recording.getWidth();
+    int height = recording.getHeight();
+    FakeCameraBackend backend = null;
+    final ByteBuffer[] delivered = new ByteBuffer[1];
+    if (rowPadding >= 0) {
+      backend = new FakeCameraBackend(width, height, rowPadding, recording.getRotation());
+      backend.open(null, null);
+      backend.setFrameCallback(new CameraBackend.FrameCallback() {
+        @Override
+        public void onFrame(ByteBuffer yPlane, int rowStride, int pixelStride, int frameWidth,
+                            int frameHeight) {
+          delivered[0] = yPlane;
+        }
+      });
+      backend.startPreview();
+    }
+
+    long startNanos = System.nanoTime();
+    long firstFrameMillis = recording.getFrameCount() == 0 ? 0L : recording.getFrameTimeMillis(0);
+    int index = 0;
+    while (index < recording.getFrameCount()) {
+      long timestampNanos;
+      if (recordedTiming) {
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1000000L;
+        // Skip to the newest frame the camera has delivered by now.
+        while (index + 1 < recording.getFrameCount()
+            && recording.getFrameTimeMillis(index + 1) - firstFrameMillis <= elapsedMillis) {
+          index++;
+        }
+        long frameMillis = recording.getFrameTimeMillis(index) - firstFrameMillis;
+        if (frameMillis > elapsedMillis) {
+          Thread.sleep(frameMillis - elapsedMillis);
+        }
+        timestampNanos = startNanos + frameMillis * 1000000L;
+      } else {
+        timestampNanos = -1L;
+      }
+      byte[] data = recording.readFrame(index);
+      if (timestampNanos < 0) {
+        timestampNanos = System.nanoTime();
+      }
+
+      PreviewFrame frame;
+      RotatedPlanarYUVLuminanceSource source;
+      if (backend != null) {
+        backend.deliver(data);
+        frame = new PreviewFrame(delivered[0], backend.getRowStride(), 1, width, height, index,
+            timestampNanos, backend.isFocusMoving());
+        source = new RotatedPlanarYUVLuminanceSource(frame.getYPlane(), frame.getRowStride(),
+            frame.getPixelStride(), width, height, rect[0], rect[1], rect[2], rect[3],
+            recording.getRotation(), recording.isMirror());
+      } else {
+        frame = new PreviewFrame(data, width, height, index, timestampNanos);
+        source = new RotatedPlanarYUVLuminanceSource(data, width, height, rect[0], rect[1],
+            rect[2], rect[3], recording.getRotation(), recording.isMirror());
+      }
+      decoder.begin(frame);
+      String text = null;
+      boolean correct = false;
+      if (multiple) {
+        Result[] results = decoder.decodeMultiple(source);
+        if (results != null) {
+          text = results[0].getText();
+          for (Result result : results) {
+            correct |= expected == null || expected.equals(result.getText());
+          }
+        }
+      } else {
+        Result result = decoder.decode(source);
+        if (result != null) {
+          text = result.getText();
+          correct = expected == null || expected.equals(text);
+        }
+      }
+      decoder.finish(frame, text != null);
+      if (backend != null) {
+        backend.releaseFrame(frame.getYPlane());
+      }
+
+      long end = System.nanoTime();
+      report.add(new ReplayReport.FrameResult(index, recording.getFrameTimeMillis(index),
+          (end - timestampNanos) / 1000L, text), correct, (end - startNanos) / 1000000L);
+      index++;
+    }
+    return report;
+  }
+
+}
@@ -0,0 +1,249 @@
+package com.mazaiting.zxing.replay;
+
+import com.mazaiting.zxing.util.DecodeBudget;
+import com.mazaiting.zxing.util.FrameQualityGate;
+import com.mazaiting.zxing.util.HintEscalation;
+import com.mazaiting.zxing.util.ScanMetrics;
+import com.mazaiting.zxing.util.SceneChangeDetector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What replaying one recording gave: how many frames were decoded and how many of them found
+ * the expected barcode, how long it took to the first decode, and the latency of every frame.
+ * 回放报告
+ */
+public final class ReplayReport {
+
+  private final String recordingName;
+  private final int recordingFrameCount;
+  private final List<FrameResult> frames = new ArrayList<>();
+  private final ScanMetrics metrics;
+  private final HintEscalation escalation;
+  private final FrameQualityGate qualityGate;
+  private final SceneChangeDetector sceneDetector;
+  private final DecodeBudget budget;
+  private int foundCount;
+  private int correctCount;
+  private int firstDecodeFrames;
+  private long firstDecodeMillis = -1L;
+
+  ReplayReport(String recordingName, int recordingFrameCount, ScanMetrics metrics,
+               HintEscalation escalation, FrameQualityGate qualityGate,
+               SceneChangeDetector sceneDetector, DecodeBudget budget) {
+    this.recordingName = recordingName;
+    this.recordingFrameCount = recordingFrameCount;
+    this.metrics = metrics;
+    this.escalation = escalation;
+    this.qualityGate = qualityGate;
+    this.sceneDetector = sceneDetector;
+    this.budget = budget;
+  }
+
+  void add(FrameResult frame, boolean correct, long elapsedMillis) {
+    frames.add(frame);
+    if (frame.text != null) {
+      foundCount++;
+    }
+    if (correct) {
+      correctCount++;
+      if (firstDecodeMillis < 0) {
+        firstDecodeFrames = frame.index + 1;
+        firstDecodeMillis = elapsedMillis;
+      }
+    }
+  }
+
+  public String getRecordingName() {
+    return recordingName;
+  }
+
+  /**
+   * @return The number of frames in the recording.
+   */
+  public int getRecordingFrameCount() {
+    return recordingFrameCount;
+  }
+
+  /**
+   * @return The number of frames decoded; replaying at recorded timing skips the frames which
+   *         were superseded while the decoder was busy, as the camera would.
+   */
+  public int getDecodedFrameCount() {
+    return frames.size();
+  }
+
+  public int getDroppedFrameCount() {
+    return recordingFrameCount - frames.size();
+  }
+
+  /**
+   * @return The number of decoded frames with a result.
+   */
+  public int getFoundCount() {
+    return foundCount;
+  }
+
+  /**
+   * @return The number of decoded frames with the expected result, or with any result if the
+   *         recording does not say what to expect.
+   */
+  public int getCorrectCount() {
+    return correctCount;
+  }
+
+  /**
+   * @return The number of decoded frames with a result other than the expected one.
+   */
+  public int getMisreadCount() {
+    return foundCount - correctCount;
+  }
+
+  /**
+   * @return The fraction of decoded frames with the expected result.
+   */
+  public double getDecodeRate() {
+    return frames.isEmpty() ? 0.0 : (double) correctCount / frames.size();
+  }
+
+  /**
+   * @return The fraction of results which were the expected one.
+   */
+  public double getAccuracy() {
+    return foundCount == 0 ? 1.0 : (double) correctCount / foundCount;
+  }
+
+  /**
+   * @return How many frames the camera had delivered up to and including the first one decoded
+   *         correctly, or 0 if none was.
+   */
+  public int getFramesToFirstDecode() {
+    return firstDecodeFrames;
+  }
+
+  /**
+   * @return Milliseconds from the start of the replay until the first correct result was
+   *         dispatched, or -1 if there was none.
+   */
+  public long getFirstDecodeMillis() {
+    return firstDecodeMillis;
+  }
+
+  /**
+   * @return Every decoded frame, in decode order.
+   */
+  public List<FrameResult> getFrames() {
+    return Collections.unmodifiableList(frames);
+  }
+
+  /**
+   * @return The stage timings of every decoded frame.
+   */
+  public ScanMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return The escalation policy the frames were decoded with, with its counters.
+   */
+  public HintEscalation getHintEscalation() {
+    return escalation;
+  }
+
+  /**
+   * @return The quality gate the frames went through, with its reject counts.
+   */
+  public FrameQualityGate getQualityGate() {
+    return qualityGate;
+  }
+
+  /**
+   * @return The detector the frames went through, with its count of unchanged frames.
+   */
+  public SceneChangeDetector getSceneChangeDetector() {
+    return sceneDetector;
+  }
+
+  /**
+   * @return The budget the frames were decoded within, with the count of frames abandoned.
+   */
+  public DecodeBudget getDecodeBudget() {
+    return budget;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(recordingName).append(": ")
+        .append(frames.size()).append('/').append(recordingFrameCount).append(" frames decoded, ")
+        .append(correctCount).append(" correct, ")
+        .append(getMisreadCount()).append(" misread, decode rate ")
+        .append(String.format("%.3f", getDecodeRate())).append(", accuracy ")
+        .append(String.format("%.3f", getAccuracy()));
+    if (firstDecodeMillis < 0) {
+      builder.append(", never decoded");
+    } else {
+      builder.append(", first decode after ").append(firstDecodeFrames).append(" frames, ")
+          .append(firstDecodeMillis).append(" ms");
+    }
+    builder.append("\nlatency: ").append(metrics.getHistogram(ScanMetrics.Stage.TOTAL));
+    builder.append("\nhint escalation: ").append(escalation);
+    builder.append("\nquality gate: ").append(qualityGate);
+    builder.append("\nscene change detector: ").append(sceneDetector);
+    builder.append("\ndecode budget: ").append(budget);
+    return builder.toString();
+  }
+
+  /**
+   * One decoded frame.
+   */
+  public static final class FrameResult {
+    final int index;
+    final long timeMillis;
+    final long latencyMicros;
+    final String text;
+
+    FrameResult(int index, long timeMillis, long latencyMicros, String text) {
+      this.index = index;
+      this.timeMillis = timeMillis;
+      this.latencyMicros = latencyMicros;
+      this.text = text;
+    }
+
+    /**
+     * @return The index of the frame in the recording.
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    /**
+     * @return The capture time of the frame, in milliseconds since the start of the recording.
+     */
+    public long getTimeMillis() {
+      return timeMillis;
+    }
+
+    /**
+     * @return Microseconds from the delivery of the frame until its result was dispatched.
+     */
+    public long getLatencyMicros() {
+      return latencyMicros;
+    }
+
+    /**
+     * @return The text of the first barcode found, or null if there was none.
+     */
+    public String getText() {
+      return text;
+    }
+
+    @Override
+    public String toString() {
+      return index + "\t" + timeMillis + "\t" + latencyMicros + "\t" + (text == null ? "" : text);
+    }
+  }
+
+}
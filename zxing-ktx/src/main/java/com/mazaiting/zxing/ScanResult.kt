@@ -0,0 +1,20 @@
+package com.mazaiting.zxing
+
+import com.google.zxing.BarcodeFormat
+import com.google.zxing.Result
+
+/**
+ * 扫描会话输出的扫描结果
+ * @param result 解码结果
+ * @param decodeMillis 解码耗时, 单位毫秒
+ */
+class ScanResult(val result: Result, val decodeMillis: Long) {
+  /** 条码内容 */
+  val text: String
+    get() = result.text
+  /** 条码格式 */
+  val format: BarcodeFormat
+    get() = result.barcodeFormat
+  
+  override fun toString() = "$format: $text ($decodeMillis ms)"
+}
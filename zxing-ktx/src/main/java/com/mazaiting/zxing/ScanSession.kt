@@ -0,0 +1,163 @@
+package com.mazaiting.zxing
+
+import android.os.Handler
+import android.os.Looper
+import android.os.Message
+import com.google.zxing.BinaryBitmap
+import com.google.zxing.DecodeHintType
+import com.google.zxing.MultiFormatReader
+import com.google.zxing.ReaderException
+import com.google.zxing.common.HybridBinarizer
+import com.mazaiting.zxing.camera.CameraManager
+import com.mazaiting.zxing.constant.AUTO_FOCUS
+import com.mazaiting.zxing.constant.DECODE
+import com.mazaiting.zxing.util.DecodeManager
+import kotlinx.coroutines.CancellableContinuation
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withContext
+import java.util.*
+import kotlin.coroutines.resume
+
+/**
+ * 扫描会话, 以[Flow]持续输出扫描结果, 无需通过startActivityForResult每次启动只拿到一个结果
+ *
+ * [results]返回的流是冷流: 开始收集时开启预览, 每次只请求一帧预览帧, 该帧解码完成且结果被下游接收后
+ * 才请求下一帧, 因此解码多少帧由下游决定:
+ * - 直接收集: 收集者处理结果期间不请求、不解码预览帧
+ * - buffer(n): 最多提前解码出n个未被处理的结果
+ * - conflate(): 持续解码, 收集者每次只拿到最新的结果
+ *
+ * 取消收集协程时, 正在进行的解码先完成, 然后移除预览帧和自动对焦回调并停止预览;
+ * 收集协程结束时相机已经停止预览, 不会再有帧被解码. 预览和对焦回调都在主线程上请求.
+ *
+ * 使用前需在主线程调用[CameraManager.openDriver]打开相机, 且不要同时使用[CaptureActivityHandler]
+ * ```
+ * scope.launch(Dispatchers.Main) {
+ *   ScanSession().results()
+ *       .conflate()
+ *       .collect { result -> show(result.text) }
+ * }
+ * ```
+ * @param hints 解码提示信息, 默认与[CaptureActivity]相同
+ * @param decodeDispatcher 解码所在的调度器
+ */
+class ScanSession @JvmOverloads constructor(
+    hints: Map<DecodeHintType, Any> = DecodeManager.HINTS,
+    private val decodeDispatcher: CoroutineDispatcher = Dispatchers.Default) {
+  
+  /** 解码提示信息 */
+  private val mHints: Hashtable<DecodeHintType, Any> = Hashtable(hints)
+  
+  /**
+   * 扫描结果流, 每次收集都是一次独立的扫描
+   * @return 扫描结果流, 收集时相机未打开则抛出IllegalStateException
+   */
+  fun results(): Flow<ScanResult> = flow<ScanResult> {
+    // 每次收集使用自己的读取器
+    val reader = MultiFormatReader()
+    reader.setHints(mHints)
+    // 接收预览帧和自动对焦消息
+    val handler = SessionHandler()
+    try {
+      withContext(Dispatchers.Main) {
+        // 开启预览
+        CameraManager.get().startPreview()
+        check(CameraManager.get().isPreviewing) { "Camera is not open" }
+        // 请求自动对焦
+        CameraManager.get().requestAutoFocus(handler, AUTO_FOCUS)
+      }
+      while (true) {
+        // 等待下一帧预览帧
+        val frame = handler.awaitFrame()
+        // 解码完成前不会响应取消, 保证取消后没有解码仍在进行
+        val result = withContext(decodeDispatcher) { decode(reader, frame) }
+        // 下游未处理完之前挂起, 不再请求新的预览帧
+        if (result != null) emit(result)
+      }
+    } finally {
+      withContext(NonCancellable + Dispatchers.Main) {
+        // 移除回调并停止预览
+        handler.release()
+        CameraManager.get().stopPreview()
+      }
+    }
+  }
+  
+  /**
+   * 解码取景框中的数据
+   * @param reader 读取器
+   * @param frame 预览帧
+   * @return 扫描结果, 未找到条码返回null
+   */
+  private fun decode(reader: MultiFormatReader, frame: PreviewFrame): ScanResult? {
+    // 记录开始时间
+    val start = System.currentTimeMillis()
+    // 按显示方向读取预览帧
+    val source = CameraManager.get().buildRotatedLuminanceSource(frame.data, frame.width, frame.height)
+    return try {
+      val result = reader.decodeWithState(BinaryBitmap(HybridBinarizer(source)))
+      ScanResult(result, System.currentTimeMillis() - start)
+    } catch (re: ReaderException) {
+      null
+    } finally {
+      // 重置解码工具
+      reader.reset()
+    }
+  }
+  
+  /**
+   * 预览帧
+   * @param data YUV预览帧
+   * @param width 预览帧宽度
+   * @param height 预览帧高度
+   */
+  private class PreviewFrame(val data: ByteArray, val width: Int, val height: Int)
+  
+  /**
+   * 在主线程接收预览帧和自动对焦消息
+   */
+  private class SessionHandler : Handler(Looper.getMainLooper()) {
+    /** 等待预览帧的协程 */
+    private var continuation: CancellableContinuation<PreviewFrame>? = null
+    /** 是否已释放 */
+    private var isReleased = false
+    
+    /**
+     * 请求一帧预览帧并挂起直到收到
+     * @return 预览帧
+     */
+    suspend fun awaitFrame(): PreviewFrame = withContext(Dispatchers.Main) {
+      suspendCancellableCoroutine<PreviewFrame> { cont ->
+        continuation = cont
+        CameraManager.get().requestPreviewFrame(this@SessionHandler, DECODE)
+      }
+    }
+    
+    override fun handleMessage(message: Message) {
+      when (message.what) {
+        // 收到预览帧, 已取消的协程会忽略该帧
+        DECODE -> {
+          val cont = continuation
+          continuation = null
+          cont?.resume(PreviewFrame(message.obj as ByteArray, message.arg1, message.arg2))
+        }
+        // 对焦完成并延时后, 再次请求自动对焦
+        AUTO_FOCUS -> if (!isReleased) CameraManager.get().requestAutoFocus(this, AUTO_FOCUS)
+      }
+    }
+    
+    /**
+     * 释放, 不再接收任何消息
+     */
+    fun release() {
+      isReleased = true
+      continuation = null
+      removeCallbacksAndMessages(null)
+    }
+  }
+}
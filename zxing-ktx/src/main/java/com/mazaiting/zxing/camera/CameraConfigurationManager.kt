@@ -109,9 +109,15 @@ class CameraConfigurationManager internal constructor(private val context: Conte
     }
     
     // 设置相机预览为竖屏
-    camera.setDisplayOrientation(90)
+    camera.setDisplayOrientation(DISPLAY_ORIENTATION)
   }
   
+  /**
+   * 预览帧相对屏幕显示的顺时针旋转角度
+   * @return 旋转角度
+   */
+  internal fun getDisplayOrientation(): Int = DISPLAY_ORIENTATION
+  
   /**
    * 设置闪光灯
    * @param parameters 相机参数
@@ -208,6 +214,8 @@ class CameraConfigurationManager internal constructor(private val context: Conte
   companion object {
     /** 变焦 */
     private const val TEN_DESIRED_ZOOM = 27
+    /** 预览显示方向, 竖屏 */
+    private const val DISPLAY_ORIENTATION = 90
     /** 正则表达 */
     private val COMMA_PATTERN = Pattern.compile(",")
   
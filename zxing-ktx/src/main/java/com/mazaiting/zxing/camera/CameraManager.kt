@@ -62,7 +62,8 @@ class CameraManager private constructor(private val context: Context) {
   /** 是否初始化 */
   private var isInitialized: Boolean = false
   /** 是否正在预览 */
-  private var isPreviewing: Boolean = false
+  var isPreviewing: Boolean = false
+    private set
   /** 预览回调 */
   private val mPreviewCallback: PreviewCallback
   /** 自动对焦回调  */
@@ -296,6 +297,32 @@ class CameraManager private constructor(private val context: Context) {
   fun buildLuminanceSource(data: ByteArray, width: Int, height: Int): PlanarYUVLuminanceSource {
     // 获取帧预览图像
     val rect = getFramingRectInPreview()
+    // 检查预览格式
+    checkPreviewFormat()
+    return PlanarYUVLuminanceSource(data, width, height, rect.left, rect.top,
+            rect.width(), rect.height())
+  }
+  
+  /**
+   * 类似[buildLuminanceSource], 但按显示方向读取预览帧, 无需先旋转整帧即可使用预览帧中的取景框矩形
+   * @param data 相机输出的预览帧
+   * @param width 预览帧宽度
+   * @param height 预览帧高度
+   * @return 取景框范围内的RotatedPlanarYUVLuminanceSource 实例
+   */
+  fun buildRotatedLuminanceSource(data: ByteArray, width: Int, height: Int): RotatedPlanarYUVLuminanceSource {
+    // 获取帧预览图像
+    val rect = getFramingRectInPreview()
+    // 检查预览格式
+    checkPreviewFormat()
+    return RotatedPlanarYUVLuminanceSource(data, width, height, rect.left, rect.top,
+            rect.width(), rect.height(), mConfigManager.getDisplayOrientation(), false)
+  }
+  
+  /**
+   * 检查预览格式, 只有Y通道为首个平面的格式可以直接读取
+   */
+  private fun checkPreviewFormat() {
     // 获取预览格式
     val previewFormat = mConfigManager.previewFormat
     // 获取预览格式字符串
@@ -307,16 +334,14 @@ class CameraManager private constructor(private val context: Context) {
       ImageFormat.NV21,
         // 这个格式并未广泛使用, 但它兼容我们关心的Y通道, 因此使用它
 //      PixelFormat.YCbCr_422_SP,
-      ImageFormat.NV16 -> return PlanarYUVLuminanceSource(data, width, height, rect.left, rect.top,
-              rect.width(), rect.height())
+      ImageFormat.NV16 -> return
       else ->
         // The Samsung Moment incorrectly uses this variant instead of the 'sp' version.
         // Fortunately, it too has all the Y data up front, so we can read it.
         // 三星使用previewFormat变量不正确, 替代的'sp'这个版本.
         // 幸运的是, 它事先提供了Y数据, 所以我们可以读取它
         if ("yuv420p" == previewFormatString) {
-          return PlanarYUVLuminanceSource(data, width, height, rect.left, rect.top,
-                  rect.width(), rect.height())
+          return
         }
     }
     throw IllegalArgumentException("Unsupported picture format: $previewFormat/$previewFormatString")
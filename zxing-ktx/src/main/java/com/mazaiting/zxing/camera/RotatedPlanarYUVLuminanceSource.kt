@@ -0,0 +1,172 @@
+package com.mazaiting.zxing.camera
+
+import android.graphics.Bitmap
+
+import com.google.zxing.LuminanceSource
+
+/**
+ * 旋转视图亮度源, 按显示方向读取预览帧的Y平面, 无需拷贝旋转整帧数据.
+ * 剪切矩形使用旋转(及镜像)后的坐标, 可直接使用预览帧中的取景框矩形.
+ * 剪切区域中的像素(x, y)对应原始数据下标 origin + x * xStep + y * yStep, 因此只会访问剪切区域内的像素
+ *
+ * @param yuvData 二进制数据
+ * @param dataWidth 相机输出的数据宽度
+ * @param dataHeight 相机输出的数据高度
+ * @param left 旋转坐标中的左侧边距
+ * @param top 旋转坐标中的顶部边距
+ * @param width 旋转坐标中的宽度
+ * @param height 旋转坐标中的高度
+ * @param rotation 顺时针旋转角度: 0, 90, 180, 270
+ * @param mirror 旋转后是否水平镜像, 用于前置摄像头
+ * @extend 继承自LuminanceSource
+ */
+class RotatedPlanarYUVLuminanceSource(private val yuvData: ByteArray,
+                                      val dataWidth: Int,
+                                      val dataHeight: Int,
+                                      private val left: Int,
+                                      private val top: Int,
+                                      width: Int,
+                                      height: Int,
+                                      val rotation: Int,
+                                      val mirror: Boolean) : LuminanceSource(width, height) {
+  /** 剪切区域左上角像素在原始数据中的下标 */
+  private val origin: Int
+  /** 剪切区域内向右一步的下标增量 */
+  private val xStep: Int
+  /** 剪切区域内向下一步的下标增量 */
+  private val yStep: Int
+
+  init {
+    // 判断旋转角度是否支持
+    if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+      throw IllegalArgumentException("Unsupported rotation: $rotation")
+    }
+    // 判断二维码的大小是否大于旋转后数据的大小
+    val rotatedWidth = if (rotation == 90 || rotation == 270) dataHeight else dataWidth
+    val rotatedHeight = if (rotation == 90 || rotation == 270) dataWidth else dataHeight
+    if (left < 0 || top < 0 || left + width > rotatedWidth || top + height > rotatedHeight) {
+      throw IllegalArgumentException("Crop rectangle does not fit within image data.")
+    }
+    // 未镜像时的下标增量
+    val dx: Int
+    val dy: Int
+    when (rotation) {
+      90 -> { dx = -dataWidth; dy = 1 }
+      180 -> { dx = -1; dy = -dataWidth }
+      270 -> { dx = dataWidth; dy = -1 }
+      else -> { dx = 1; dy = dataWidth }
+    }
+    // 镜像时从右侧开始并反向读取
+    origin = dataIndex(if (mirror) rotatedWidth - 1 - left else left, top)
+    xStep = if (mirror) -dx else dx
+    yStep = dy
+  }
+
+  /**
+   * 将旋转后(未镜像)图像中的像素映射为原始数据中的下标
+   * @param x 横坐标
+   * @param y 纵坐标
+   * @return 下标
+   */
+  private fun dataIndex(x: Int, y: Int): Int = when (rotation) {
+    90 -> (dataHeight - 1 - x) * dataWidth + y
+    180 -> (dataHeight - 1 - y) * dataWidth + dataWidth - 1 - x
+    270 -> x * dataWidth + dataWidth - 1 - y
+    else -> y * dataWidth + x
+  }
+
+  override fun getRow(y: Int, row: ByteArray?): ByteArray {
+    // 判断行的大小是否超过限制
+    if (y < 0 || y >= height) {
+      throw IllegalArgumentException("Requested row is outside the image: $y")
+    }
+    // 计算二进制数据数组的大小是否为空或小于宽度
+    val dataRow = if (row == null || row.size < width) ByteArray(width) else row
+    // 计算偏移量
+    var offset = origin + y * yStep
+    // 连续数据直接拷贝
+    if (xStep == 1) {
+      System.arraycopy(yuvData, offset, dataRow, 0, width)
+      return dataRow
+    }
+    // 按步长读取
+    for (x in 0 until width) {
+      dataRow[x] = yuvData[offset]
+      offset += xStep
+    }
+    return dataRow
+  }
+
+  override fun getMatrix(): ByteArray {
+    val width = width
+    val height = height
+    // 未旋转且未剪切时直接返回原始数据, 与PlanarYUVLuminanceSource一致
+    if (xStep == 1 && width == dataWidth && height == dataHeight) {
+      return yuvData
+    }
+
+    val matrix = ByteArray(width * height)
+    var rowOffset = origin
+    for (y in 0 until height) {
+      val outputOffset = y * width
+      if (xStep == 1) {
+        System.arraycopy(yuvData, rowOffset, matrix, outputOffset, width)
+      } else {
+        var offset = rowOffset
+        for (x in 0 until width) {
+          matrix[outputOffset + x] = yuvData[offset]
+          offset += xStep
+        }
+      }
+      rowOffset += yStep
+    }
+    return matrix
+  }
+
+  override fun isCropSupported(): Boolean = true
+
+  override fun crop(left: Int, top: Int, width: Int, height: Int): LuminanceSource =
+          RotatedPlanarYUVLuminanceSource(yuvData, dataWidth, dataHeight,
+                  this.left + left, this.top + top, width, height, rotation, mirror)
+
+  override fun isRotateSupported(): Boolean = true
+
+  override fun rotateCounterClockwise(): LuminanceSource {
+    // 镜像视图逆时针旋转等价于顺时针旋转后再镜像
+    val newRotation = (rotation + if (mirror) 90 else 270) % 360
+    val rotatedWidth = if (rotation == 90 || rotation == 270) dataHeight else dataWidth
+    return RotatedPlanarYUVLuminanceSource(yuvData, dataWidth, dataHeight,
+            top, rotatedWidth - left - width, height, width, newRotation, mirror)
+  }
+
+  /**
+   * 绘制剪切缩放图像
+   * @return 位图对象
+   */
+  fun renderCroppedGreyScaleBitmap(): Bitmap {
+    // 赋值宽高
+    val width = width
+    val height = height
+    // 创建整型数组
+    val pixels = IntArray(width * height)
+    // 行偏移
+    var rowOffset = origin
+    // 遍历设置颜色
+    for (y in 0 until height) {
+      val outputOffset = y * width
+      var offset = rowOffset
+      for (x in 0 until width) {
+        val grey = yuvData[offset].toInt() and 0xff
+        // 设置图像
+        pixels[outputOffset + x] = -0x1000000 or grey * 0x00010101
+        offset += xStep
+      }
+      rowOffset += yStep
+    }
+    // 创建图像
+    val bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888)
+    // 设置图像
+    bitmap.setPixels(pixels, 0, width, 0, 0, width, height)
+    return bitmap
+  }
+}
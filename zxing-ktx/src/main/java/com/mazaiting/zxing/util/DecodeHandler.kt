@@ -67,19 +67,8 @@ internal class DecodeHandler(private val activity: CaptureActivity,
     // 扫描结果
     var rawResult: Result? = null
     
-    // 创建二进制字节数组组
-    val rotatedData = ByteArray(data.size)
-    // 将二进制图像数据旋转90度
-    for (y in 0 until height) {
-      for (x in 0 until width)
-      // 存放数据
-        rotatedData[x * height + height - y - 1] = data[x + y * width]
-    }
-//    val tmp = width // Here we are swapping, that's the difference to #11
-//    width = height
-//    height = tmp
-    // 从相机生成
-    val source = CameraManager.get().buildLuminanceSource(rotatedData, height, width)
+    // 按显示方向读取预览帧, 只访问取景框内的像素, 无需旋转拷贝整帧数据
+    val source = CameraManager.get().buildRotatedLuminanceSource(data, width, height)
     // 创建二进制Bitmap, 通过混合二值化器
     val bitmap = BinaryBitmap(HybridBinarizer(source))
     try {
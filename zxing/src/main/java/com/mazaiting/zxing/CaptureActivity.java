@@ -11,6 +11,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Vibrator;
+import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.SurfaceHolder.Callback;
 import android.view.SurfaceView;
@@ -19,7 +20,14 @@ import android.widget.Toast;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.Result;
 import com.mazaiting.zxing.camera.CameraManager;
+import com.mazaiting.zxing.camera.CameraOpener;
+import com.mazaiting.zxing.listener.CameraOpenListener;
+import com.mazaiting.zxing.listener.MultipleScanResultListener;
+import com.mazaiting.zxing.listener.ScanResultListener;
+import com.mazaiting.zxing.util.DecodeMetrics;
+import com.mazaiting.zxing.util.DuplicateFilter;
 import com.mazaiting.zxing.util.InactivityTimer;
+import com.mazaiting.zxing.util.ScanMetrics;
 import com.mazaiting.zxing.view.ViewfinderView;
 
 import java.io.IOException;
@@ -35,14 +43,29 @@ import androidx.core.content.ContextCompat;
 /**
  * 扫描二维码界面
  */
-public class CaptureActivity  extends AppCompatActivity implements Callback{
+public class CaptureActivity  extends AppCompatActivity implements Callback, CameraOpenListener {
+    private static final String TAG = CaptureActivity.class.getSimpleName();
     public static final int PERMISSION_CODE = 0x10000;
     /** 扫描结果键值 */
     public static final String SCAN_RESULT = "result";
+    /** 连续扫描键值, 为true时扫描到结果后不关闭界面 */
+    public static final String SCAN_CONTINUOUS = "continuous";
+    /** 连续扫描结果列表键值 */
+    public static final String SCAN_RESULTS = "results";
+    /** 多条码扫描键值, 为true时一帧中的所有条码一并返回 */
+    public static final String SCAN_MULTIPLE = "multiple";
     private CaptureActivityHandler handler;
     //扫描框view
     private ViewfinderView viewfinderView;
     private boolean hasSurface;
+    //在后台线程打开相机, 与布局加载和Surface创建并行
+    private CameraOpener cameraOpener;
+    //相机正在打开
+    private boolean cameraOpening;
+    //相机已打开, 等待Surface
+    private boolean cameraOpened;
+    //界面处于前台
+    private boolean resumed;
     private Vector<BarcodeFormat> decodeFormats;
     private String characterSet;
     private InactivityTimer inactivityTimer;
@@ -50,21 +73,41 @@ public class CaptureActivity  extends AppCompatActivity implements Callback{
     private boolean playBeep;
     private static final float BEEP_VOLUME = 0.10f;
     private boolean vibrate;
+    //连续扫描
+    private volatile boolean continuousScan;
+    //连续扫描重复结果过滤器
+    private final DuplicateFilter duplicateFilter = new DuplicateFilter();
+    //连续扫描结果监听
+    private ScanResultListener scanResultListener;
+    //多条码扫描
+    private volatile boolean multipleScan;
+    //多条码扫描结果监听
+    private MultipleScanResultListener multipleScanResultListener;
+    //连续扫描结果
+    private final ArrayList<String> scanResults = new ArrayList<>();
+    //解码耗时统计, 跨越多次预览保持
+    private final DecodeMetrics decodeMetrics = new DecodeMetrics();
 //    private Button cancelScanButton;
 
     /** Called when the activity is first created. */
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // Start opening the camera first, so it opens while the layout is inflated and the
+        // surface is created.
+        CameraManager.init(getApplication());
+        cameraOpener = new CameraOpener();
+        openCamera();
         setContentView(R.layout.activity_capture);
         
         requestPermission();
         
-        CameraManager.init(getApplication());
         viewfinderView = this.findViewById(R.id.zxing_viewfinder_view);
 //        cancelScanButton = this.findViewById(R.id.zxing_btn_cancel_scan);
         hasSurface = false;
         inactivityTimer = new InactivityTimer(this);
+        continuousScan = getIntent().getBooleanExtra(SCAN_CONTINUOUS, false);
+        multipleScan = getIntent().getBooleanExtra(SCAN_MULTIPLE, false);
     }
     
     /**
@@ -102,24 +145,28 @@ public class CaptureActivity  extends AppCompatActivity implements Callback{
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
-        if (PERMISSION_CODE == requestCode) {
-        
+        if (PERMISSION_CODE == requestCode && resumed && !cameraOpening && !cameraOpened) {
+            // The first open failed without the camera permission, try again now it is granted.
+            openCamera();
         }
     }
     
     @Override
     protected void onResume() {
         super.onResume();
+        resumed = true;
+        decodeFormats = null;
+        characterSet = null;
+        if (!cameraOpening && !cameraOpened) {
+            openCamera();
+        }
         SurfaceView surfaceView = findViewById(R.id.zxing_preview_view);
         SurfaceHolder surfaceHolder = surfaceView.getHolder();
-        if (hasSurface) {
-            initCamera(surfaceHolder);
-        } else {
+        if (!hasSurface) {
             surfaceHolder.addCallback(this);
             surfaceHolder.setType(SurfaceHolder.SURFACE_TYPE_PUSH_BUFFERS);
         }
-        decodeFormats = null;
-        characterSet = null;
+        startPreviewIfReady();
 
         playBeep = true;
         AudioManager audioService = (AudioManager) getSystemService(AUDIO_SERVICE);
@@ -142,11 +189,15 @@ public class CaptureActivity  extends AppCompatActivity implements Callback{
     @Override
     protected void onPause() {
         super.onPause();
+        resumed = false;
         if (handler != null) {
             handler.quitSynchronously();
             handler = null;
         }
-        CameraManager.get().closeDriver();
+        // Closed on the opener thread, after an open which may still be running.
+        cameraOpener.close();
+        cameraOpening = false;
+        cameraOpened = false;
     }
 
     @Override
@@ -164,6 +215,17 @@ public class CaptureActivity  extends AppCompatActivity implements Callback{
         inactivityTimer.onActivity();
         playBeepSoundAndVibrate();
         String resultString = result.getText();
+        if (continuousScan) {
+            // 连续扫描时保持相机与解码线程运行, 结果逐个通知并在返回时一并带回
+            scanResults.add(resultString);
+            Intent resultIntent = new Intent();
+            resultIntent.putStringArrayListExtra(SCAN_RESULTS, scanResults);
+            this.setResult(RESULT_OK, resultIntent);
+            if (scanResultListener != null) {
+                scanResultListener.onScanResult(result, barcode);
+            }
+            return;
+        }
         //FIXME
         if (resultString.equals("")) {
             Toast.makeText(CaptureActivity.this, "Scan failed!", Toast.LENGTH_SHORT).show();
@@ -177,16 +239,62 @@ public class CaptureActivity  extends AppCompatActivity implements Callback{
         CaptureActivity.this.finish();
     }
 
-    private void initCamera(SurfaceHolder surfaceHolder) {
+    /**
+     * Handler scan results of multiple scan, all barcodes found in one frame
+     * @param results 结果, 结果点为扫描框内坐标
+     * @param barcode 扫描框图像
+     */
+    public void handleMultipleDecode(Result[] results, Bitmap barcode) {
+        inactivityTimer.onActivity();
+        playBeepSoundAndVibrate();
+        for (Result result : results) {
+            scanResults.add(result.getText());
+        }
+        Intent resultIntent = new Intent();
+        resultIntent.putStringArrayListExtra(SCAN_RESULTS, scanResults);
+        this.setResult(RESULT_OK, resultIntent);
+        if (multipleScanResultListener != null) {
+            multipleScanResultListener.onScanResults(results, barcode);
+        }
+        if (!continuousScan) {
+            CaptureActivity.this.finish();
+        }
+    }
+
+    private void openCamera() {
+        cameraOpening = true;
+        cameraOpener.open(this);
+    }
+
+    @Override
+    public void onCameraOpened() {
+        cameraOpening = false;
+        cameraOpened = true;
+        startPreviewIfReady();
+    }
+
+    @Override
+    public void onCameraOpenFailed(Exception e) {
+        cameraOpening = false;
+    }
+
+    /**
+     * Joins the opened camera and the surface, whichever is ready last, and starts scanning.
+     */
+    private void startPreviewIfReady() {
+        if (!resumed || !cameraOpened || !hasSurface || handler != null) {
+            return;
+        }
+        SurfaceView surfaceView = findViewById(R.id.zxing_preview_view);
         try {
-            CameraManager.get().openDriver(surfaceHolder);
+            CameraManager.get().setPreviewDisplay(surfaceView.getHolder());
         } catch (IOException | RuntimeException ioe) {
+            Log.w(TAG, "Camera could not use the surface", ioe);
             return;
         }
-        if (handler == null) {
-            handler = new CaptureActivityHandler(this, decodeFormats,
-                    characterSet);
-        }
+        cameraOpener.onSurfaceJoined();
+        handler = new CaptureActivityHandler(this, decodeFormats,
+                characterSet);
     }
 
     @Override
@@ -199,7 +307,7 @@ public class CaptureActivity  extends AppCompatActivity implements Callback{
     public void surfaceCreated(SurfaceHolder holder) {
         if (!hasSurface) {
             hasSurface = true;
-//            initCamera(holder);
+            startPreviewIfReady();
         }
 
     }
@@ -214,6 +322,82 @@ public class CaptureActivity  extends AppCompatActivity implements Callback{
         return viewfinderView;
     }
 
+    /**
+     * 是否连续扫描
+     * @return true: 扫描到结果后继续扫描
+     */
+    public boolean isContinuousScan() {
+        return continuousScan;
+    }
+
+    /**
+     * 设置是否连续扫描, 默认取自Intent中的{@link #SCAN_CONTINUOUS}
+     * @param continuousScan true: 扫描到结果后继续扫描
+     */
+    public void setContinuousScan(boolean continuousScan) {
+        this.continuousScan = continuousScan;
+    }
+
+    /**
+     * 设置连续扫描结果监听
+     * @param scanResultListener 监听
+     */
+    public void setScanResultListener(ScanResultListener scanResultListener) {
+        this.scanResultListener = scanResultListener;
+    }
+
+    /**
+     * 是否多条码扫描
+     * @return true: 一帧中的所有条码一并返回
+     */
+    public boolean isMultipleScan() {
+        return multipleScan;
+    }
+
+    /**
+     * 设置是否多条码扫描, 默认取自Intent中的{@link #SCAN_MULTIPLE}
+     * @param multipleScan true: 一帧中的所有条码一并返回
+     */
+    public void setMultipleScan(boolean multipleScan) {
+        this.multipleScan = multipleScan;
+    }
+
+    /**
+     * 设置多条码扫描结果监听
+     * @param multipleScanResultListener 监听
+     */
+    public void setMultipleScanResultListener(MultipleScanResultListener multipleScanResultListener) {
+        this.multipleScanResultListener = multipleScanResultListener;
+    }
+
+    /**
+     * 获取连续扫描重复结果过滤器, 可设置存活时间与各格式的冷却时间
+     * @return 过滤器
+     */
+    public DuplicateFilter getDuplicateFilter() {
+        return duplicateFilter;
+    }
+
+    /**
+     * 获取解码耗时统计, 可轮询或订阅各阶段耗时直方图
+     * @return 耗时统计
+     */
+    public ScanMetrics getScanMetrics() {
+        return decodeMetrics;
+    }
+
+    DecodeMetrics getDecodeMetrics() {
+        return decodeMetrics;
+    }
+
+    /**
+     * 获取启动耗时统计: 相机打开耗时, Surface就绪耗时, 首个预览帧到达耗时
+     * @return 相机异步打开器
+     */
+    public CameraOpener getCameraOpener() {
+        return cameraOpener;
+    }
+
     public Handler getHandler() {
         return handler;
     }
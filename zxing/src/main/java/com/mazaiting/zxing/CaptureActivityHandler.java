@@ -3,6 +3,7 @@ package com.mazaiting.zxing;
 import android.app.Activity;
 import android.content.Intent;
 import android.graphics.Bitmap;
+import android.graphics.Rect;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
@@ -11,7 +12,15 @@ import android.util.Log;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.Result;
 import com.mazaiting.zxing.camera.CameraManager;
+import com.mazaiting.zxing.camera.CameraOpener;
+import com.mazaiting.zxing.camera.FrameBufferPool;
+import com.mazaiting.zxing.util.DecodeBudget;
 import com.mazaiting.zxing.util.DecodeThread;
+import com.mazaiting.zxing.util.DecodeWorkerPool;
+import com.mazaiting.zxing.util.FormatScheduler;
+import com.mazaiting.zxing.util.FrameQualityGate;
+import com.mazaiting.zxing.util.HintEscalation;
+import com.mazaiting.zxing.util.SceneChangeDetector;
 import com.mazaiting.zxing.view.ViewfinderResultPointCallback;
 
 import java.util.Vector;
@@ -24,8 +33,13 @@ public final class CaptureActivityHandler extends Handler {
   private static final String TAG = CaptureActivityHandler.class.getSimpleName();
 
   private final CaptureActivity activity;
-  private final DecodeThread decodeThread;
+  //测光区域跟随跟踪区域更新的间隔
+  private static final long METERING_INTERVAL_MILLIS = 500L;
+
+  private final DecodeWorkerPool decodeWorkerPool;
   private State state;
+  //已接受结果的帧序号, 更早帧的结果将被丢弃
+  private int acceptedFrame = -1;
 
   //枚举类 关于状态
   private enum State {
@@ -37,10 +51,16 @@ public final class CaptureActivityHandler extends Handler {
   public CaptureActivityHandler(CaptureActivity activity, Vector<BarcodeFormat> decodeFormats,
       String characterSet) {
     this.activity = activity;
-    decodeThread = new DecodeThread(activity, decodeFormats, characterSet,
-        new ViewfinderResultPointCallback(activity.getViewfinderView()));
-    decodeThread.start();
+    decodeWorkerPool = new DecodeWorkerPool(activity, decodeFormats, characterSet,
+        new ViewfinderResultPointCallback(activity.getViewfinderView()),
+        activity.getDecodeMetrics(), DecodeWorkerPool.DEFAULT_WORKER_COUNT);
+    decodeWorkerPool.start();
     state = State.SUCCESS;
+    // Every worker can hold a frame, one more waits in the scheduler while the camera fills
+    // the next one.
+    CameraManager.get().setPreviewBufferCount(Math.max(FrameBufferPool.DEFAULT_BUFFER_COUNT,
+        decodeWorkerPool.getWorkerCount() + 2));
+    CameraManager.get().setPreviewFrameListener(decodeWorkerPool.getFrameScheduler());
     // Start ourselves capturing previews and decoding.
     CameraManager.get().startPreview();
     restartPreviewAndDecode();
@@ -51,31 +71,64 @@ public final class CaptureActivityHandler extends Handler {
   public void handleMessage(Message message) {
     if (message.what == R.id.zxing_auto_focus) {
       //Log.d(TAG, "Got auto-focus message");
-      // When one auto focus pass finishes, start another. This is the closest thing to
-      // continuous AF. It does seem to hunt a bit, but I'm not sure what else to do.
+      // When one auto focus pass finishes, start another, on cameras without a continuous
+      // focus mode. Those which have one refocus by themselves and never get here.
       if (state == State.PREVIEW) {
         CameraManager.get().requestAutoFocus(this, R.id.zxing_auto_focus);
       }
     
+    } else if (message.what == R.id.zxing_update_metering) {
+      // Follow a tracked barcode with exposure and focus, and go back to the whole framing rect
+      // once the track is lost.
+      if (state == State.PREVIEW) {
+        updateMeteringRegion();
+        sendEmptyMessageDelayed(R.id.zxing_update_metering, METERING_INTERVAL_MILLIS);
+      }
+
     } else if (message.what == R.id.zxing_restart_preview) {
       Log.d(TAG, "Got restart preview message");
       restartPreviewAndDecode();
     
     } else if (message.what == R.id.zxing_decode_succeeded) {
       Log.d(TAG, "Got decode succeeded message");
-      state = State.SUCCESS;
-      Bundle bundle = message.getData();
+      if (state == State.PREVIEW && activity.isContinuousScan()) {
+        // Keep the camera and the workers running; repeats were filtered out by the workers.
+        Bundle bundle = message.getData();
+        Bitmap barcode = bundle == null ? null :
+                (Bitmap) bundle.getParcelable(DecodeThread.BARCODE_BITMAP);
+        activity.handleDecode((Result) message.obj, barcode);
+      } else if (state != State.PREVIEW || message.arg1 <= acceptedFrame) {
+        // Another worker already won, or this frame is older than the accepted one.
+        Log.d(TAG, "Dropping result of frame " + message.arg1);
+      } else {
+        acceptedFrame = message.arg1;
+        state = State.SUCCESS;
+        decodeWorkerPool.getFrameScheduler().pause();
+        Bundle bundle = message.getData();
     
-      //***********************************************************************
-      Bitmap barcode = bundle == null ? null :
-              (Bitmap) bundle.getParcelable(DecodeThread.BARCODE_BITMAP);
+        //***********************************************************************
+        Bitmap barcode = bundle == null ? null :
+                (Bitmap) bundle.getParcelable(DecodeThread.BARCODE_BITMAP);
     
-      activity.handleDecode((Result) message.obj, barcode);
-      //***********************************************************************
+        activity.handleDecode((Result) message.obj, barcode);
+        //***********************************************************************
+      }
     
-    } else if (message.what == R.id.zxing_decode_failed) {// We're decoding as fast as possible, so when one decode fails, start another.
-      state = State.PREVIEW;
-      CameraManager.get().requestPreviewFrame(decodeThread.getHandler(), R.id.zxing_decode);
+    } else if (message.what == R.id.zxing_decode_multiple_succeeded) {
+      Log.d(TAG, "Got decode multiple succeeded message");
+      Bundle bundle = message.getData();
+      Bitmap barcode = bundle == null ? null :
+              (Bitmap) bundle.getParcelable(DecodeThread.BARCODE_BITMAP);
+      if (state == State.PREVIEW && activity.isContinuousScan()) {
+        activity.handleMultipleDecode((Result[]) message.obj, barcode);
+      } else if (state != State.PREVIEW || message.arg1 <= acceptedFrame) {
+        Log.d(TAG, "Dropping results of frame " + message.arg1);
+      } else {
+        acceptedFrame = message.arg1;
+        state = State.SUCCESS;
+        decodeWorkerPool.getFrameScheduler().pause();
+        activity.handleMultipleDecode((Result[]) message.obj, barcode);
+      }
     
       //返回扫描结果通知前一个activity
     } else if (message.what == R.id.zxing_return_scan_result) {
@@ -95,27 +148,108 @@ public final class CaptureActivityHandler extends Handler {
 
   public void quitSynchronously() {
     state = State.DONE;
+    CameraManager.get().setPreviewFrameListener(null);
     CameraManager.get().stopPreview();
-    Message quit = Message.obtain(decodeThread.getHandler(), R.id.zxing_quit);
-    quit.sendToTarget();
-    try {
-      decodeThread.join();
-    } catch (InterruptedException e) {
-      // continue
+    decodeWorkerPool.quitSynchronously();
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, getStatistics());
     }
 
     // Be absolutely sure we don't send any queued up messages
     removeMessages(R.id.zxing_decode_succeeded);
+    removeMessages(R.id.zxing_decode_multiple_succeeded);
     removeMessages(R.id.zxing_decode_failed);
+    removeMessages(R.id.zxing_update_metering);
+  }
+
+  /**
+   * @return What the decode pipeline counted during this scan, one line per part, for the debug
+   *         log.
+   */
+  private String getStatistics() {
+    CameraManager cameraManager = CameraManager.get();
+    CameraOpener cameraOpener = activity.getCameraOpener();
+    StringBuilder builder = new StringBuilder(512);
+    builder.append("Format statistics: ").append(getFormatScheduler().getStatistics())
+        .append("\nScan metrics: ").append(activity.getScanMetrics())
+        .append("\nHint escalation: ").append(getHintEscalation())
+        .append("\nFrame quality gate: ").append(getFrameQualityGate())
+        .append("\nScene change detector: ").append(getSceneChangeDetector())
+        .append("\nDecode budget: ").append(getDecodeBudget())
+        .append("\nFocus mode ").append(cameraManager.getFocusController().getFocusMode())
+        .append(", ").append(decodeWorkerPool.getFrameScheduler().getFocusMovingFrameCount())
+        .append(" frames skipped while focusing")
+        .append("\nCamera opened after ").append(cameraOpener.getOpenMillis())
+        .append(" ms, surface joined after ").append(cameraOpener.getSurfaceJoinMillis())
+        .append(" ms, first preview frame after ")
+        .append(cameraOpener.getTimeToFirstFrameMillis()).append(" ms")
+        .append("\nMetering area ").append(cameraManager.getMeteringController().getArea())
+        .append(", ").append(cameraManager.getMeteringController().getUpdateCount())
+        .append(" updates");
+    return builder.toString();
+  }
+
+  /**
+   * @return The scheduler which orders the barcode formats; its statistics show which formats
+   *         are being found and what each one costs.
+   */
+  public FormatScheduler getFormatScheduler() {
+    return decodeWorkerPool.getFormatScheduler();
+  }
+
+  /**
+   * @return The policy bringing in TRY_HARDER, inverted and alternate binarizer decodes after
+   *         repeated misses; its counters show how often each profile was tried and succeeded.
+   */
+  public HintEscalation getHintEscalation() {
+    return decodeWorkerPool.getHintEscalation();
+  }
+
+  /**
+   * @return The gate skipping blurred and flat frames; its counts show how many frames it saved
+   *         a decode.
+   */
+  public FrameQualityGate getFrameQualityGate() {
+    return decodeWorkerPool.getFrameQualityGate();
+  }
+
+  /**
+   * @return The detector skipping frames which show the scene of the last failed one.
+   */
+  public SceneChangeDetector getSceneChangeDetector() {
+    return decodeWorkerPool.getSceneChangeDetector();
+  }
+
+  /**
+   * @return The time each frame may take; its counts show how many frames were abandoned.
+   */
+  public DecodeBudget getDecodeBudget() {
+    return decodeWorkerPool.getDecodeBudget();
   }
 
   private void restartPreviewAndDecode() {
     if (state == State.SUCCESS) {
       state = State.PREVIEW;
-      CameraManager.get().requestPreviewFrame(decodeThread.getHandler(), R.id.zxing_decode);
+      // The camera delivers continuously; the scheduler keeps the workers busy with the
+      // newest frame.
+      // A new barcode may be anywhere in the framing rect.
+      decodeWorkerPool.getRegionTracker().reset();
+      decodeWorkerPool.getHintEscalation().reset();
+      decodeWorkerPool.getFrameScheduler().resume();
       CameraManager.get().requestAutoFocus(this, R.id.zxing_auto_focus);
+      CameraManager.get().setMeteringRegion(null);
+      removeMessages(R.id.zxing_update_metering);
+      sendEmptyMessageDelayed(R.id.zxing_update_metering, METERING_INTERVAL_MILLIS);
       activity.drawViewfinder();
     }
   }
 
+  private void updateMeteringRegion() {
+    Rect framingRect = CameraManager.get().getFramingRectInPreview();
+    if (framingRect != null) {
+      CameraManager.get().setMeteringRegion(decodeWorkerPool.getRegionTracker()
+          .getRegion(framingRect.width(), framingRect.height()));
+    }
+  }
+
 }
@@ -0,0 +1,140 @@
+package com.mazaiting.zxing;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.mazaiting.zxing.camera.CameraManager;
+import com.mazaiting.zxing.camera.CameraOpener;
+import com.mazaiting.zxing.camera.PreviewFrame;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+import com.mazaiting.zxing.util.DecodeMetrics;
+import com.mazaiting.zxing.util.FormatScheduler;
+import com.mazaiting.zxing.util.FrameDecoder;
+
+/**
+ * Warms the scanner up ahead of time, for apps which start it again and again from the same
+ * screen, so that it shows decodable frames right after it starts instead of paying the cold
+ * path every time. {@link #warmUp(Context, long)}
+ * <ul>
+ * <li>decodes a generated QR code through the whole decode path on a background thread, which
+ * loads and initializes the zxing reader classes and the pipeline around them;</li>
+ * <li>opens the camera once on the camera thread of {@link CameraOpener}, which computes the
+ * preview size, format and orientation; {@link CameraManager} keeps them for every later
+ * open;</li>
+ * <li>optionally keeps the camera open for a while, so that the next scanner takes it over
+ * without opening it. It is released if no scanner does in time.</li>
+ * </ul>
+ *
+ * Call it on the main thread, e.g. when the screen which launches the scanner resumes. The
+ * camera part needs the camera permission and only logs a warning without it.
+ * 扫描预热
+ */
+public final class ScannerWarmup {
+
+  private static final String TAG = ScannerWarmup.class.getSimpleName();
+
+  /** How long {@link #warmUp(Context)} keeps the camera open for a scanner to take it over. */
+  public static final long DEFAULT_RELEASE_MILLIS = 5000L;
+
+  private static final String WARMUP_TEXT = "ScannerWarmup";
+  /** The generated code and the frame it is decoded from; small, so warming up is cheap. */
+  private static final int WARMUP_SIZE = 240;
+  /**
+   * Decodes of the code. One loads and initializes the classes of the decode path, which is what
+   * the first scan would wait for; a few decodes would not make the path JIT compiled anyway.
+   */
+  private static final int WARMUP_ROUNDS = 1;
+
+  private static boolean decoderWarming;
+  private static volatile boolean decoderWarm;
+
+  private ScannerWarmup() {
+  }
+
+  /**
+   * Warms the decoder up and keeps the camera open for {@link #DEFAULT_RELEASE_MILLIS}.
+   */
+  public static void warmUp(Context context) {
+    warmUp(context, DEFAULT_RELEASE_MILLIS);
+  }
+
+  /**
+   * @param context       Any context of the app.
+   * @param releaseMillis How long to keep the camera open for the next scanner; 0 closes it as
+   *                      soon as its configuration is computed.
+   */
+  public static void warmUp(Context context, long releaseMillis) {
+    CameraManager.init(context.getApplicationContext());
+    warmUpDecoder();
+    CameraOpener.preOpen(releaseMillis);
+  }
+
+  /**
+   * Only warms the decoder up, without touching the camera. Runs once per process.
+   */
+  public static synchronized void warmUpDecoder() {
+    if (decoderWarming) {
+      return;
+    }
+    decoderWarming = true;
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        long start = System.nanoTime();
+        boolean decoded = decodeWarmupCode();
+        decoderWarm = true;
+        Log.i(TAG, "Decoder warmed up in " + (System.nanoTime() - start) / 1000000L + " ms"
+            + (decoded ? "" : ", without decoding the warm-up code"));
+      }
+    }, TAG).start();
+  }
+
+  /**
+   * @return Whether the decoder has been warmed up.
+   */
+  public static boolean isDecoderWarm() {
+    return decoderWarm;
+  }
+
+  /**
+   * Decodes a generated QR code the way a preview frame is decoded, with all formats enabled.
+   *
+   * @return Whether the code was read back.
+   */
+  private static boolean decodeWarmupCode() {
+    byte[] frame = new byte[WARMUP_SIZE * WARMUP_SIZE];
+    try {
+      BitMatrix matrix = new QRCodeWriter().encode(WARMUP_TEXT, BarcodeFormat.QR_CODE,
+          WARMUP_SIZE, WARMUP_SIZE);
+      for (int y = 0; y < WARMUP_SIZE; y++) {
+        for (int x = 0; x < WARMUP_SIZE; x++) {
+          frame[y * WARMUP_SIZE + x] = matrix.get(x, y) ? 0 : (byte) 0xFF;
+        }
+      }
+    } catch (WriterException we) {
+      Log.w(TAG, "Could not generate the warm-up code", we);
+      return false;
+    }
+    FrameDecoder decoder = new FrameDecoder(FrameDecoder.createHints(null, null, null),
+        new FormatScheduler(), null, null, null, null, null, new DecodeMetrics());
+    boolean decoded = true;
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      PreviewFrame previewFrame = new PreviewFrame(frame, WARMUP_SIZE, WARMUP_SIZE, i,
+          System.nanoTime());
+      decoder.begin(previewFrame);
+      Result result = decoder.decode(new RotatedPlanarYUVLuminanceSource(frame, WARMUP_SIZE,
+          WARMUP_SIZE, 0, 0, WARMUP_SIZE, WARMUP_SIZE, 90, false));
+      decoder.finish(previewFrame, result != null);
+      decoded &= result != null && WARMUP_TEXT.equals(result.getText());
+    }
+    return decoded;
+  }
+
+}
@@ -10,11 +10,17 @@ final class AutoFocusCallback implements Camera.AutoFocusCallback {
   private static final String TAG = AutoFocusCallback.class.getSimpleName();
   //自动对焦延时
   private static final long AUTOFOCUS_INTERVAL_MS = 1500L;
+  //对焦控制, 对焦结束时镜头停止移动
+  private final FocusController focusController;
   //自动对焦Handler
   private Handler autoFocusHandler;
   //传入通知Handler的Message
   private int autoFocusMessage;
 
+  AutoFocusCallback(FocusController focusController) {
+    this.focusController = focusController;
+  }
+
   //传入自动对焦Handler和自动对焦信息Message
   void setHandler(Handler autoFocusHandler, int autoFocusMessage) {
     this.autoFocusHandler = autoFocusHandler;
@@ -23,6 +29,7 @@ final class AutoFocusCallback implements Camera.AutoFocusCallback {
 
   //自动对焦函数
   public void onAutoFocus(boolean success, Camera camera) {
+    focusController.setMoving(false);
     if (autoFocusHandler != null) {
       Message message = autoFocusHandler.obtainMessage(autoFocusMessage, success);
       autoFocusHandler.sendMessageDelayed(message, AUTOFOCUS_INTERVAL_MS);
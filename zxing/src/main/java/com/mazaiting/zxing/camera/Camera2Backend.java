@@ -0,0 +1,576 @@
+package com.mazaiting.zxing.camera;
+
+import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.CaptureResult;
+import android.hardware.camera2.TotalCaptureResult;
+import android.hardware.camera2.params.MeteringRectangle;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.util.Range;
+import android.util.Size;
+import android.util.SizeF;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link CameraBackend} on android.hardware.camera2. The back camera streams into the preview
+ * surface and into an {@link ImageReader} in YUV_420_888, and the Y plane of each image is handed
+ * to the decoder without a copy; the image is closed when the frame is released. The preview runs
+ * with continuous autofocus, the fastest frame rate range up to {@link #MAX_FPS}, and exposure
+ * and focus regions from {@link #setMeteringArea(Rect)} where the camera supports them.
+ *
+ * Camera callbacks and frames arrive on a thread of the backend's own. A reader, and the thread it
+ * delivers on, outlive {@link #close()} until the decoder has released the frames it holds; if the
+ * camera is opened again in the meantime they are retired and closed once their last frame comes
+ * back.
+ * Camera2相机后端
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public final class Camera2Backend implements CameraBackend, ImageReader.OnImageAvailableListener {
+
+  private static final String TAG = Camera2Backend.class.getSimpleName();
+
+  private static final int MAX_FPS = 30;
+  private static final long OPEN_TIMEOUT_MILLIS = 2500L;
+
+  private final Context context;
+  private final Map<ByteBuffer, Image> inFlight = new IdentityHashMap<>();
+  /** The reader each frame in flight was acquired from. */
+  private final Map<ByteBuffer, ImageReader> inFlightReaders = new IdentityHashMap<>();
+  /** Readers replaced while their frames were in flight, with their thread, if any, to quit. */
+  private final Map<ImageReader, HandlerThread> retiredReaders = new IdentityHashMap<>();
+  /** Follows the autofocus state of every preview frame. */
+  private final CameraCaptureSession.CaptureCallback focusCallback =
+      new CameraCaptureSession.CaptureCallback() {
+        @Override
+        public void onCaptureCompleted(CameraCaptureSession session, CaptureRequest request,
+                                       TotalCaptureResult result) {
+          Integer afState = result.get(CaptureResult.CONTROL_AF_STATE);
+          focusMoving = afState != null
+              && (afState == CaptureResult.CONTROL_AF_STATE_PASSIVE_SCAN
+              || afState == CaptureResult.CONTROL_AF_STATE_ACTIVE_SCAN);
+        }
+      };
+  private final Runnable acquireWaiting = new Runnable() {
+    @Override
+    public void run() {
+      onImageAvailable(imageReader);
+    }
+  };
+
+  private HandlerThread thread;
+  private Handler handler;
+  private CameraDevice device;
+  private CameraCaptureSession session;
+  private ImageReader imageReader;
+  private Surface previewSurface;
+
+  private Point previewSize;
+  private int sensorOrientation;
+  private Rect activeArray;
+  private boolean continuousFocus;
+  private Range<Integer> fpsRange;
+  private int maxAeRegions;
+  private int maxAfRegions;
+  private MeteringRectangle[] meteringRegions;
+
+  private FrameCallback frameCallback;
+  private boolean previewing;
+  private boolean framesWaiting;
+  private boolean closing;
+  /** Frames which may be in flight; the reader holds one more, for acquireLatestImage(). */
+  private int frameCount = FrameBufferPool.DEFAULT_BUFFER_COUNT;
+  /** Frames of the current reader in flight. */
+  private int readerFrames;
+  private volatile boolean focusMoving;
+
+  public Camera2Backend(Context context) {
+    this.context = context.getApplicationContext();
+  }
+
+  @SuppressLint("MissingPermission")
+  @Override
+  public void open(Point screenResolution, PreviewSizeSelector selector) throws IOException {
+    android.hardware.camera2.CameraManager manager =
+        (android.hardware.camera2.CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+    String cameraId;
+    try {
+      cameraId = findBackCamera(manager);
+      if (cameraId == null) {
+        throw new IOException("No camera");
+      }
+      readCharacteristics(manager.getCameraCharacteristics(cameraId), screenResolution,
+          selector);
+    } catch (CameraAccessException cae) {
+      throw new IOException(cae);
+    }
+
+    synchronized (this) {
+      retireReader(true);
+      thread = new HandlerThread(TAG);
+      thread.start();
+      handler = new Handler(thread.getLooper());
+      closing = false;
+    }
+
+    final CountDownLatch opened = new CountDownLatch(1);
+    try {
+      manager.openCamera(cameraId, new CameraDevice.StateCallback() {
+        @Override
+        public void onOpened(CameraDevice camera) {
+          synchronized (Camera2Backend.this) {
+            if (closing) {
+              // Opened after open() gave up waiting.
+              camera.close();
+            } else {
+              device = camera;
+            }
+          }
+          opened.countDown();
+        }
+
+        @Override
+        public void onDisconnected(CameraDevice camera) {
+          Log.w(TAG, "Camera " + camera.getId() + " disconnected");
+          onLost(camera);
+        }
+
+        @Override
+        public void onError(CameraDevice camera, int error) {
+          Log.w(TAG, "Camera " + camera.getId() + " failed: " + error);
+          onLost(camera);
+        }
+
+        private void onLost(CameraDevice camera) {
+          synchronized (Camera2Backend.this) {
+            if (device == camera) {
+              device = null;
+              session = null;
+            }
+          }
+          camera.close();
+          opened.countDown();
+        }
+      }, handler);
+      if (!opened.await(OPEN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        Log.w(TAG, "Camera " + cameraId + " did not open in time");
+      }
+    } catch (CameraAccessException | InterruptedException | SecurityException e) {
+      close();
+      throw new IOException(e);
+    }
+    synchronized (this) {
+      if (device == null) {
+        close();
+        throw new IOException("Camera " + cameraId + " failed to open");
+      }
+    }
+
+    synchronized (this) {
+      imageReader = newReader();
+    }
+    Log.i(TAG, "Opened camera " + cameraId + ": " + previewSize + " at " + fpsRange
+        + (continuousFocus ? ", continuous focus" : ""));
+  }
+
+  private static String findBackCamera(android.hardware.camera2.CameraManager manager)
+      throws CameraAccessException {
+    String[] cameraIds = manager.getCameraIdList();
+    for (String cameraId : cameraIds) {
+      Integer facing = manager.getCameraCharacteristics(cameraId)
+          .get(CameraCharacteristics.LENS_FACING);
+      if (facing != null && facing == CameraCharacteristics.LENS_FACING_BACK) {
+        return cameraId;
+      }
+    }
+    Log.i(TAG, "No camera facing back; using the first one");
+    return cameraIds.length == 0 ? null : cameraIds[0];
+  }
+
+  private void readCharacteristics(CameraCharacteristics characteristics, Point screenResolution,
+                                   PreviewSizeSelector selector) throws IOException {
+    StreamConfigurationMap map =
+        characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+    if (map == null) {
+      throw new IOException("Camera has no stream configurations");
+    }
+    float viewAngle = getViewAngle(characteristics);
+    previewSize = selector.select(getPreviewSizes(map), screenResolution, viewAngle);
+    if (previewSize == null) {
+      throw new IOException("Camera has no YUV_420_888 preview size");
+    }
+
+    Integer orientation = characteristics.get(CameraCharacteristics.SENSOR_ORIENTATION);
+    sensorOrientation = orientation == null ? 90 : orientation;
+    activeArray = characteristics.get(CameraCharacteristics.SENSOR_INFO_ACTIVE_ARRAY_SIZE);
+
+    continuousFocus = false;
+    int[] afModes = characteristics.get(CameraCharacteristics.CONTROL_AF_AVAILABLE_MODES);
+    if (afModes != null) {
+      for (int afMode : afModes) {
+        continuousFocus |= afMode == CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE;
+      }
+    }
+
+    // The fastest range up to MAX_FPS, and of those the one which lets exposure drop the least.
+    fpsRange = null;
+    Range<Integer>[] fpsRanges =
+        characteristics.get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES);
+    if (fpsRanges != null) {
+      for (Range<Integer> range : fpsRanges) {
+        if (range.getUpper() > MAX_FPS) {
+          continue;
+        }
+        if (fpsRange == null || range.getUpper() > fpsRange.getUpper()
+            || range.getUpper().equals(fpsRange.getUpper())
+            && range.getLower() > fpsRange.getLower()) {
+          fpsRange = range;
+        }
+      }
+    }
+
+    Integer aeRegions = characteristics.get(CameraCharacteristics.CONTROL_MAX_REGIONS_AE);
+    Integer afRegions = characteristics.get(CameraCharacteristics.CONTROL_MAX_REGIONS_AF);
+    maxAeRegions = aeRegions == null ? 0 : aeRegions;
+    maxAfRegions = afRegions == null ? 0 : afRegions;
+  }
+
+  /**
+   * @return The sizes both the reader and the preview surface can have.
+   */
+  private static List<Point> getPreviewSizes(StreamConfigurationMap map) {
+    List<Point> sizes = new ArrayList<>();
+    Size[] yuvSizes = map.getOutputSizes(ImageFormat.YUV_420_888);
+    Size[] surfaceSizes = map.getOutputSizes(SurfaceHolder.class);
+    if (yuvSizes == null || surfaceSizes == null) {
+      return sizes;
+    }
+    for (Size size : yuvSizes) {
+      if (Arrays.asList(surfaceSizes).contains(size)) {
+        sizes.add(new Point(size.getWidth(), size.getHeight()));
+      }
+    }
+    return sizes;
+  }
+
+  /**
+   * @return The view angle along the long side of the sensor, in degrees, or 0 if unknown.
+   */
+  private static float getViewAngle(CameraCharacteristics characteristics) {
+    SizeF sensorSize = characteristics.get(CameraCharacteristics.SENSOR_INFO_PHYSICAL_SIZE);
+    float[] focalLengths =
+        characteristics.get(CameraCharacteristics.LENS_INFO_AVAILABLE_FOCAL_LENGTHS);
+    if (sensorSize == null || focalLengths == null || focalLengths.length == 0) {
+      return 0;
+    }
+    float sensorWidth = Math.max(sensorSize.getWidth(), sensorSize.getHeight());
+    return (float) Math.toDegrees(2.0 * Math.atan(sensorWidth / (2.0 * focalLengths[0])));
+  }
+
+  @Override
+  public Point getPreviewSize() {
+    return previewSize;
+  }
+
+  @Override
+  public int getDisplayOrientation() {
+    // The activity is in portrait, the natural orientation of a phone.
+    return sensorOrientation;
+  }
+
+  @Override
+  public synchronized void setFrameCallback(FrameCallback callback) {
+    frameCallback = callback;
+  }
+
+  @Override
+  public synchronized void setFrameCount(int frameCount) {
+    if (frameCount < 1) {
+      throw new IllegalArgumentException("Frame count must be at least 1: " + frameCount);
+    }
+    this.frameCount = frameCount;
+  }
+
+  @Override
+  public boolean isFocusMoving() {
+    return focusMoving;
+  }
+
+  /**
+   * Maps the rectangle from frame coordinates to the sensor's active array, which the frame
+   * covers centered and scaled to its aspect ratio.
+   */
+  @Override
+  public synchronized void setMeteringArea(Rect area) {
+    if (area == null || activeArray == null || maxAeRegions == 0 && maxAfRegions == 0) {
+      meteringRegions = null;
+    } else {
+      float scale = Math.min((float) activeArray.width() / previewSize.x,
+          (float) activeArray.height() / previewSize.y);
+      int offsetX = (int) (activeArray.width() - previewSize.x * scale) / 2;
+      int offsetY = (int) (activeArray.height() - previewSize.y * scale) / 2;
+      Rect sensorArea = new Rect((int) (area.left * scale) + offsetX,
+          (int) (area.top * scale) + offsetY, (int) (area.right * scale) + offsetX,
+          (int) (area.bottom * scale) + offsetY);
+      meteringRegions = new MeteringRectangle[] {
+          new MeteringRectangle(sensorArea, MeteringRectangle.METERING_WEIGHT_MAX)
+      };
+    }
+    if (session != null && device != null) {
+      setRepeatingRequest(session);
+    }
+  }
+
+  @Override
+  public synchronized void setPreviewDisplay(SurfaceHolder holder) {
+    // The camera fills the surface at its own size; the view scales it like the Camera1 preview.
+    holder.setFixedSize(previewSize.x, previewSize.y);
+    previewSurface = holder.getSurface();
+  }
+
+  @Override
+  public synchronized void startPreview() {
+    if (device == null || previewSurface == null || previewing) {
+      return;
+    }
+    if (imageReader.getMaxImages() != frameCount + 1) {
+      // Frames of the old reader may still be in flight; it is closed once they come back.
+      retireReader(false);
+      imageReader = newReader();
+    }
+    previewing = true;
+    try {
+      device.createCaptureSession(Arrays.asList(previewSurface, imageReader.getSurface()),
+          new CameraCaptureSession.StateCallback() {
+            @Override
+            public void onConfigured(CameraCaptureSession configured) {
+              synchronized (Camera2Backend.this) {
+                if (!previewing || device == null) {
+                  configured.close();
+                  return;
+                }
+                session = configured;
+                setRepeatingRequest(configured);
+              }
+            }
+
+            @Override
+            public void onConfigureFailed(CameraCaptureSession failed) {
+              Log.w(TAG, "Camera rejected the preview session");
+            }
+          }, handler);
+    } catch (CameraAccessException | IllegalStateException e) {
+      Log.w(TAG, "Could not start the preview", e);
+      previewing = false;
+    }
+  }
+
+  private void setRepeatingRequest(CameraCaptureSession target) {
+    try {
+      CaptureRequest.Builder builder = device.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+      builder.addTarget(previewSurface);
+      builder.addTarget(imageReader.getSurface());
+      builder.set(CaptureRequest.CONTROL_MODE, CaptureRequest.CONTROL_MODE_AUTO);
+      if (continuousFocus) {
+        builder.set(CaptureRequest.CONTROL_AF_MODE,
+            CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+      }
+      if (fpsRange != null) {
+        builder.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, fpsRange);
+      }
+      if (meteringRegions != null) {
+        if (maxAeRegions > 0) {
+          builder.set(CaptureRequest.CONTROL_AE_REGIONS, meteringRegions);
+        }
+        if (maxAfRegions > 0) {
+          builder.set(CaptureRequest.CONTROL_AF_REGIONS, meteringRegions);
+        }
+      }
+      target.setRepeatingRequest(builder.build(), focusCallback, handler);
+    } catch (CameraAccessException | IllegalStateException e) {
+      Log.w(TAG, "Could not set the preview request", e);
+    }
+  }
+
+  @Override
+  public synchronized void stopPreview() {
+    previewing = false;
+    if (session != null) {
+      session.close();
+      session = null;
+    }
+  }
+
+  @Override
+  public void onImageAvailable(ImageReader reader) {
+    ByteBuffer yPlane;
+    Image.Plane plane;
+    Image image;
+    FrameCallback callback;
+    synchronized (this) {
+      if (reader == null || reader != imageReader || closing) {
+        return;
+      }
+      // acquireLatestImage() needs a spare image; take the frame once the decoder gives one back.
+      if (readerFrames >= reader.getMaxImages() - 1) {
+        framesWaiting = true;
+        return;
+      }
+      framesWaiting = false;
+      try {
+        image = reader.acquireLatestImage();
+      } catch (IllegalStateException ise) {
+        framesWaiting = true;
+        return;
+      }
+      if (image == null) {
+        return;
+      }
+      plane = image.getPlanes()[0];
+      yPlane = plane.getBuffer();
+      inFlight.put(yPlane, image);
+      inFlightReaders.put(yPlane, reader);
+      readerFrames++;
+      callback = previewing ? frameCallback : null;
+    }
+    if (callback == null) {
+      releaseFrame(yPlane);
+      return;
+    }
+    callback.onFrame(yPlane, plane.getRowStride(), plane.getPixelStride(), image.getWidth(),
+        image.getHeight());
+  }
+
+  @Override
+  public void releaseFrame(ByteBuffer yPlane) {
+    synchronized (this) {
+      Image image = inFlight.remove(yPlane);
+      if (image == null) {
+        return;
+      }
+      ImageReader reader = inFlightReaders.remove(yPlane);
+      image.close();
+      if (reader != imageReader) {
+        closeRetiredReader(reader);
+        return;
+      }
+      readerFrames--;
+      if (closing) {
+        if (readerFrames == 0) {
+          closeReader();
+        }
+        return;
+      }
+      if (!framesWaiting || handler == null) {
+        return;
+      }
+    }
+    handler.post(acquireWaiting);
+  }
+
+  /**
+   * Closes the camera at once, and the reader as soon as the decoder has released its frames.
+   */
+  @Override
+  public synchronized void close() {
+    previewing = false;
+    closing = true;
+    previewSurface = null;
+    if (session != null) {
+      session.close();
+      session = null;
+    }
+    if (device != null) {
+      device.close();
+      device = null;
+    }
+    if (readerFrames == 0) {
+      closeReader();
+    }
+  }
+
+  /**
+   * @return A reader for {@link #frameCount} frames in flight, delivering on the thread.
+   */
+  private ImageReader newReader() {
+    ImageReader reader = ImageReader.newInstance(previewSize.x, previewSize.y,
+        ImageFormat.YUV_420_888, frameCount + 1);
+    reader.setOnImageAvailableListener(this, handler);
+    return reader;
+  }
+
+  /**
+   * Sets the reader aside to be closed once none of its frames is in flight.
+   *
+   * @param withThread Whether its thread goes with it, rather than delivering for the next
+   *                   reader.
+   */
+  private void retireReader(boolean withThread) {
+    if (imageReader != null) {
+      ImageReader reader = imageReader;
+      reader.setOnImageAvailableListener(null, null);
+      retiredReaders.put(reader, withThread ? thread : null);
+      imageReader = null;
+      readerFrames = 0;
+      closeRetiredReader(reader);
+    } else if (withThread && thread != null) {
+      thread.quitSafely();
+    }
+    if (withThread) {
+      thread = null;
+      handler = null;
+    }
+  }
+
+  /**
+   * Closes a retired reader, and its thread, once none of its frames is in flight any more.
+   */
+  private void closeRetiredReader(ImageReader reader) {
+    if (reader == null || inFlightReaders.containsValue(reader)) {
+      return;
+    }
+    HandlerThread retiredThread = retiredReaders.remove(reader);
+    reader.close();
+    if (retiredThread != null) {
+      retiredThread.quitSafely();
+    }
+  }
+
+  private void closeReader() {
+    if (imageReader != null) {
+      imageReader.close();
+      imageReader = null;
+    }
+    if (thread != null) {
+      thread.quitSafely();
+      thread = null;
+      handler = null;
+    }
+  }
+
+}
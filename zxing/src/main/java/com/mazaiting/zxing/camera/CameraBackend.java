@@ -0,0 +1,100 @@
+package com.mazaiting.zxing.camera;
+
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A camera which delivers preview frames in place of android.hardware.Camera, see
+ * {@link CameraManager#setCameraBackend(CameraBackend)}. Frames are the Y planes of YUV_420_888
+ * images, handed to the {@link FrameCallback} in place; a frame belongs to the decoder until it
+ * is handed back with {@link #releaseFrame(ByteBuffer)}, and the backend keeps only a few frames
+ * in flight, like the preview buffers of android.hardware.Camera.
+ * 相机后端
+ */
+public interface CameraBackend {
+
+  /**
+   * Receives every frame the backend delivers while the preview runs.
+   */
+  interface FrameCallback {
+
+    /**
+     * @param yPlane      The Y plane of the frame, valid until it is released.
+     * @param rowStride   The distance in bytes between the starts of two rows.
+     * @param pixelStride The distance in bytes between two pixels of a row.
+     * @param width       The width of the frame.
+     * @param height      The height of the frame.
+     */
+    void onFrame(ByteBuffer yPlane, int rowStride, int pixelStride, int width, int height);
+  }
+
+  /**
+   * Opens the camera and picks its preview size. May block, and may be called on any thread.
+   *
+   * @param screenResolution The screen size in landscape, whose aspect ratio the preview size
+   *                         should keep.
+   * @param selector         Picks the preview size from the sizes the camera supports.
+   * @throws IOException Indicates the camera failed to open.
+   */
+  void open(Point screenResolution, PreviewSizeSelector selector) throws IOException;
+
+  /**
+   * Sets the surface the preview is drawn into. Called on the main thread once the camera is
+   * open and the surface exists, before the preview starts.
+   */
+  void setPreviewDisplay(SurfaceHolder holder);
+
+  /**
+   * @return The size of the frames, as delivered by the camera; valid once opened.
+   */
+  Point getPreviewSize();
+
+  /**
+   * @return Clockwise rotation, in degrees, between the frames and what is shown on screen.
+   */
+  int getDisplayOrientation();
+
+  void setFrameCallback(FrameCallback callback);
+
+  /**
+   * Sets how many frames may be in flight at once, like the preview buffers of
+   * android.hardware.Camera. Takes effect the next time the preview starts.
+   *
+   * @param frameCount The number of frames, at least 1.
+   */
+  void setFrameCount(int frameCount);
+
+  /**
+   * @return Whether the lens is moving to refocus, so that frames delivered now are blurred.
+   */
+  boolean isFocusMoving();
+
+  /**
+   * Meters exposure, and focuses where the camera can, on the given rectangle.
+   *
+   * @param area A rectangle in frame coordinates, or null for the whole frame.
+   */
+  void setMeteringArea(Rect area);
+
+  void startPreview();
+
+  /**
+   * Stops delivering frames. Frames still in flight stay valid until they are released.
+   */
+  void stopPreview();
+
+  /**
+   * Hands a frame back so the camera can fill it again. The plane must not be read afterwards.
+   */
+  void releaseFrame(ByteBuffer yPlane);
+
+  /**
+   * Closes the camera. Frames still in flight stay valid until they are released.
+   */
+  void close();
+
+}
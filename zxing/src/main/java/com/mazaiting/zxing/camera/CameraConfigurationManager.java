@@ -2,6 +2,7 @@ package com.mazaiting.zxing.camera;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.graphics.ImageFormat;
 import android.graphics.Point;
 import android.hardware.Camera;
 import android.os.Build;
@@ -10,9 +11,6 @@ import android.view.Display;
 import android.view.WindowManager;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
 //camera的configuration 管理类
@@ -20,22 +18,26 @@ final class CameraConfigurationManager {
   //得到类的简写名称
   private static final String TAG = CameraConfigurationManager.class.getSimpleName();
 
-  private static final int MIN_PREVIEW_PIXELS = 480 * 320;
-  private static final double MAX_ASPECT_DISTORTION = 0.15;
   //变焦
   private static final int TEN_DESIRED_ZOOM = 27;
   //锐利度
   private static final int DESIRED_SHARPNESS = 30;
+  //预览显示方向, 竖屏
+  private static final int DISPLAY_ORIENTATION = 90;
   //正则表达
   private static final Pattern COMMA_PATTERN = Pattern.compile(",");
 
   private final Context context;
+  //按条码模块密度选择预览尺寸
+  private final PreviewSizeSelector previewSizeSelector = new PreviewSizeSelector();
   //屏幕分辨率
   private Point screenResolution;
   //摄像机分辨率
   private Point cameraResolution;
   private int previewFormat;
   private String previewFormatString;
+  //预览帧到屏幕的旋转角度
+  private int displayOrientation = DISPLAY_ORIENTATION;
 
   CameraConfigurationManager(Context context) {
     this.context = context;
@@ -51,13 +53,8 @@ final class CameraConfigurationManager {
     previewFormat = parameters.getPreviewFormat();
     previewFormatString = parameters.get("preview-format");
     Log.d(TAG, "Default preview format: " + previewFormat + '/' + previewFormatString);
-    WindowManager manager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
-    //获取屏幕display 宽高
-    Display display = manager.getDefaultDisplay();
-    screenResolution = new Point();
-    screenResolution = getDisplaySize(display);
-
-    Log.d(TAG, "Screen resolution: " + screenResolution);
+    displayOrientation = DISPLAY_ORIENTATION;
+    Point screenResolutionForCamera = initScreenResolution();
 
     /*
     Camera.Parameters parameters = camera.getParameters();
@@ -70,6 +67,25 @@ final class CameraConfigurationManager {
     Log.i(TAG, "Screen resolution: " + screenResolution);*/
 
 
+    //cameraResolution = getCameraResolution(parameters, screenResolution);
+
+    cameraResolution = findBestPreviewSize(parameters, screenResolutionForCamera);
+
+    Log.d(TAG, "Camera resolution: " + screenResolution);
+  }
+
+  /**
+   * Reads the screen size.
+   *
+   * @return The screen size in landscape, which is how preview sizes are given.
+   */
+  Point initScreenResolution() {
+    WindowManager manager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+    //获取屏幕display 宽高
+    Display display = manager.getDefaultDisplay();
+    screenResolution = getDisplaySize(display);
+
+    Log.d(TAG, "Screen resolution: " + screenResolution);
 
     Point screenResolutionForCamera = new Point();
     screenResolutionForCamera.x = screenResolution.x;
@@ -79,15 +95,20 @@ final class CameraConfigurationManager {
       screenResolutionForCamera.x = screenResolution.y;
       screenResolutionForCamera.y = screenResolution.x;
     }
+    return screenResolutionForCamera;
+  }
 
-
-    //cameraResolution = getCameraResolution(parameters, screenResolution);
-
-    cameraResolution = getCameraResolution(parameters, screenResolutionForCamera);
-
-    //cameraResolution = findBestPreviewSizeValues(parameters, screenResolutionForCamera);
-
-    Log.d(TAG, "Camera resolution: " + screenResolution);
+  /**
+   * Takes the preview size and orientation a {@link CameraBackend} was opened with, in place of
+   * {@link #initFromCameraParameters(Camera)}.
+   */
+  void initFromBackend(CameraBackend backend) {
+    cameraResolution = backend.getPreviewSize();
+    displayOrientation = backend.getDisplayOrientation();
+    previewFormat = ImageFormat.YUV_420_888;
+    previewFormatString = "yuv420_888";
+    Log.d(TAG, "Backend preview size: " + cameraResolution + ", orientation "
+        + displayOrientation);
   }
 
 
@@ -149,7 +170,18 @@ final class CameraConfigurationManager {
     }
 
     /** 设置相机预览为竖屏 */
-    camera.setDisplayOrientation(90);
+    camera.setDisplayOrientation(DISPLAY_ORIENTATION);
+  }
+
+  /**
+   * Clockwise rotation, in degrees, between the preview frames and what is shown on screen.
+   */
+  int getDisplayOrientation() {
+    return displayOrientation;
+  }
+
+  PreviewSizeSelector getPreviewSizeSelector() {
+    return previewSizeSelector;
   }
 
   Point getCameraResolution() {
@@ -168,6 +200,28 @@ final class CameraConfigurationManager {
     return previewFormatString;
   }
 
+  /**
+   * Picks the preview size with the {@link PreviewSizeSelector}, or by the screen size from the
+   * preview-size-values string on cameras which do not list their sizes.
+   */
+  private Point findBestPreviewSize(Camera.Parameters parameters, Point screenResolution) {
+    List<Camera.Size> supportedSizes = parameters.getSupportedPreviewSizes();
+    if (supportedSizes != null) {
+      List<Point> sizes = new ArrayList<>(supportedSizes.size());
+      for (Camera.Size size : supportedSizes) {
+        sizes.add(new Point(size.width, size.height));
+      }
+      float viewAngle = parameters.getHorizontalViewAngle();
+      Point best = previewSizeSelector.select(sizes, screenResolution, viewAngle);
+      if (best != null) {
+        Log.i(TAG, "Preview needs " + previewSizeSelector.getRequiredWidth(viewAngle)
+            + " px across at " + viewAngle + " degrees, using " + best);
+        return best;
+      }
+    }
+    return getCameraResolution(parameters, screenResolution);
+  }
+
   private static Point getCameraResolution(Camera.Parameters parameters, Point screenResolution) {
 
     String previewSizeValueString = parameters.get("preview-size-values");
@@ -336,97 +390,4 @@ final class CameraConfigurationManager {
 		return DESIRED_SHARPNESS;
 	}
 
-
-  /**
-   * 从相机支持的分辨率中计算出最适合的预览界面尺寸
-   *
-   * @param parameters
-   * @param screenResolution
-   * @return
-   */
-  private Point findBestPreviewSizeValues(Camera.Parameters parameters, Point screenResolution) {
-    List<Camera.Size> rawSupportedSizes = parameters.getSupportedPreviewSizes();
-    if (rawSupportedSizes == null) {
-      Log.w(TAG, "Device returned no supported preview sizes; using default");
-      Camera.Size defaultSize = parameters.getPreviewSize();
-      return new Point(defaultSize.width, defaultSize.height);
-    }
-
-    // Sort by size, descending
-    List<Camera.Size> supportedPreviewSizes = new ArrayList<Camera.Size>(rawSupportedSizes);
-    Collections.sort(supportedPreviewSizes, new Comparator<Camera.Size>() {
-      @Override
-      public int compare(Camera.Size a, Camera.Size b) {
-        int aPixels = a.height * a.width;
-        int bPixels = b.height * b.width;
-        if (bPixels < aPixels) {
-          return -1;
-        }
-        if (bPixels > aPixels) {
-          return 1;
-        }
-        return 0;
-      }
-    });
-
-    if (Log.isLoggable(TAG, Log.INFO)) {
-      StringBuilder previewSizesString = new StringBuilder();
-      for (Camera.Size supportedPreviewSize : supportedPreviewSizes) {
-        previewSizesString.append(supportedPreviewSize.width).append('x').append
-                (supportedPreviewSize.height).append(' ');
-      }
-      Log.i(TAG, "Supported preview sizes: " + previewSizesString);
-    }
-
-    double screenAspectRatio = (double) screenResolution.x / (double) screenResolution.y;
-
-    // Remove sizes that are unsuitable
-    Iterator<Camera.Size> it = supportedPreviewSizes.iterator();
-    while (it.hasNext()) {
-      Camera.Size supportedPreviewSize = it.next();
-      int realWidth = supportedPreviewSize.width;
-      int realHeight = supportedPreviewSize.height;
-      if (realWidth * realHeight < MIN_PREVIEW_PIXELS) {
-        it.remove();
-        continue;
-      }
-
-      boolean isCandidatePortrait = realWidth < realHeight;
-      int maybeFlippedWidth = isCandidatePortrait ? realHeight : realWidth;
-      int maybeFlippedHeight = isCandidatePortrait ? realWidth : realHeight;
-
-      double aspectRatio = (double) maybeFlippedWidth / (double) maybeFlippedHeight;
-      double distortion = Math.abs(aspectRatio - screenAspectRatio);
-      if (distortion > MAX_ASPECT_DISTORTION) {
-        it.remove();
-        continue;
-      }
-
-      if (maybeFlippedWidth == screenResolution.x && maybeFlippedHeight == screenResolution.y) {
-        Point exactPoint = new Point(realWidth, realHeight);
-        Log.i(TAG, "Found preview size exactly matching screen size: " + exactPoint);
-        return exactPoint;
-      }
-    }
-
-    // If no exact match, use largest preview size. This was not a great
-    // idea on older devices because
-    // of the additional computation needed. We're likely to get here on
-    // newer Android 4+ devices, where
-    // the CPU is much more powerful.
-    if (!supportedPreviewSizes.isEmpty()) {
-      Camera.Size largestPreview = supportedPreviewSizes.get(0);
-      Point largestSize = new Point(largestPreview.width, largestPreview.height);
-      Log.i(TAG, "Using largest suitable preview size: " + largestSize);
-      return largestSize;
-    }
-
-    // If there is nothing at all suitable, return current preview size
-    Camera.Size defaultPreview = parameters.getPreviewSize();
-    Point defaultSize = new Point(defaultPreview.width, defaultPreview.height);
-    Log.i(TAG, "No suitable preview sizes, using default: " + defaultSize);
-
-    return defaultSize;
-  }
-
 }
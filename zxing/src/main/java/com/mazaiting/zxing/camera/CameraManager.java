@@ -18,6 +18,7 @@ package com.mazaiting.zxing.camera;
 
 import android.content.Context;
 import android.graphics.PixelFormat;
+import android.graphics.ImageFormat;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.hardware.Camera;
@@ -27,8 +28,10 @@ import android.util.Log;
 import android.view.SurfaceHolder;
 
 import com.mazaiting.zxing.camera.open.OpenCameraInterface;
+import com.mazaiting.zxing.listener.PreviewFrameListener;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * This object wraps the Camera service object and expects to be the only one talking to it. The
@@ -64,15 +67,24 @@ public final class CameraManager {
 
   private final Context context;
   private final CameraConfigurationManager configManager;
+  /*
+   * camera, previewing and the framing rects are written on the CameraOpener thread as well as
+   * the main thread, and read on the decode threads; they are only touched while holding this.
+   * The camera is set aside under the lock before it is released, so whoever holds the lock
+   * never uses a released camera.
+   */
   //照相机
   private Camera camera;
+  /** Set once the camera is open and configured, possibly on another thread. 相机已打开 */
+  private volatile boolean open;
   private Rect framingRect;
   private Rect framingRectInPreview;
   private boolean initialized;
 
   //图像是否绘制布尔值
   private boolean previewing;
-  private final boolean useOneShotPreviewCallback;
+  /** Reusable buffers the camera fills with preview frames. 预览帧缓冲池 */
+  private final FrameBufferPool frameBufferPool;
   /**
    * Preview frames are delivered here, which we pass on to the registered handler.
    * 预览帧被传递到这里，我们传递给注册的处理程序
@@ -82,6 +94,14 @@ public final class CameraManager {
   private final PreviewCallback previewCallback;
   /** Autofocus callbacks arrive here, and are dispatched to the Handler which requested them. */
   private final AutoFocusCallback autoFocusCallback;
+  /** Picks the focus mode and tracks whether the lens is moving. 对焦控制 */
+  private final FocusController focusController;
+  /** Points focus and metering at the region being decoded. 测光与对焦区域 */
+  private final MeteringController meteringController;
+  /** Replaces android.hardware.Camera when set. 相机后端, 为空时使用Camera1 */
+  private CameraBackend backend;
+  /** Frames from the backend arrive here and are passed on to the frame listener. */
+  private final BackendFrameCallback backendFrameCallback = new BackendFrameCallback();
 
   /**
    * Initializes this static object with the Context of the calling Activity.
@@ -111,15 +131,45 @@ public final class CameraManager {
     this.context = context;
     this.configManager = new CameraConfigurationManager(context);
 
-    // Camera.setOneShotPreviewCallback() has a race condition in Cupcake, so we use the older
-    // Camera.setPreviewCallback() on 1.5 and earlier. For Donut and later, we need to use
-    // the more efficient one shot callback, as the older one can swamp the system and cause it
-    // to run out of memory. We can't use SDK_INT because it was introduced in the Donut SDK.
-    //useOneShotPreviewCallback = Integer.parseInt(Build.VERSION.SDK) > Build.VERSION_CODES.CUPCAKE;
-    useOneShotPreviewCallback = Integer.parseInt(Build.VERSION.SDK) > 3; // 3 = Cupcake
+    // Preview frames are delivered into a small ring of buffers through
+    // Camera.setPreviewCallbackWithBuffer(), so the camera does not allocate a new byte[] for
+    // every frame. Frames nobody asked for are handed straight back to the camera.
+    frameBufferPool = new FrameBufferPool();
+    previewCallback = new PreviewCallback(configManager, frameBufferPool);
+    focusController = new FocusController();
+    autoFocusCallback = new AutoFocusCallback(focusController);
+    meteringController = new MeteringController();
+  }
+
+  /**
+   * Uses the given backend instead of android.hardware.Camera from the next
+   * {@link #openDriver(SurfaceHolder)} on, for example a {@link Camera2Backend} on API 21 and up.
+   * Frames from a backend are only delivered to a {@link PreviewFrameListener}, not through
+   * {@link #requestPreviewFrame}, and it focuses on its own, so {@link #requestAutoFocus} does
+   * nothing. Call while the driver is closed.
+   *
+   * @param backend The backend, or null to go back to android.hardware.Camera.
+   */
+  public void setCameraBackend(CameraBackend backend) {
+    this.backend = backend;
+    // The preview size and orientation are taken again from whichever camera opens next.
+    initialized = false;
+    synchronized (this) {
+      framingRect = null;
+      framingRectInPreview = null;
+    }
+  }
+
+  public CameraBackend getCameraBackend() {
+    return backend;
+  }
 
-    previewCallback = new PreviewCallback(configManager, useOneShotPreviewCallback);
-    autoFocusCallback = new AutoFocusCallback();
+  /**
+   * @return The selector which picks the preview size from the smallest barcode to decode and
+   *         the distance it is held at. Configure it before the camera is first opened.
+   */
+  public PreviewSizeSelector getPreviewSizeSelector() {
+    return configManager.getPreviewSizeSelector();
   }
 
   /**
@@ -131,6 +181,22 @@ public final class CameraManager {
    *               指示这个camera打开失败
    */
   public void openDriver(SurfaceHolder holder) throws IOException {
+    openCamera();
+    setPreviewDisplay(holder);
+  }
+
+  /**
+   * The slow part of {@link #openDriver(SurfaceHolder)}: opens the camera driver and initializes
+   * the hardware parameters, without a surface to draw into yet. It may run on a background
+   * thread, see {@link CameraOpener}, as long as nothing else uses the camera meanwhile. A
+   * camera which is open already, e.g. pre-opened, is kept as it is.
+   *  在后台线程打开摄像头驱动和初始化硬件参数
+   * @throws IOException Indicates the camera driver failed to open.
+   */
+  public void openCamera() throws IOException {
+    if (open) {
+      return;
+    }
     /**
     if (camera == null) {
       camera = Camera.open();
@@ -155,7 +221,20 @@ public final class CameraManager {
       FlashlightManager.enableFlashlight();
     }*/
 
-    Camera theCamera = camera;
+    if (backend != null) {
+      backend.open(configManager.initScreenResolution(), configManager.getPreviewSizeSelector());
+      configManager.initFromBackend(backend);
+      backend.setFrameCallback(backendFrameCallback);
+      meteringController.configure(null);
+      open = true;
+      return;
+    }
+
+    // Opening and configuring take long; the lock is only held to hand the camera over.
+    Camera theCamera;
+    synchronized (this) {
+      theCamera = camera;
+    }
     if (theCamera == null) {
 
       if (requestedCameraId >= 0) {
@@ -167,9 +246,10 @@ public final class CameraManager {
       if (theCamera == null) {
         throw new IOException();
       }
-      camera = theCamera;
+      synchronized (this) {
+        camera = theCamera;
+      }
     }
-    theCamera.setPreviewDisplay(holder);
 
     if (!initialized) {
       initialized = true;
@@ -199,6 +279,31 @@ public final class CameraManager {
         }
       }
     }
+    focusController.configure(theCamera);
+    meteringController.configure(theCamera);
+    open = true;
+  }
+
+  /**
+   * Hands the opened camera the surface to draw preview frames into. Call on the main thread
+   * once the surface exists.
+   *  设置预览界面
+   * @param holder The surface object which the camera will draw preview frames into.
+   * @throws IOException Indicates the surface could not be used.
+   */
+  public synchronized void setPreviewDisplay(SurfaceHolder holder) throws IOException {
+    if (backend != null) {
+      backend.setPreviewDisplay(holder);
+    } else if (camera != null) {
+      camera.setPreviewDisplay(holder);
+    }
+  }
+
+  /**
+   * @return Whether the camera is open and configured.
+   */
+  public boolean isOpen() {
+    return open;
   }
 
   /**
@@ -206,10 +311,20 @@ public final class CameraManager {
    * Closes the camera driver if still in use.
    */
   public void closeDriver() {
-    if (camera != null) {
-      FlashlightManager.disableFlashlight();
-      camera.release();
+    open = false;
+    Camera theCamera;
+    synchronized (this) {
+      theCamera = camera;
       camera = null;
+      previewing = false;
+    }
+    if (backend != null) {
+      backend.close();
+    }
+    if (theCamera != null) {
+      frameBufferPool.detach();
+      FlashlightManager.disableFlashlight();
+      theCamera.release();
     }
   }
 
@@ -217,22 +332,36 @@ public final class CameraManager {
    * 通知camear硬件开始绘制图像在屏幕上
    * Asks the camera hardware to begin drawing preview frames to the screen.
    */
-  public void startPreview() {
-    if (camera != null && !previewing) {
+  public synchronized void startPreview() {
+    if (!previewing) {
+      previewCallback.resetFirstFrame();
+    }
+    if (backend != null && !previewing) {
+      backend.setFrameCount(frameBufferPool.getBufferCount());
+      backend.startPreview();
+      previewing = true;
+    } else if (camera != null && !previewing) {
+      camera.setPreviewCallbackWithBuffer(previewCallback);
+      frameBufferPool.attach(camera, getPreviewBufferSize());
       camera.startPreview();
       previewing = true;
     }
+    // Until a barcode is tracked, expose and focus for whatever is held in the framing rect.
+    setMeteringRegion(null);
   }
 
   /**
    * 通知camear停止绘制图像
    * Tells the camera to stop drawing preview frames.
    */
-  public void stopPreview() {
-    if (camera != null && previewing) {
-      if (!useOneShotPreviewCallback) {
-        camera.setPreviewCallback(null);
-      }
+  public synchronized void stopPreview() {
+    if (backend != null && previewing) {
+      backend.stopPreview();
+      previewCallback.setHandler(null, 0);
+      previewing = false;
+    } else if (camera != null && previewing) {
+      camera.setPreviewCallbackWithBuffer(null);
+      frameBufferPool.detach();
       camera.stopPreview();
       previewCallback.setHandler(null, 0);
       autoFocusCallback.setHandler(null, 0);
@@ -243,36 +372,160 @@ public final class CameraManager {
   /**
    * A single preview frame will be returned to the handler supplied. The data will arrive as byte[]
    * in the message.obj field, with width and height encoded as message.arg1 and message.arg2,
-   * respectively.
+   * respectively. The byte[] is one of the pooled preview buffers and must be handed back with
+   * {@link #releasePreviewFrame(byte[])} once it has been decoded.
    *
    * @param handler The handler to send the message to.
    * @param message The what field of the message to be sent.
    */
-  public void requestPreviewFrame(Handler handler, int message) {
+  public synchronized void requestPreviewFrame(Handler handler, int message) {
     if (camera != null && previewing) {
       previewCallback.setHandler(handler, message);
-      if (useOneShotPreviewCallback) {
-        camera.setOneShotPreviewCallback(previewCallback);
-      } else {
-        camera.setPreviewCallback(previewCallback);
-      }
     }
   }
 
+  /**
+   * Delivers every preview frame to the listener, instead of one frame per
+   * {@link #requestPreviewFrame} call, for as long as it is set.
+   *
+   * @param listener The listener, or null to go back to requested frames.
+   */
+  public void setPreviewFrameListener(PreviewFrameListener listener) {
+    previewCallback.setFrameListener(listener);
+  }
+
+  /**
+   * Returns a preview frame obtained through {@link #requestPreviewFrame} or a
+   * {@link PreviewFrameListener} to the buffer pool so the camera can fill it again. The data
+   * must not be read after this call.
+   *
+   * @param data The preview frame.
+   */
+  public void releasePreviewFrame(byte[] data) {
+    frameBufferPool.recycle(data);
+  }
+
+  /**
+   * Like {@link #releasePreviewFrame(byte[])}, for a frame from either the camera or the backend.
+   *
+   * @param frame The preview frame.
+   */
+  public void releasePreviewFrame(PreviewFrame frame) {
+    if (frame.getYPlane() == null) {
+      frameBufferPool.recycle(frame.getData());
+    } else if (backend != null) {
+      backend.releaseFrame(frame.getYPlane());
+    }
+  }
+
+  /**
+   * Sets how many preview buffers rotate between the camera and the decoder, or how many frames
+   * a backend keeps in flight. Takes effect the next time the preview is started.
+   *
+   * @param bufferCount The ring depth, at least 1.
+   */
+  public void setPreviewBufferCount(int bufferCount) {
+    frameBufferPool.setBufferCount(bufferCount);
+  }
+
+  /**
+   * @return The preview buffer pool, which counts delivered, dropped and recycled frames.
+   */
+  public FrameBufferPool getFrameBufferPool() {
+    return frameBufferPool;
+  }
+
+  /**
+   * Size in bytes of one preview frame in the negotiated preview size and format.
+   */
+  private int getPreviewBufferSize() {
+    Point cameraResolution = configManager.getCameraResolution();
+    int bitsPerPixel = ImageFormat.getBitsPerPixel(configManager.getPreviewFormat());
+    if (bitsPerPixel <= 0) {
+      // yuv420p and other formats the platform does not describe, 12 bits per pixel.
+      bitsPerPixel = ImageFormat.getBitsPerPixel(ImageFormat.NV21);
+    }
+    return cameraResolution.x * cameraResolution.y * bitsPerPixel / 8;
+  }
+
   /**
    * Asks the camera hardware to perform an autofocus.
    *  通知camera自动对焦
    * @param handler The Handler to notify when the autofocus completes.
    * @param message The message to deliver.
    */
-  public void requestAutoFocus(Handler handler, int message) {
-    if (camera != null && previewing) {
+  public synchronized void requestAutoFocus(Handler handler, int message) {
+    // In continuous focus modes the camera refocuses by itself; a triggered sweep would only
+    // blur the frames.
+    if (backend == null && camera != null && previewing && !focusController.isContinuous()) {
       autoFocusCallback.setHandler(handler, message);
       //Log.d(TAG, "Requesting auto-focus callback");
+      focusController.setMoving(true);
       camera.autoFocus(autoFocusCallback);
     }
   }
 
+  /**
+   * @return Whether the lens is moving, so that frames delivered now are blurred and not worth
+   *         decoding, see {@link FocusController}.
+   */
+  public boolean isFocusMoving() {
+    if (backend != null) {
+      focusController.setMoving(backend.isFocusMoving());
+    }
+    return focusController.isMoving();
+  }
+
+  /**
+   * @return The focus controller, which tells the focus mode in use.
+   */
+  public FocusController getFocusController() {
+    return focusController;
+  }
+
+  /**
+   * Meters exposure and focuses on part of the framing rect, for example where a barcode has
+   * been tracked to, instead of the whole scene. Only areas which moved noticeably reach the
+   * camera, so this can be called whenever the region may have changed.
+   *
+   * @param region A rectangle relative to {@link #getFramingRectInPreview()}, or null for the
+   *               whole framing rect.
+   */
+  public synchronized void setMeteringRegion(Rect region) {
+    if ((backend == null && camera == null) || getFramingRect() == null) {
+      return;
+    }
+    Rect framingRect = getFramingRectInPreview();
+    Rect rect = new Rect(framingRect);
+    if (region != null) {
+      rect.set(region);
+      rect.offset(framingRect.left, framingRect.top);
+    }
+    Point cameraResolution = configManager.getCameraResolution();
+    Rect frameArea = MeteringController.toFrame(rect, cameraResolution.x, cameraResolution.y,
+        configManager.getDisplayOrientation(), false);
+    if (backend != null) {
+      meteringController.apply(backend, frameArea, cameraResolution.x, cameraResolution.y);
+    } else {
+      meteringController.apply(camera, frameArea, cameraResolution.x, cameraResolution.y);
+    }
+  }
+
+  /**
+   * @return When the first preview frame since the preview last started arrived, in
+   *         {@link System#nanoTime()}, or 0 if none has yet.
+   */
+  public long getFirstFrameNanos() {
+    return previewCallback.getFirstFrameNanos();
+  }
+
+  /**
+   * @return The metering controller, which tells the focus and metering area in place.
+   */
+  public MeteringController getMeteringController() {
+    return meteringController;
+  }
+
   /**
    * Calculates the framing rect which the UI should draw to show the user where to place the
    * barcode. This target helps with alignment as well as forces the user to hold the device
@@ -280,10 +533,11 @@ public final class CameraManager {
    *
    * @return The rectangle to draw on screen in window coordinates.
    */
-  public Rect getFramingRect() {
+  public synchronized Rect getFramingRect() {
     Point screenResolution = configManager.getScreenResolution();
     if (framingRect == null) {
-      if (camera == null) {
+      // The camera may still be opening on another thread.
+      if (!open) {
         return null;
       }
       int width = screenResolution.x * 3 / 4;
@@ -310,7 +564,7 @@ public final class CameraManager {
    * Like {@link #getFramingRect} but coordinates are in terms of the preview frame,
    * not UI / screen.
    */
-  public Rect getFramingRectInPreview() {
+  public synchronized Rect getFramingRectInPreview() {
     if (framingRectInPreview == null) {
       Rect rect = new Rect(getFramingRect());
       Point cameraResolution = configManager.getCameraResolution();
@@ -363,6 +617,50 @@ public final class CameraManager {
    */
   public PlanarYUVLuminanceSource buildLuminanceSource(byte[] data, int width, int height) {
     Rect rect = getFramingRectInPreview();
+    checkPreviewFormat();
+    return new PlanarYUVLuminanceSource(data, width, height, rect.left, rect.top,
+        rect.width(), rect.height());
+  }
+
+  /**
+   * Like {@link #buildLuminanceSource} but the preview frame is presented in display orientation,
+   * so the framing rect in preview can be applied without rotating the frame first.
+   *
+   * @param data A preview frame, as delivered by the camera.
+   * @param width The width of the preview frame.
+   * @param height The height of the preview frame.
+   * @return A RotatedPlanarYUVLuminanceSource over the framing rect.
+   */
+  public RotatedPlanarYUVLuminanceSource buildRotatedLuminanceSource(byte[] data, int width,
+                                                                     int height) {
+    Rect rect = getFramingRectInPreview();
+    checkPreviewFormat();
+    return new RotatedPlanarYUVLuminanceSource(data, width, height, rect.left, rect.top,
+        rect.width(), rect.height(), configManager.getDisplayOrientation(), false);
+  }
+
+  /**
+   * Like {@link #buildRotatedLuminanceSource(byte[], int, int)}, for a frame from either the
+   * camera or the backend. The Y plane of a backend frame is read in place.
+   *
+   * @param frame A preview frame.
+   * @return A RotatedPlanarYUVLuminanceSource over the framing rect.
+   */
+  public RotatedPlanarYUVLuminanceSource buildRotatedLuminanceSource(PreviewFrame frame) {
+    ByteBuffer yPlane = frame.getYPlane();
+    if (yPlane == null) {
+      return buildRotatedLuminanceSource(frame.getData(), frame.getWidth(), frame.getHeight());
+    }
+    Rect rect = getFramingRectInPreview();
+    return new RotatedPlanarYUVLuminanceSource(yPlane, frame.getRowStride(),
+        frame.getPixelStride(), frame.getWidth(), frame.getHeight(), rect.left, rect.top,
+        rect.width(), rect.height(), configManager.getDisplayOrientation(), false);
+  }
+
+  /**
+   * Only formats whose Y channel is planar and comes first can be read in place.
+   */
+  private void checkPreviewFormat() {
     int previewFormat = configManager.getPreviewFormat();
     String previewFormatString = configManager.getPreviewFormatString();
     switch (previewFormat) {
@@ -372,14 +670,12 @@ public final class CameraManager {
       // This format has never been seen in the wild, but is compatible as we only care
       // about the Y channel, so allow it.
       case PixelFormat.YCbCr_422_SP:
-        return new PlanarYUVLuminanceSource(data, width, height, rect.left, rect.top,
-            rect.width(), rect.height());
+        return;
       default:
         // The Samsung Moment incorrectly uses this variant instead of the 'sp' version.
         // Fortunately, it too has all the Y data up front, so we can read it.
         if ("yuv420p".equals(previewFormatString)) {
-          return new PlanarYUVLuminanceSource(data, width, height, rect.left, rect.top,
-            rect.width(), rect.height());
+          return;
         }
     }
     throw new IllegalArgumentException("Unsupported picture format: " +
@@ -390,4 +686,22 @@ public final class CameraManager {
 		return context;
 	}
 
+  /**
+   * Passes frames from the backend on to the frame listener, or straight back to the backend.
+   */
+  private final class BackendFrameCallback implements CameraBackend.FrameCallback {
+
+    @Override
+    public void onFrame(ByteBuffer yPlane, int rowStride, int pixelStride, int width,
+                        int height) {
+      previewCallback.onFrameDelivered();
+      PreviewFrameListener listener = previewCallback.getFrameListener();
+      if (listener != null) {
+        listener.onPreviewImage(yPlane, rowStride, pixelStride, width, height);
+      } else {
+        backend.releaseFrame(yPlane);
+      }
+    }
+  }
+
 }
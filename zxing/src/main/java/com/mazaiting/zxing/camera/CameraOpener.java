@@ -0,0 +1,197 @@
+package com.mazaiting.zxing.camera;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import com.mazaiting.zxing.listener.CameraOpenListener;
+
+import java.io.IOException;
+
+/**
+ * Opens the camera on a thread of its own, so that the slow part of opening it, Camera.open,
+ * reading and setting the parameters and picking the preview size, runs while the activity
+ * inflates its layout and the surface is created instead of freezing the main thread. The
+ * listener hears on the main thread once the camera is open; the caller then joins the surface
+ * with {@link CameraManager#setPreviewDisplay} as soon as it exists. Every opener opens and
+ * closes on the same thread, one for the whole process, so an open still running when the
+ * activity pauses is closed after it, never alongside it, and its late result is dropped.
+ *
+ * {@link #preOpen(long)} opens the camera ahead of any scanner and keeps it open for a while; a
+ * scanner which opens it in that time takes it over as it is, otherwise it is released.
+ *
+ * android.hardware.Camera delivers preview frames and focus callbacks on the looper of the
+ * thread which opened it, so those arrive on this thread as well, off the main thread.
+ *
+ * Call all methods on the main thread.
+ * 异步打开相机
+ */
+public final class CameraOpener {
+
+  private static final String TAG = CameraOpener.class.getSimpleName();
+
+  private static Handler cameraHandler;
+  //相机由预打开持有, 尚未被扫描界面接管; 只在相机线程访问
+  private static boolean preOpened;
+  private static final Runnable closeDriver = new Runnable() {
+    @Override
+    public void run() {
+      preOpened = false;
+      CameraManager.get().closeDriver();
+    }
+  };
+  /** Releases a pre-opened camera nobody took over. */
+  private static final Runnable releasePreOpened = new Runnable() {
+    @Override
+    public void run() {
+      if (preOpened) {
+        Log.i(TAG, "Releasing the pre-opened camera");
+        closeDriver.run();
+      }
+    }
+  };
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  //每次打开或关闭时加一, 过期的打开结果被丢弃
+  private int generation;
+  private long openStartNanos;
+  private long openedNanos;
+  private long surfaceJoinedNanos;
+
+  /**
+   * @return The handler of the thread the camera is opened and closed on, started on first use.
+   */
+  private static synchronized Handler getCameraHandler() {
+    if (cameraHandler == null) {
+      HandlerThread thread = new HandlerThread(TAG);
+      thread.start();
+      cameraHandler = new Handler(thread.getLooper());
+    }
+    return cameraHandler;
+  }
+
+  /**
+   * Opens the camera, computing its configuration, before any scanner asks for it. The next
+   * {@link #open} takes the open camera over at once. Does nothing while a scanner has the
+   * camera open.
+   *
+   * @param releaseMillis How long the camera stays open for a scanner to take it over; 0 closes
+   *                      it as soon as it is configured, which keeps the configuration for
+   *                      later opens without holding the camera.
+   */
+  public static void preOpen(final long releaseMillis) {
+    final Handler handler = getCameraHandler();
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (CameraManager.get().isOpen() && !preOpened) {
+          return;
+        }
+        handler.removeCallbacks(releasePreOpened);
+        try {
+          CameraManager.get().openCamera();
+        } catch (IOException | RuntimeException e) {
+          Log.w(TAG, "Camera failed to pre-open", e);
+          closeDriver.run();
+          return;
+        }
+        preOpened = true;
+        if (releaseMillis > 0) {
+          handler.postDelayed(releasePreOpened, releaseMillis);
+        } else {
+          closeDriver.run();
+        }
+      }
+    });
+  }
+
+  /**
+   * Starts opening the camera with {@link CameraManager#openCamera()}.
+   *
+   * @param listener Told on the main thread how it went, unless {@link #close()} is called
+   *                 first.
+   */
+  public void open(final CameraOpenListener listener) {
+    final int openGeneration = ++generation;
+    openStartNanos = System.nanoTime();
+    openedNanos = 0;
+    surfaceJoinedNanos = 0;
+    final Handler handler = getCameraHandler();
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        // Take over a pre-opened camera instead of letting it be released.
+        handler.removeCallbacks(releasePreOpened);
+        preOpened = false;
+        Exception failure = null;
+        try {
+          CameraManager.get().openCamera();
+        } catch (IOException | RuntimeException e) {
+          Log.w(TAG, "Camera failed to open", e);
+          failure = e;
+        }
+        final long opened = System.nanoTime();
+        final Exception result = failure;
+        mainHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            if (openGeneration != generation) {
+              // Closed in the meantime.
+              return;
+            }
+            openedNanos = opened;
+            if (result == null) {
+              Log.i(TAG, "Camera opened in " + getOpenMillis() + " ms");
+              listener.onCameraOpened();
+            } else {
+              listener.onCameraOpenFailed(result);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Records that the surface was handed to the opened camera.
+   */
+  public void onSurfaceJoined() {
+    surfaceJoinedNanos = System.nanoTime();
+  }
+
+  /**
+   * Closes the camera after any open still running, and drops the result of that open.
+   */
+  public void close() {
+    generation++;
+    getCameraHandler().post(closeDriver);
+  }
+
+  /**
+   * @return How long the last open took, or -1 if it has not finished.
+   */
+  public long getOpenMillis() {
+    return openedNanos == 0 ? -1 : (openedNanos - openStartNanos) / 1000000L;
+  }
+
+  /**
+   * @return How long after the last open started the surface was joined, or -1 if it was not
+   *         yet.
+   */
+  public long getSurfaceJoinMillis() {
+    return surfaceJoinedNanos == 0 ? -1 : (surfaceJoinedNanos - openStartNanos) / 1000000L;
+  }
+
+  /**
+   * @return How long after the last open started the first preview frame arrived, what the
+   *         user waits for a live scanner, or -1 if none has yet.
+   */
+  public long getTimeToFirstFrameMillis() {
+    long firstFrameNanos = CameraManager.get().getFirstFrameNanos();
+    return firstFrameNanos == 0 || firstFrameNanos < openStartNanos ? -1
+        : (firstFrameNanos - openStartNanos) / 1000000L;
+  }
+
+}
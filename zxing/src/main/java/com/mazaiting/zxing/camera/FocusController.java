@@ -0,0 +1,109 @@
+package com.mazaiting.zxing.camera;
+
+import android.hardware.Camera;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Chooses how the camera focuses and tracks whether the lens is moving. Continuous focus modes
+ * are preferred: the camera refocuses on its own when the scene changes and reports each move
+ * through {@link Camera.AutoFocusMoveCallback}. Cameras without them fall back to triggered
+ * autofocus, repeated by {@link CameraManager#requestAutoFocus}, and the lens counts as moving
+ * from each trigger until its sweep completes.
+ *
+ * Frames taken while the lens moves are blurred and not worth decoding. A camera which keeps
+ * hunting, in low light for example, would then never have its frames decoded, so after
+ * {@link #MAX_MOVING_MILLIS} of movement frames count as still again.
+ * 对焦控制
+ */
+public final class FocusController implements Camera.AutoFocusMoveCallback {
+
+  private static final String TAG = FocusController.class.getSimpleName();
+
+  /** How long the lens may move before its frames are decoded anyway. */
+  public static final long MAX_MOVING_MILLIS = 1000L;
+
+  private String focusMode;
+  private boolean continuous;
+  private volatile boolean moving;
+  private volatile long movingSinceNanos;
+
+  FocusController() {
+  }
+
+  /**
+   * Sets the best focus mode the camera supports, and listens for focus moves in the
+   * continuous ones.
+   */
+  void configure(Camera camera) {
+    moving = false;
+    Camera.Parameters parameters = camera.getParameters();
+    List<String> supportedFocusModes = parameters == null ? null
+        : parameters.getSupportedFocusModes();
+    String mode = findFocusMode(supportedFocusModes,
+        Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE,
+        Camera.Parameters.FOCUS_MODE_CONTINUOUS_VIDEO, Camera.Parameters.FOCUS_MODE_AUTO,
+        Camera.Parameters.FOCUS_MODE_MACRO);
+    if (mode != null && !mode.equals(parameters.getFocusMode())) {
+      parameters.setFocusMode(mode);
+      try {
+        camera.setParameters(parameters);
+      } catch (RuntimeException re) {
+        Log.w(TAG, "Camera rejected focus mode " + mode);
+        mode = camera.getParameters().getFocusMode();
+      }
+    }
+    focusMode = mode;
+    continuous = Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE.equals(mode)
+        || Camera.Parameters.FOCUS_MODE_CONTINUOUS_VIDEO.equals(mode);
+    camera.setAutoFocusMoveCallback(continuous ? this : null);
+    Log.i(TAG, "Focus mode: " + focusMode);
+  }
+
+  private static String findFocusMode(List<String> supportedFocusModes, String... modes) {
+    if (supportedFocusModes != null) {
+      for (String mode : modes) {
+        if (supportedFocusModes.contains(mode)) {
+          return mode;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return Whether the camera focuses on its own, so no autofocus has to be triggered.
+   */
+  public boolean isContinuous() {
+    return continuous;
+  }
+
+  public String getFocusMode() {
+    return focusMode;
+  }
+
+  @Override
+  public void onAutoFocusMoving(boolean start, Camera camera) {
+    setMoving(start);
+  }
+
+  /**
+   * Reports whether the lens is moving, for triggered sweeps and for cameras which report focus
+   * moves some other way.
+   */
+  void setMoving(boolean start) {
+    if (start && !moving) {
+      movingSinceNanos = System.nanoTime();
+    }
+    moving = start;
+  }
+
+  /**
+   * @return Whether frames taken now are blurred by the lens moving, and not worth decoding.
+   */
+  public boolean isMoving() {
+    return moving && System.nanoTime() - movingSinceNanos < MAX_MOVING_MILLIS * 1000000L;
+  }
+
+}
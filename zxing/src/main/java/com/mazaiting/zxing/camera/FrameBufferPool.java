@@ -0,0 +1,147 @@
+package com.mazaiting.zxing.camera;
+
+import android.hardware.Camera;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ring of preview buffers which are queued to the camera with
+ * {@link Camera#addCallbackBuffer(byte[])}, so that frames delivered through
+ * {@link Camera#setPreviewCallbackWithBuffer(Camera.PreviewCallback)} reuse the same arrays
+ * instead of the camera allocating a new multi-megabyte byte[] for every frame.
+ *
+ * A buffer is in flight from the moment its frame is delivered until it is handed back with
+ * {@link #recycle(byte[])}, after which it is queued to the camera again.
+ * 预览帧缓冲池
+ */
+public final class FrameBufferPool {
+
+  public static final int DEFAULT_BUFFER_COUNT = 3;
+
+  private final List<byte[]> buffers = new ArrayList<>();
+  private final List<byte[]> inFlight = new ArrayList<>();
+  private int bufferCount = DEFAULT_BUFFER_COUNT;
+  private int bufferSize;
+  private Camera camera;
+
+  private long deliveredFrames;
+  private long droppedFrames;
+  private long recycledFrames;
+
+  FrameBufferPool() {
+  }
+
+  /**
+   * Sets how many buffers rotate between the camera and the decoder. Takes effect the next time
+   * the pool is attached to a camera.
+   */
+  public synchronized void setBufferCount(int bufferCount) {
+    if (bufferCount < 1) {
+      throw new IllegalArgumentException("Buffer count must be at least 1: " + bufferCount);
+    }
+    this.bufferCount = bufferCount;
+  }
+
+  public synchronized int getBufferCount() {
+    return bufferCount;
+  }
+
+  /**
+   * Queues every buffer to the camera. Buffers are reallocated only when the frame size changes,
+   * or to replace frames still in flight from an earlier preview: a decode worker which outlived
+   * the wait for it may still be reading one, so it is never queued again, and is simply let go
+   * when it comes back.
+   */
+  synchronized void attach(Camera camera, int bufferSize) {
+    if (bufferSize != this.bufferSize) {
+      buffers.clear();
+      this.bufferSize = bufferSize;
+    }
+    for (byte[] buffer : inFlight) {
+      removeIdentity(buffers, buffer);
+    }
+    inFlight.clear();
+    while (buffers.size() > bufferCount) {
+      buffers.remove(buffers.size() - 1);
+    }
+    while (buffers.size() < bufferCount) {
+      buffers.add(new byte[bufferSize]);
+    }
+    this.camera = camera;
+    for (byte[] buffer : buffers) {
+      camera.addCallbackBuffer(buffer);
+    }
+  }
+
+  /**
+   * Forgets the camera. Buffers recycled afterwards stay in the pool until the next attach.
+   */
+  synchronized void detach() {
+    camera = null;
+  }
+
+  /**
+   * Called for every frame the camera delivers; the buffer belongs to the caller until it is
+   * recycled or dropped.
+   */
+  synchronized void onFrameDelivered(byte[] data) {
+    deliveredFrames++;
+    if (containsIdentity(buffers, data)) {
+      inFlight.add(data);
+    }
+  }
+
+  /**
+   * Gives back a frame nobody asked for.
+   */
+  synchronized void drop(byte[] data) {
+    droppedFrames++;
+    recycle(data);
+  }
+
+  /**
+   * Hands a delivered frame back so the camera can fill it again.
+   */
+  public synchronized void recycle(byte[] data) {
+    if (data == null || !removeIdentity(inFlight, data)) {
+      return;
+    }
+    if (camera != null) {
+      camera.addCallbackBuffer(data);
+      recycledFrames++;
+    }
+  }
+
+  public synchronized long getDeliveredFrameCount() {
+    return deliveredFrames;
+  }
+
+  public synchronized long getDroppedFrameCount() {
+    return droppedFrames;
+  }
+
+  public synchronized long getRecycledFrameCount() {
+    return recycledFrames;
+  }
+
+  private static boolean containsIdentity(List<byte[]> list, byte[] buffer) {
+    for (byte[] candidate : list) {
+      if (candidate == buffer) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean removeIdentity(List<byte[]> list, byte[] buffer) {
+    for (int i = 0; i < list.size(); i++) {
+      if (list.get(i) == buffer) {
+        list.remove(i);
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
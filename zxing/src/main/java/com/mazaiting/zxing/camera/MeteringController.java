@@ -0,0 +1,192 @@
+package com.mazaiting.zxing.camera;
+
+import android.graphics.Rect;
+import android.hardware.Camera;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Meters exposure and focuses on the part of the scene being decoded instead of the whole of it,
+ * where a bright background would underexpose a label held in the framing rect. The region is a
+ * rectangle of the preview in display orientation, the framing rect or the part of it a barcode
+ * was tracked to; it is rotated back into the frame as the camera delivers it, since that is the
+ * orientation focus and metering areas are given in, and handed to the camera scaled to the
+ * -1000..1000 coordinates of {@link Camera.Area}, or to the backend in frame coordinates.
+ *
+ * Setting parameters stalls the preview of some drivers for a moment, so an area only replaces
+ * the one in place when one of its edges moved by more than {@link #MIN_CHANGE}.
+ * 测光与对焦区域
+ */
+public final class MeteringController {
+
+  private static final String TAG = MeteringController.class.getSimpleName();
+
+  /** The range of {@link Camera.Area} coordinates along either side of the frame. */
+  private static final int AREA_MIN = -1000;
+  private static final int AREA_MAX = 1000;
+  /** Edge movement, in area coordinates, below which the area in place is kept. */
+  public static final int MIN_CHANGE = 50;
+
+  private boolean focusAreas;
+  private boolean meteringAreas;
+  private Rect applied;
+  private long updates;
+
+  MeteringController() {
+  }
+
+  /**
+   * Looks up whether the camera takes focus and metering areas, and forgets the area in place.
+   *
+   * @param camera The camera, or null for a backend, which takes whatever areas it can.
+   */
+  synchronized void configure(Camera camera) {
+    applied = null;
+    if (camera == null) {
+      focusAreas = true;
+      meteringAreas = true;
+      return;
+    }
+    Camera.Parameters parameters = camera.getParameters();
+    focusAreas = parameters != null && parameters.getMaxNumFocusAreas() > 0;
+    meteringAreas = parameters != null && parameters.getMaxNumMeteringAreas() > 0;
+    Log.i(TAG, "Focus areas " + (focusAreas ? "supported" : "unsupported") + ", metering areas "
+        + (meteringAreas ? "supported" : "unsupported"));
+  }
+
+  /**
+   * Focuses and meters the camera on a rectangle of the frame.
+   *
+   * @param camera      The camera.
+   * @param frameArea   A rectangle in frame coordinates.
+   * @param frameWidth  The width of the frames.
+   * @param frameHeight The height of the frames.
+   */
+  synchronized void apply(Camera camera, Rect frameArea, int frameWidth, int frameHeight) {
+    if (!focusAreas && !meteringAreas) {
+      return;
+    }
+    Rect area = toCameraArea(frameArea, frameWidth, frameHeight);
+    if (area == null || !hasChanged(area)) {
+      return;
+    }
+    List<Camera.Area> areas = Collections.singletonList(new Camera.Area(area, AREA_MAX));
+    Camera.Parameters parameters = camera.getParameters();
+    if (focusAreas) {
+      parameters.setFocusAreas(areas);
+    }
+    if (meteringAreas) {
+      parameters.setMeteringAreas(areas);
+    }
+    try {
+      camera.setParameters(parameters);
+    } catch (RuntimeException re) {
+      // The driver claims areas it does not take; meter on the whole scene from now on.
+      Log.w(TAG, "Camera rejected focus and metering area " + area);
+      focusAreas = false;
+      meteringAreas = false;
+      return;
+    }
+    applied = area;
+    updates++;
+  }
+
+  /**
+   * Like {@link #apply(Camera, Rect, int, int)}, for a backend.
+   */
+  synchronized void apply(CameraBackend backend, Rect frameArea, int frameWidth,
+                          int frameHeight) {
+    Rect area = toCameraArea(frameArea, frameWidth, frameHeight);
+    if (area == null || !hasChanged(area)) {
+      return;
+    }
+    backend.setMeteringArea(frameArea);
+    applied = area;
+    updates++;
+  }
+
+  private boolean hasChanged(Rect area) {
+    return applied == null
+        || Math.abs(area.left - applied.left) > MIN_CHANGE
+        || Math.abs(area.top - applied.top) > MIN_CHANGE
+        || Math.abs(area.right - applied.right) > MIN_CHANGE
+        || Math.abs(area.bottom - applied.bottom) > MIN_CHANGE;
+  }
+
+  /**
+   * @return The area in place, in {@link Camera.Area} coordinates, or null if none was set.
+   */
+  public synchronized Rect getArea() {
+    return applied == null ? null : new Rect(applied);
+  }
+
+  /**
+   * @return How often the area was changed since the camera was opened or the controller
+   *         created.
+   */
+  public synchronized long getUpdateCount() {
+    return updates;
+  }
+
+  /**
+   * Maps a rectangle of the preview in display orientation back into the frame as the camera
+   * delivers it, the inverse of what {@link RotatedPlanarYUVLuminanceSource} reads.
+   *
+   * @param rect        A rectangle of the rotated, and possibly mirrored, preview.
+   * @param frameWidth  The width of the frames.
+   * @param frameHeight The height of the frames.
+   * @param rotation    Clockwise rotation between the frames and the display, 0, 90, 180 or 270.
+   * @param mirror      Whether the preview is mirrored after rotating, as for front cameras.
+   * @return The rectangle in frame coordinates, clipped to the frame.
+   */
+  public static Rect toFrame(Rect rect, int frameWidth, int frameHeight, int rotation,
+                             boolean mirror) {
+    boolean sideways = rotation == 90 || rotation == 270;
+    int rotatedWidth = sideways ? frameHeight : frameWidth;
+    int left = mirror ? rotatedWidth - rect.right : rect.left;
+    int right = mirror ? rotatedWidth - rect.left : rect.right;
+    Rect frame;
+    switch (rotation) {
+      case 90:
+        frame = new Rect(rect.top, frameHeight - right, rect.bottom, frameHeight - left);
+        break;
+      case 180:
+        frame = new Rect(frameWidth - right, frameHeight - rect.bottom, frameWidth - left,
+            frameHeight - rect.top);
+        break;
+      case 270:
+        frame = new Rect(frameWidth - rect.bottom, left, frameWidth - rect.top, right);
+        break;
+      default:
+        frame = new Rect(left, rect.top, right, rect.bottom);
+        break;
+    }
+    if (!frame.intersect(0, 0, frameWidth, frameHeight)) {
+      frame.setEmpty();
+    }
+    return frame;
+  }
+
+  /**
+   * Scales a rectangle of the frame to {@link Camera.Area} coordinates, where (-1000, -1000) is
+   * the top left corner of the frame and (1000, 1000) the bottom right one.
+   *
+   * @return The area, or null if the rectangle is empty.
+   */
+  public static Rect toCameraArea(Rect frameArea, int frameWidth, int frameHeight) {
+    if (frameArea == null || frameArea.isEmpty() || frameWidth <= 0 || frameHeight <= 0) {
+      return null;
+    }
+    Rect area = new Rect(scale(frameArea.left, frameWidth), scale(frameArea.top, frameHeight),
+        scale(frameArea.right, frameWidth), scale(frameArea.bottom, frameHeight));
+    return area.isEmpty() ? null : area;
+  }
+
+  private static int scale(int value, int size) {
+    int scaled = (int) ((long) value * (AREA_MAX - AREA_MIN) / size) + AREA_MIN;
+    return Math.max(AREA_MIN, Math.min(scaled, AREA_MAX));
+  }
+
+}
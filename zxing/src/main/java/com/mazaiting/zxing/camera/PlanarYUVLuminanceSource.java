@@ -96,6 +96,14 @@ public final class PlanarYUVLuminanceSource extends LuminanceSource {
   }
 
   public Bitmap renderCroppedGreyscaleBitmap() {
+    int width = getWidth();
+    int height = getHeight();
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    bitmap.setPixels(renderCroppedGreyscalePixels(), 0, width, 0, 0, width, height);
+    return bitmap;
+  }
+
+  public int[] renderCroppedGreyscalePixels() {
     int width = getWidth();
     int height = getHeight();
     int[] pixels = new int[width * height];
@@ -110,9 +118,6 @@ public final class PlanarYUVLuminanceSource extends LuminanceSource {
       }
       inputOffset += dataWidth;
     }
-
-    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-    bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
-    return bitmap;
+    return pixels;
   }
 }
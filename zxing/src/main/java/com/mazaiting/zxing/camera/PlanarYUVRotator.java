@@ -0,0 +1,143 @@
+package com.mazaiting.zxing.camera;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Copies a rectangle of the Y plane of a preview frame, rotated by 0, 90, 180 or 270 degrees
+ * clockwise and optionally mirrored, into a caller's array, for when a real rotated copy is
+ * needed rather than the view {@link RotatedPlanarYUVLuminanceSource} gives.
+ *
+ * A quarter turn reads each output row from a column of the frame. Walking the output row by row
+ * would touch a new cache line of the frame for every pixel; walking it column by column would do
+ * the same to the output. The copy is therefore done in {@link #TILE_SIZE} square tiles: within a
+ * tile the frame is read along its rows and the output written down its columns, and both the
+ * frame rows and the output rows of one tile stay in cache until the tile is done. Half turns and
+ * no turn at all keep the rows of the frame and are copied row by row.
+ *
+ * The Y plane of an image is copied the same way, reading the ByteBuffer at absolute indices so
+ * that its position is never touched; a duplicate is positioned only for the bulk row copy. Its
+ * limit must be its capacity.
+ * 分块旋转拷贝工具
+ */
+public final class PlanarYUVRotator {
+
+  /** Pixels per side of a tile; 64 by 64 bytes of input and output fit in L1 on any ARM core. */
+  static final int TILE_SIZE = 64;
+
+  private PlanarYUVRotator() {
+  }
+
+  /**
+   * @param yuvData    The preview frame, Y plane first.
+   * @param dataWidth  The width of the preview frame as delivered by the camera.
+   * @param dataHeight The height of the preview frame as delivered by the camera.
+   * @param left       Crop left, in rotated coordinates.
+   * @param top        Crop top, in rotated coordinates.
+   * @param width      Crop width, in rotated coordinates.
+   * @param height     Crop height, in rotated coordinates.
+   * @param rotation   Clockwise rotation applied to the frame: 0, 90, 180 or 270.
+   * @param mirror     Whether the rotated frame is mirrored horizontally, as for a front camera.
+   * @param output     An array of at least {@code width * height} bytes to reuse, or null.
+   * @return The rotated crop, row by row, in {@code output} or a new array.
+   */
+  public static byte[] rotate(byte[] yuvData, int dataWidth, int dataHeight,
+      int left, int top, int width, int height, int rotation, boolean mirror, byte[] output) {
+    RotatedPlanarYUVLuminanceSource source = new RotatedPlanarYUVLuminanceSource(yuvData,
+        dataWidth, dataHeight, left, top, width, height, rotation, mirror);
+    byte[] matrix = source.getMatrix(output);
+    if (matrix == yuvData) {
+      // The view hands out the frame itself when there is nothing to do; the caller wants a copy.
+      if (output == null || output.length < width * height) {
+        output = new byte[width * height];
+      }
+      System.arraycopy(yuvData, 0, output, 0, width * height);
+      return output;
+    }
+    return matrix;
+  }
+
+  /**
+   * Copies the pixels at {@code origin + x * xStep + y * yStep} for every x below width and y
+   * below height into {@code output}, row by row.
+   */
+  static void copy(byte[] yuvData, int origin, int xStep, int yStep, int width, int height,
+                   byte[] output) {
+    if (xStep == 1 || xStep == -1) {
+      copyRows(yuvData, origin, xStep, yStep, width, height, output);
+      return;
+    }
+    for (int tileTop = 0; tileTop < height; tileTop += TILE_SIZE) {
+      int tileHeight = Math.min(TILE_SIZE, height - tileTop);
+      for (int tileLeft = 0; tileLeft < width; tileLeft += TILE_SIZE) {
+        int tileWidth = Math.min(TILE_SIZE, width - tileLeft);
+        int columnOffset = origin + tileLeft * xStep + tileTop * yStep;
+        int columnOutput = tileTop * width + tileLeft;
+        for (int x = 0; x < tileWidth; x++) {
+          int offset = columnOffset;
+          int outputOffset = columnOutput;
+          for (int y = 0; y < tileHeight; y++) {
+            output[outputOffset] = yuvData[offset];
+            offset += yStep;
+            outputOffset += width;
+          }
+          columnOffset += xStep;
+          columnOutput++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Like {@link #copy(byte[], int, int, int, int, int, byte[])}, from the Y plane of an image.
+   */
+  static void copy(ByteBuffer yPlane, int origin, int xStep, int yStep, int width, int height,
+                   byte[] output) {
+    if (xStep == 1) {
+      ByteBuffer rows = yPlane.duplicate();
+      int rowOffset = origin;
+      for (int y = 0; y < height; y++) {
+        rows.position(rowOffset);
+        rows.get(output, y * width, width);
+        rowOffset += yStep;
+      }
+      return;
+    }
+    for (int tileTop = 0; tileTop < height; tileTop += TILE_SIZE) {
+      int tileHeight = Math.min(TILE_SIZE, height - tileTop);
+      for (int tileLeft = 0; tileLeft < width; tileLeft += TILE_SIZE) {
+        int tileWidth = Math.min(TILE_SIZE, width - tileLeft);
+        int columnOffset = origin + tileLeft * xStep + tileTop * yStep;
+        int columnOutput = tileTop * width + tileLeft;
+        for (int x = 0; x < tileWidth; x++) {
+          int offset = columnOffset;
+          int outputOffset = columnOutput;
+          for (int y = 0; y < tileHeight; y++) {
+            output[outputOffset] = yPlane.get(offset);
+            offset += yStep;
+            outputOffset += width;
+          }
+          columnOffset += xStep;
+          columnOutput++;
+        }
+      }
+    }
+  }
+
+  private static void copyRows(byte[] yuvData, int origin, int xStep, int yStep, int width,
+                               int height, byte[] output) {
+    int rowOffset = origin;
+    for (int y = 0; y < height; y++) {
+      int outputOffset = y * width;
+      if (xStep == 1) {
+        System.arraycopy(yuvData, rowOffset, output, outputOffset, width);
+      } else {
+        int offset = rowOffset;
+        for (int x = 0; x < width; x++) {
+          output[outputOffset + x] = yuvData[offset--];
+        }
+      }
+      rowOffset += yStep;
+    }
+  }
+
+}
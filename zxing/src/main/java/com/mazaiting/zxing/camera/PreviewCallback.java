@@ -20,42 +20,74 @@ import android.graphics.Point;
 import android.hardware.Camera;
 import android.os.Handler;
 import android.os.Message;
-import android.util.Log;
+
+import com.mazaiting.zxing.listener.PreviewFrameListener;
 
 //通知camera预览图像回调
 final class PreviewCallback implements Camera.PreviewCallback {
 
-  private static final String TAG = PreviewCallback.class.getSimpleName();
   //一些camera显示所控制的信息
   private final CameraConfigurationManager configManager;
-  private final boolean useOneShotPreviewCallback;
+  //预览帧缓冲池
+  private final FrameBufferPool frameBufferPool;
+  //持续接收预览帧的监听
+  private volatile PreviewFrameListener frameListener;
   //显示Handler
   private Handler previewHandler;
   //显示消息Message
   private int previewMessage;
+  //预览开始后首帧送达的时间, 用于统计启动耗时
+  private volatile long firstFrameNanos;
 
-  PreviewCallback(CameraConfigurationManager configManager, boolean useOneShotPreviewCallback) {
+  PreviewCallback(CameraConfigurationManager configManager, FrameBufferPool frameBufferPool) {
     this.configManager = configManager;
-    this.useOneShotPreviewCallback = useOneShotPreviewCallback;
+    this.frameBufferPool = frameBufferPool;
+  }
+
+  void setFrameListener(PreviewFrameListener frameListener) {
+    this.frameListener = frameListener;
+  }
+
+  PreviewFrameListener getFrameListener() {
+    return frameListener;
   }
 
   void setHandler(Handler previewHandler, int previewMessage) {
     this.previewHandler = previewHandler;
     this.previewMessage = previewMessage;
   }
+  void resetFirstFrame() {
+    firstFrameNanos = 0;
+  }
+
+  /**
+   * Notes the arrival of a frame from the camera or the backend.
+   */
+  void onFrameDelivered() {
+    if (firstFrameNanos == 0) {
+      firstFrameNanos = System.nanoTime();
+    }
+  }
+
+  long getFirstFrameNanos() {
+    return firstFrameNanos;
+  }
+
   //预览图像
   public void onPreviewFrame(byte[] data, Camera camera) {
+    onFrameDelivered();
     Point cameraResolution = configManager.getCameraResolution();
-    if (!useOneShotPreviewCallback) {
-      camera.setPreviewCallback(null);
-    }
-    if (previewHandler != null) {
+    frameBufferPool.onFrameDelivered(data);
+    if (frameListener != null) {
+      frameListener.onPreviewFrame(data, cameraResolution.x, cameraResolution.y);
+    } else if (previewHandler != null) {
       Message message = previewHandler.obtainMessage(previewMessage, cameraResolution.x,
           cameraResolution.y, data);
       message.sendToTarget();
       previewHandler = null;
     } else {
-      Log.d(TAG, "Got preview callback, but no handler for it");
+      // Nobody asked for this frame, give the buffer straight back to the camera.
+      frameBufferPool.drop(data);
     }
   }
 
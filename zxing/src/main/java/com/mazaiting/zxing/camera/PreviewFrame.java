@@ -0,0 +1,101 @@
+package com.mazaiting.zxing.camera;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One preview frame on its way to a decoder: the Y-first frame data as delivered by the camera,
+ * its size, a sequence number which increases with every frame handed out for decoding, and the
+ * {@link System#nanoTime()} at which the camera delivered it.
+ *
+ * A frame from a {@link CameraBackend} carries the Y plane of an image with its strides instead
+ * of a byte[]; {@link #getData()} is then null. A frame delivered while the lens was moving is
+ * tagged, see {@link FocusController}.
+ * 预览帧
+ */
+public final class PreviewFrame {
+
+  private final byte[] data;
+  private final ByteBuffer yPlane;
+  private final int rowStride;
+  private final int pixelStride;
+  private final int width;
+  private final int height;
+  private final int sequence;
+  private final long timestampNanos;
+  private final boolean focusMoving;
+
+  public PreviewFrame(byte[] data, int width, int height, int sequence) {
+    this(data, width, height, sequence, System.nanoTime());
+  }
+
+  public PreviewFrame(byte[] data, int width, int height, int sequence, long timestampNanos) {
+    this(data, width, height, sequence, timestampNanos, false);
+  }
+
+  public PreviewFrame(byte[] data, int width, int height, int sequence, long timestampNanos,
+                      boolean focusMoving) {
+    this(data, null, width, 1, width, height, sequence, timestampNanos, focusMoving);
+  }
+
+  public PreviewFrame(ByteBuffer yPlane, int rowStride, int pixelStride, int width, int height,
+                      int sequence, long timestampNanos, boolean focusMoving) {
+    this(null, yPlane, rowStride, pixelStride, width, height, sequence, timestampNanos,
+        focusMoving);
+  }
+
+  private PreviewFrame(byte[] data, ByteBuffer yPlane, int rowStride, int pixelStride, int width,
+                       int height, int sequence, long timestampNanos, boolean focusMoving) {
+    this.data = data;
+    this.yPlane = yPlane;
+    this.rowStride = rowStride;
+    this.pixelStride = pixelStride;
+    this.width = width;
+    this.height = height;
+    this.sequence = sequence;
+    this.timestampNanos = timestampNanos;
+    this.focusMoving = focusMoving;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  /**
+   * @return The Y plane of an image frame, or null for a byte[] frame.
+   */
+  public ByteBuffer getYPlane() {
+    return yPlane;
+  }
+
+  public int getRowStride() {
+    return rowStride;
+  }
+
+  public int getPixelStride() {
+    return pixelStride;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getSequence() {
+    return sequence;
+  }
+
+  public long getTimestampNanos() {
+    return timestampNanos;
+  }
+
+  /**
+   * @return Whether the lens was moving when the frame was delivered, blurring it.
+   */
+  public boolean isFocusMoving() {
+    return focusMoving;
+  }
+
+}
@@ -0,0 +1,145 @@
+package com.mazaiting.zxing.camera;
+
+import android.graphics.Point;
+
+import java.util.List;
+
+/**
+ * Picks the preview size to decode from by what the barcode needs rather than by the screen.
+ * At the working distance the camera sees a strip of the scene
+ * {@code 2 * distance * tan(viewAngle / 2)} wide along the long side of the frame; the smallest
+ * barcode expected has to get at least {@link #setPixelsPerModule(float) pixelsPerModule}
+ * pixels across each of its modules there. The smallest preview size which is wide enough is
+ * chosen, since every extra pixel costs binarization and detection time in every frame, among
+ * the sizes whose aspect ratio is close to the screen's so the preview is not distorted, or close
+ * to the nearest the camera has on screens of a shape no size has. If no size is wide enough the
+ * widest one is taken.
+ *
+ * All lengths are in millimetres.
+ * 按条码模块密度选择预览尺寸
+ */
+public final class PreviewSizeSelector {
+
+  /** The edge of the smallest barcode expected, a small label. */
+  public static final float DEFAULT_MIN_BARCODE_SIZE = 25.0f;
+  /** Modules across the smallest barcode expected, those of a version 4 QR code. */
+  public static final int DEFAULT_MODULE_COUNT = 33;
+  /** How far from the camera barcodes are held. */
+  public static final float DEFAULT_WORKING_DISTANCE = 200.0f;
+  /** Pixels per module the detectors need to find the finder patterns reliably. */
+  public static final float DEFAULT_PIXELS_PER_MODULE = 3.0f;
+  /** Horizontal view angle, in degrees, assumed when the camera does not report its own. */
+  public static final float DEFAULT_VIEW_ANGLE = 60.0f;
+
+  private static final int MIN_PREVIEW_PIXELS = 480 * 320;
+  private static final double MAX_ASPECT_DISTORTION = 0.15;
+
+  private float minBarcodeSize = DEFAULT_MIN_BARCODE_SIZE;
+  private int moduleCount = DEFAULT_MODULE_COUNT;
+  private float workingDistance = DEFAULT_WORKING_DISTANCE;
+  private float pixelsPerModule = DEFAULT_PIXELS_PER_MODULE;
+
+  /**
+   * @param minBarcodeSize The edge of the smallest barcode to decode.
+   * @param moduleCount    The number of modules across it.
+   */
+  public synchronized void setMinBarcode(float minBarcodeSize, int moduleCount) {
+    if (minBarcodeSize <= 0 || moduleCount < 1) {
+      throw new IllegalArgumentException("Bad barcode: " + minBarcodeSize + " mm, " + moduleCount
+          + " modules");
+    }
+    this.minBarcodeSize = minBarcodeSize;
+    this.moduleCount = moduleCount;
+  }
+
+  public synchronized void setWorkingDistance(float workingDistance) {
+    if (workingDistance <= 0) {
+      throw new IllegalArgumentException("Working distance must be positive: " + workingDistance);
+    }
+    this.workingDistance = workingDistance;
+  }
+
+  public synchronized void setPixelsPerModule(float pixelsPerModule) {
+    if (pixelsPerModule <= 0) {
+      throw new IllegalArgumentException("Pixels per module must be positive: "
+          + pixelsPerModule);
+    }
+    this.pixelsPerModule = pixelsPerModule;
+  }
+
+  /**
+   * @param viewAngle The camera's view angle along the long side of the frame, in degrees, or
+   *                  0 if unknown.
+   * @return The width the preview needs along its long side.
+   */
+  public synchronized int getRequiredWidth(float viewAngle) {
+    if (viewAngle <= 0 || viewAngle >= 180) {
+      viewAngle = DEFAULT_VIEW_ANGLE;
+    }
+    double sceneWidth = 2.0 * workingDistance * Math.tan(Math.toRadians(viewAngle) / 2.0);
+    double moduleSize = minBarcodeSize / moduleCount;
+    return (int) Math.ceil(pixelsPerModule * sceneWidth / moduleSize);
+  }
+
+  /**
+   * @param sizes            The preview sizes the camera supports, width by height.
+   * @param screenResolution The screen size in landscape.
+   * @param viewAngle        The camera's view angle along the long side of the frame, in
+   *                         degrees, or 0 if unknown.
+   * @return The chosen size, or null if there are no sizes.
+   */
+  public Point select(List<Point> sizes, Point screenResolution, float viewAngle) {
+    if (sizes == null || sizes.isEmpty()) {
+      return null;
+    }
+    int requiredWidth = getRequiredWidth(viewAngle);
+    double screenAspectRatio = (double) screenResolution.x / (double) screenResolution.y;
+
+    Point best = select(sizes, requiredWidth, screenAspectRatio);
+    if (best == null) {
+      // No size has the screen's shape; keep the closest shape the camera has.
+      best = select(sizes, requiredWidth, findClosestAspectRatio(sizes, screenAspectRatio));
+    }
+    return best;
+  }
+
+  private static Point select(List<Point> sizes, int requiredWidth, double aspectRatio) {
+    Point smallestWideEnough = null;
+    Point widest = null;
+    for (Point size : sizes) {
+      int longSide = Math.max(size.x, size.y);
+      if (size.x * size.y < MIN_PREVIEW_PIXELS
+          || Math.abs(getAspectRatio(size) - aspectRatio) > MAX_ASPECT_DISTORTION) {
+        continue;
+      }
+      if (longSide >= requiredWidth && (smallestWideEnough == null
+          || size.x * size.y < smallestWideEnough.x * smallestWideEnough.y)) {
+        smallestWideEnough = size;
+      }
+      if (widest == null || longSide > Math.max(widest.x, widest.y)
+          || longSide == Math.max(widest.x, widest.y) && size.x * size.y > widest.x * widest.y) {
+        widest = size;
+      }
+    }
+    return smallestWideEnough != null ? smallestWideEnough : widest;
+  }
+
+  private static double findClosestAspectRatio(List<Point> sizes, double aspectRatio) {
+    double closest = 0;
+    for (Point size : sizes) {
+      if (size.x * size.y >= MIN_PREVIEW_PIXELS && Math.abs(getAspectRatio(size) - aspectRatio)
+          < Math.abs(closest - aspectRatio)) {
+        closest = getAspectRatio(size);
+      }
+    }
+    return closest;
+  }
+
+  /**
+   * @return The long side over the short side.
+   */
+  private static double getAspectRatio(Point size) {
+    return (double) Math.max(size.x, size.y) / Math.min(size.x, size.y);
+  }
+
+}
@@ -0,0 +1,329 @@
+package com.mazaiting.zxing.camera;
+
+import android.graphics.Bitmap;
+
+import com.google.zxing.LuminanceSource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link LuminanceSource} which presents the Y plane of a camera preview frame rotated by
+ * 0, 90, 180 or 270 degrees clockwise, and optionally mirrored horizontally, without copying the
+ * frame. The crop rectangle is given in the coordinates of the rotated (and mirrored) image, so
+ * it can be taken straight from {@link CameraManager#getFramingRectInPreview()}.
+ *
+ * Every pixel of the crop maps to {@code origin + x * xStep + y * yStep} in the original data,
+ * so {@link #getRow(int, byte[])} and {@link #getMatrix()} only ever touch pixels inside the crop.
+ *
+ * The frame is either a byte[] as delivered by android.hardware.Camera, or the Y plane of a
+ * YUV_420_888 image as delivered by a {@link CameraBackend}: a ByteBuffer, usually direct, whose
+ * rows are {@code rowStride} bytes apart and whose pixels are {@code pixelStride} bytes apart.
+ * The plane is read in place through the same steps, so an image is never copied into a byte[].
+ *
+ * 旋转视图亮度资源类, 无需拷贝旋转整帧数据
+ */
+public final class RotatedPlanarYUVLuminanceSource extends LuminanceSource {
+  private final byte[] yuvData;
+  /** The Y plane, when the frame is an image rather than a byte[]; read only at absolute indices. */
+  private final ByteBuffer yPlane;
+  private final int rowStride;
+  private final int pixelStride;
+  private final int dataWidth;
+  private final int dataHeight;
+  private final int left;
+  private final int top;
+  private final int rotation;
+  private final boolean mirror;
+  /** Index into yuvData of the crop's top-left pixel. */
+  private final int origin;
+  /** Index delta for one step to the right inside the crop. */
+  private final int xStep;
+  /** Index delta for one step down inside the crop. */
+  private final int yStep;
+
+  /**
+   * @param yuvData    The preview frame, Y plane first.
+   * @param dataWidth  The width of the preview frame as delivered by the camera.
+   * @param dataHeight The height of the preview frame as delivered by the camera.
+   * @param left       Crop left, in rotated coordinates.
+   * @param top        Crop top, in rotated coordinates.
+   * @param width      Crop width, in rotated coordinates.
+   * @param height     Crop height, in rotated coordinates.
+   * @param rotation   Clockwise rotation applied to the frame: 0, 90, 180 or 270.
+   * @param mirror     Whether the rotated frame is mirrored horizontally, as for a front camera.
+   */
+  public RotatedPlanarYUVLuminanceSource(byte[] yuvData, int dataWidth, int dataHeight,
+      int left, int top, int width, int height, int rotation, boolean mirror) {
+    this(yuvData, null, dataWidth, 1, dataWidth, dataHeight, left, top, width, height, rotation,
+        mirror);
+  }
+
+  /**
+   * Reads the Y plane of an image in place, see {@link android.media.Image.Plane}.
+   *
+   * @param yPlane      The Y plane of the frame. Its position and limit are not used.
+   * @param rowStride   The distance in bytes between the starts of two rows.
+   * @param pixelStride The distance in bytes between two pixels of a row.
+   * @param dataWidth   The width of the frame as delivered by the camera.
+   * @param dataHeight  The height of the frame as delivered by the camera.
+   * @param left        Crop left, in rotated coordinates.
+   * @param top         Crop top, in rotated coordinates.
+   * @param width       Crop width, in rotated coordinates.
+   * @param height      Crop height, in rotated coordinates.
+   * @param rotation    Clockwise rotation applied to the frame: 0, 90, 180 or 270.
+   * @param mirror      Whether the rotated frame is mirrored horizontally.
+   */
+  public RotatedPlanarYUVLuminanceSource(ByteBuffer yPlane, int rowStride, int pixelStride,
+      int dataWidth, int dataHeight, int left, int top, int width, int height, int rotation,
+      boolean mirror) {
+    this(null, wholePlane(yPlane), rowStride, pixelStride, dataWidth, dataHeight, left, top,
+        width, height, rotation, mirror);
+  }
+
+  /**
+   * @return A view of the whole plane, whatever the caller's position and limit.
+   */
+  private static ByteBuffer wholePlane(ByteBuffer yPlane) {
+    ByteBuffer whole = yPlane.duplicate();
+    whole.clear();
+    return whole;
+  }
+
+  private RotatedPlanarYUVLuminanceSource(byte[] yuvData, ByteBuffer yPlane, int rowStride,
+      int pixelStride, int dataWidth, int dataHeight, int left, int top, int width, int height,
+      int rotation, boolean mirror) {
+    super(width, height);
+
+    if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+      throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+    }
+    boolean swap = rotation == 90 || rotation == 270;
+    int rotatedWidth = swap ? dataHeight : dataWidth;
+    int rotatedHeight = swap ? dataWidth : dataHeight;
+    if (left < 0 || top < 0 || left + width > rotatedWidth || top + height > rotatedHeight) {
+      throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+    }
+    if (pixelStride < 1 || rowStride < (dataWidth - 1) * pixelStride + 1) {
+      throw new IllegalArgumentException("Strides do not fit the frame width: " + rowStride + '/'
+          + pixelStride);
+    }
+    if (yPlane != null
+        && yPlane.capacity() < (dataHeight - 1) * rowStride + (dataWidth - 1) * pixelStride + 1) {
+      throw new IllegalArgumentException("Y plane is too small for the frame.");
+    }
+
+    this.yuvData = yuvData;
+    this.yPlane = yPlane;
+    this.rowStride = rowStride;
+    this.pixelStride = pixelStride;
+    this.dataWidth = dataWidth;
+    this.dataHeight = dataHeight;
+    this.left = left;
+    this.top = top;
+    this.rotation = rotation;
+    this.mirror = mirror;
+
+    int dx;
+    int dy;
+    switch (rotation) {
+      case 90:
+        dx = -rowStride;
+        dy = pixelStride;
+        break;
+      case 180:
+        dx = -pixelStride;
+        dy = -rowStride;
+        break;
+      case 270:
+        dx = rowStride;
+        dy = -pixelStride;
+        break;
+      default:
+        dx = pixelStride;
+        dy = rowStride;
+        break;
+    }
+    int originX = mirror ? rotatedWidth - 1 - left : left;
+    origin = dataIndex(originX, top);
+    xStep = mirror ? -dx : dx;
+    yStep = dy;
+  }
+
+  /**
+   * Maps a pixel of the rotated, unmirrored image to its index in the original data.
+   */
+  private int dataIndex(int x, int y) {
+    switch (rotation) {
+      case 90:
+        return (dataHeight - 1 - x) * rowStride + y * pixelStride;
+      case 180:
+        return (dataHeight - 1 - y) * rowStride + (dataWidth - 1 - x) * pixelStride;
+      case 270:
+        return x * rowStride + (dataWidth - 1 - y) * pixelStride;
+      default:
+        return y * rowStride + x * pixelStride;
+    }
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    int offset = origin + y * yStep;
+    if (yPlane != null) {
+      PlanarYUVRotator.copy(yPlane, offset, xStep, 0, width, 1, row);
+      return row;
+    }
+    if (xStep == 1) {
+      System.arraycopy(yuvData, offset, row, 0, width);
+      return row;
+    }
+    byte[] yuv = yuvData;
+    int step = xStep;
+    for (int x = 0; x < width; x++) {
+      row[x] = yuv[offset];
+      offset += step;
+    }
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    return getMatrix(null);
+  }
+
+  /**
+   * Like {@link #getMatrix()}, but fills the given array if it is large enough, so that a
+   * caller decoding frame after frame does not allocate a matrix for each. Quarter turns are
+   * copied tile by tile, see {@link PlanarYUVRotator}.
+   *
+   * @param matrix An array to reuse, or null.
+   * @return The crop, row by row, in {@code matrix}, a new array, or the frame data itself.
+   */
+  public byte[] getMatrix(byte[] matrix) {
+    int width = getWidth();
+    int height = getHeight();
+
+    // Unrotated and uncropped: hand out the original data, as PlanarYUVLuminanceSource does.
+    if (yuvData != null && xStep == 1 && yStep == dataWidth && width == dataWidth
+        && height == dataHeight) {
+      return yuvData;
+    }
+
+    if (matrix == null || matrix.length < width * height) {
+      matrix = new byte[width * height];
+    }
+    if (yPlane != null) {
+      PlanarYUVRotator.copy(yPlane, origin, xStep, yStep, width, height, matrix);
+    } else {
+      PlanarYUVRotator.copy(yuvData, origin, xStep, yStep, width, height, matrix);
+    }
+    return matrix;
+  }
+
+  /**
+   * @return Whether the array is the frame data itself, as {@link #getMatrix(byte[])} returns it
+   *         for an unrotated, uncropped frame. The camera writes into it again once the frame is
+   *         released, so it must not be kept as a buffer to reuse.
+   */
+  public boolean isFrameData(byte[] array) {
+    return array != null && array == yuvData;
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return true;
+  }
+
+  @Override
+  public RotatedPlanarYUVLuminanceSource crop(int left, int top, int width, int height) {
+    return new RotatedPlanarYUVLuminanceSource(yuvData, yPlane, rowStride, pixelStride,
+        dataWidth, dataHeight, this.left + left, this.top + top, width, height, rotation, mirror);
+  }
+
+  @Override
+  public boolean isRotateSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    // Turning the mirrored view counter-clockwise equals mirroring after a clockwise turn.
+    int newRotation = (rotation + (mirror ? 90 : 270)) % 360;
+    int rotatedWidth = rotation == 90 || rotation == 270 ? dataHeight : dataWidth;
+    return new RotatedPlanarYUVLuminanceSource(yuvData, yPlane, rowStride, pixelStride,
+        dataWidth, dataHeight, top, rotatedWidth - left - getWidth(), getHeight(), getWidth(),
+        newRotation, mirror);
+  }
+
+  /**
+   * @param factor Decimation factor, at least 1.
+   * @return A view of this crop which reads only every {@code factor}-th pixel and row.
+   */
+  public SubsampledPlanarYUVLuminanceSource subsample(int factor) {
+    if (factor < 1) {
+      throw new IllegalArgumentException("Subsampling factor must be at least 1: " + factor);
+    }
+    return new SubsampledPlanarYUVLuminanceSource(yuvData, yPlane, origin, xStep * factor,
+        yStep * factor, getWidth() / factor, getHeight() / factor, factor);
+  }
+
+  /**
+   * @return Crop left, in rotated coordinates of the whole frame.
+   */
+  public int getLeft() {
+    return left;
+  }
+
+  /**
+   * @return Crop top, in rotated coordinates of the whole frame.
+   */
+  public int getTop() {
+    return top;
+  }
+
+  public int getDataWidth() {
+    return dataWidth;
+  }
+
+  public int getDataHeight() {
+    return dataHeight;
+  }
+
+  public int getRotation() {
+    return rotation;
+  }
+
+  public boolean isMirror() {
+    return mirror;
+  }
+
+  public Bitmap renderCroppedGreyscaleBitmap() {
+    int width = getWidth();
+    int height = getHeight();
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    bitmap.setPixels(renderCroppedGreyscalePixels(), 0, width, 0, 0, width, height);
+    return bitmap;
+  }
+
+  /**
+   * @return The crop as opaque ARGB greyscale pixels, row by row.
+   */
+  public int[] renderCroppedGreyscalePixels() {
+    int width = getWidth();
+    int height = getHeight();
+    int[] pixels = new int[width * height];
+    byte[] matrix = getMatrix(null);
+
+    for (int i = 0; i < width * height; i++) {
+      int grey = matrix[i] & 0xff;
+      pixels[i] = 0xFF000000 | (grey * 0x00010101);
+    }
+    return pixels;
+  }
+}
@@ -0,0 +1,119 @@
+package com.mazaiting.zxing.camera;
+
+import com.google.zxing.LuminanceSource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A decimated view of a {@link RotatedPlanarYUVLuminanceSource}: every {@code factor}-th pixel of
+ * every {@code factor}-th row, read straight from the preview frame. Pixels are sampled, not
+ * averaged, so a 2x view costs a quarter and a 4x view a sixteenth of the binarization and
+ * detection work of the full crop; this suits barcodes whose modules are several pixels wide.
+ *
+ * Coordinates reported by a reader working on this source are in the decimated image and have
+ * to be multiplied by {@link #getFactor()} to get back to the full crop.
+ * 降采样亮度资源类
+ */
+public final class SubsampledPlanarYUVLuminanceSource extends LuminanceSource {
+  private final byte[] yuvData;
+  /** The Y plane, when the frame is an image rather than a byte[]. */
+  private final ByteBuffer yPlane;
+  private final int factor;
+  /** Index into the frame data of the top-left sample. */
+  private final int origin;
+  /** Index delta for one sample to the right. */
+  private final int xStep;
+  /** Index delta for one sample down. */
+  private final int yStep;
+
+  SubsampledPlanarYUVLuminanceSource(byte[] yuvData, ByteBuffer yPlane, int origin, int xStep,
+                                     int yStep, int width, int height, int factor) {
+    super(width, height);
+    this.yuvData = yuvData;
+    this.yPlane = yPlane;
+    this.origin = origin;
+    this.xStep = xStep;
+    this.yStep = yStep;
+    this.factor = factor;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    if (yPlane != null) {
+      PlanarYUVRotator.copy(yPlane, origin + y * yStep, xStep, 0, width, 1, row);
+      return row;
+    }
+    byte[] yuv = yuvData;
+    int step = xStep;
+    int offset = origin + y * yStep;
+    for (int x = 0; x < width; x++) {
+      row[x] = yuv[offset];
+      offset += step;
+    }
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    return getMatrix(null);
+  }
+
+  /**
+   * Like {@link #getMatrix()}, but fills the given array if it is large enough.
+   *
+   * @param matrix An array to reuse, or null.
+   * @return The samples, row by row, in {@code matrix} or a new array.
+   */
+  public byte[] getMatrix(byte[] matrix) {
+    int width = getWidth();
+    int height = getHeight();
+    if (matrix == null || matrix.length < width * height) {
+      matrix = new byte[width * height];
+    }
+    if (yPlane != null) {
+      PlanarYUVRotator.copy(yPlane, origin, xStep, yStep, width, height, matrix);
+      return matrix;
+    }
+    byte[] yuv = yuvData;
+    int step = xStep;
+    int rowOffset = origin;
+    for (int y = 0; y < height; y++) {
+      int outputOffset = y * width;
+      int offset = rowOffset;
+      for (int x = 0; x < width; x++) {
+        matrix[outputOffset + x] = yuv[offset];
+        offset += step;
+      }
+      rowOffset += yStep;
+    }
+    return matrix;
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    if (left < 0 || top < 0 || left + width > getWidth() || top + height > getHeight()) {
+      throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+    }
+    return new SubsampledPlanarYUVLuminanceSource(yuvData, yPlane,
+        origin + left * xStep + top * yStep, xStep, yStep, width, height, factor);
+  }
+
+  /**
+   * @return How many full-resolution pixels one sample stands for in each direction.
+   */
+  public int getFactor() {
+    return factor;
+  }
+}
@@ -0,0 +1,19 @@
+package com.mazaiting.zxing.listener;
+
+/**
+ * Hears how opening the camera in the background went. Called on the main thread.
+ * 相机异步打开监听
+ */
+public interface CameraOpenListener {
+
+  /**
+   * The camera is open and configured; it can draw into a surface once one is handed to it.
+   */
+  void onCameraOpened();
+
+  /**
+   * @param e Why the camera did not open, e.g. it is in use or the permission is missing.
+   */
+  void onCameraOpenFailed(Exception e);
+
+}
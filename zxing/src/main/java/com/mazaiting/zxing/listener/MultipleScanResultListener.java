@@ -0,0 +1,21 @@
+package com.mazaiting.zxing.listener;
+
+import android.graphics.Bitmap;
+
+import com.google.zxing.Result;
+
+/**
+ * Receives all barcodes found in one frame when scanning for multiple barcodes. Called on the
+ * main thread.
+ * 多条码扫描结果监听
+ */
+public interface MultipleScanResultListener {
+
+  /**
+   * @param results Every barcode found in the frame, with result points in framing rect
+   *                coordinates; in continuous scanning repeats have already been filtered out.
+   * @param barcode A greyscale image of the framing rect the barcodes were found in.
+   */
+  void onScanResults(Result[] results, Bitmap barcode);
+
+}
@@ -0,0 +1,34 @@
+package com.mazaiting.zxing.listener;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives every preview frame the camera delivers, see
+ * {@link com.mazaiting.zxing.camera.CameraManager#setPreviewFrameListener(PreviewFrameListener)}.
+ * The frame buffer belongs to the listener until it is handed back with
+ * {@link com.mazaiting.zxing.camera.CameraManager#releasePreviewFrame(byte[])}, or with
+ * {@link com.mazaiting.zxing.camera.CameraManager#releasePreviewFrame(com.mazaiting.zxing.camera.PreviewFrame)}
+ * for frames from a {@link com.mazaiting.zxing.camera.CameraBackend}.
+ * 预览帧监听
+ */
+public interface PreviewFrameListener {
+
+  /**
+   * @param data   The YUV preview frame.
+   * @param width  The width of the preview frame.
+   * @param height The height of the preview frame.
+   */
+  void onPreviewFrame(byte[] data, int width, int height);
+
+  /**
+   * Receives a frame from a {@link com.mazaiting.zxing.camera.CameraBackend} instead.
+   *
+   * @param yPlane      The Y plane of the frame.
+   * @param rowStride   The distance in bytes between the starts of two rows.
+   * @param pixelStride The distance in bytes between two pixels of a row.
+   * @param width       The width of the preview frame.
+   * @param height      The height of the preview frame.
+   */
+  void onPreviewImage(ByteBuffer yPlane, int rowStride, int pixelStride, int width, int height);
+
+}
@@ -0,0 +1,13 @@
+package com.mazaiting.zxing.listener;
+
+import com.mazaiting.zxing.util.ScanMetrics;
+
+/**
+ * Subscribes to {@link ScanMetrics}. Called on a decode thread, so it should return quickly.
+ * 扫描耗时统计监听
+ */
+public interface ScanMetricsListener {
+
+  void onScanMetrics(ScanMetrics metrics);
+
+}
@@ -0,0 +1,19 @@
+package com.mazaiting.zxing.listener;
+
+import android.graphics.Bitmap;
+
+import com.google.zxing.Result;
+
+/**
+ * Receives every new result while scanning continuously. Called on the main thread.
+ * 连续扫描结果监听
+ */
+public interface ScanResultListener {
+
+  /**
+   * @param result  The decoded barcode; repeats have already been filtered out.
+   * @param barcode A greyscale image of the framing rect the barcode was found in.
+   */
+  void onScanResult(Result result, Bitmap barcode);
+
+}
@@ -0,0 +1,129 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A reader which keeps one reader per scheduling unit and tries them in the order a
+ * {@link FormatScheduler} plans for each frame, recording every attempt back into it. Each 2D
+ * format is a unit of its own. The requested 1D formats form a single unit, scheduled under the
+ * first of them and named {@link #ONE_D_UNIT}; every hit is recorded with the format actually
+ * found. That unit's reader scans the rows once for all of them, as
+ * MultiFormatOneDReader does. A reader per 1D format would binarize and scan every sampled row
+ * once per format, nine times over with the default formats. The price is that 1D formats are
+ * ordered and pruned together, not one by one.
+ * The frame's deadline is checked before each reader.
+ * Like MultiFormatReader it is not thread safe; each decode worker has its own.
+ * 自适应格式解码器
+ */
+final class AdaptiveFormatReader implements Reader {
+
+  /** The name the unit of all 1D formats has in the statistics. */
+  static final String ONE_D_UNIT = "1D";
+
+  private final FormatScheduler scheduler;
+  private final DecodeBudget.Deadline deadline;
+  private final List<BarcodeFormat> formats;
+  private final Map<BarcodeFormat, MultiFormatReader> readers = new EnumMap<>(BarcodeFormat.class);
+
+  /**
+   * @param hints     Decode hints; POSSIBLE_FORMATS lists the formats to schedule, the other
+   *                  hints are passed on to every single-format reader.
+   * @param scheduler The scheduler shared by all workers.
+   * @param deadline  The deadline of the worker's frame.
+   */
+  @SuppressWarnings("unchecked")
+  AdaptiveFormatReader(Map<DecodeHintType, ?> hints, FormatScheduler scheduler,
+                       DecodeBudget.Deadline deadline) {
+    this.scheduler = scheduler;
+    this.deadline = deadline;
+    Collection<BarcodeFormat> possibleFormats = hints == null ? null :
+        (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+    if (possibleFormats == null || possibleFormats.isEmpty()) {
+      possibleFormats = new ArrayList<>();
+      possibleFormats.addAll(DecodeFormatManager.ONE_D_FORMATS);
+      possibleFormats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
+      possibleFormats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
+    }
+    formats = new ArrayList<>(possibleFormats.size());
+    List<BarcodeFormat> oneDFormats = new ArrayList<>();
+    for (BarcodeFormat format : possibleFormats) {
+      if (DecodeFormatManager.ONE_D_FORMATS.contains(format)) {
+        if (!oneDFormats.contains(format)) {
+          oneDFormats.add(format);
+        }
+      } else if (!readers.containsKey(format)) {
+        addUnit(hints, format, Collections.singletonList(format));
+      }
+    }
+    if (!oneDFormats.isEmpty()) {
+      addUnit(hints, oneDFormats.get(0), oneDFormats);
+      scheduler.nameUnit(oneDFormats.get(0), ONE_D_UNIT);
+    }
+  }
+
+  /**
+   * @param key         The format the unit is scheduled under.
+   * @param unitFormats The formats its reader looks for.
+   */
+  private void addUnit(Map<DecodeHintType, ?> hints, BarcodeFormat key,
+                       List<BarcodeFormat> unitFormats) {
+    Hashtable<DecodeHintType, Object> unitHints = new Hashtable<>();
+    if (hints != null) {
+      unitHints.putAll(hints);
+    }
+    unitHints.put(DecodeHintType.POSSIBLE_FORMATS, unitFormats);
+    MultiFormatReader reader = new MultiFormatReader();
+    reader.setHints(unitHints);
+    readers.put(key, reader);
+    formats.add(key);
+  }
+
+  @Override
+  public Result decode(BinaryBitmap image) throws NotFoundException {
+    for (BarcodeFormat format : scheduler.plan(formats)) {
+      deadline.check();
+      MultiFormatReader reader = readers.get(format);
+      long start = System.nanoTime();
+      try {
+        Result result = reader.decodeWithState(image);
+        scheduler.record(format, result.getBarcodeFormat(), System.nanoTime() - start);
+        return result;
+      } catch (NotFoundException nfe) {
+        scheduler.record(format, null, System.nanoTime() - start);
+      } finally {
+        reader.reset();
+      }
+    }
+    throw NotFoundException.getNotFoundInstance();
+  }
+
+  /**
+   * Decodes with one-off hints; this bypasses the scheduler.
+   */
+  @Override
+  public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> hints) throws NotFoundException {
+    return new MultiFormatReader().decode(image, hints);
+  }
+
+  @Override
+  public void reset() {
+    for (MultiFormatReader reader : readers.values()) {
+      reader.reset();
+    }
+  }
+
+}
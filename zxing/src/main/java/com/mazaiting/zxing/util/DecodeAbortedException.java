@@ -0,0 +1,27 @@
+package com.mazaiting.zxing.util;
+
+/**
+ * Thrown from the seams of the decode path when the frame is to be abandoned, see
+ * {@link DecodeBudget}. It is unchecked so that it passes through the zxing readers, which only
+ * catch ReaderException, and like zxing's own exceptions it is a singleton without a stack trace.
+ * 解码中止异常
+ */
+final class DecodeAbortedException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final DecodeAbortedException INSTANCE = new DecodeAbortedException();
+
+  private DecodeAbortedException() {
+  }
+
+  static DecodeAbortedException getInstance() {
+    return INSTANCE;
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+
+}
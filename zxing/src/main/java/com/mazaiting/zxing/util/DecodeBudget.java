@@ -0,0 +1,127 @@
+package com.mazaiting.zxing.util;
+
+/**
+ * How long a decode worker may spend on one frame, and the switch that stops every worker at
+ * once. The readers cannot be interrupted, so the decode path checks a {@link Deadline} at its
+ * own seams instead: before every row and matrix the binarizer hands out, before every reader it
+ * tries and before every pyramid level. A frame whose budget has run out, or which is still being
+ * decoded when the budget is cancelled, is abandoned at the next of these checks and counted; the
+ * worker moves on to the newest frame, or quits.
+ *
+ * Detection and decoding of 2D codes run entirely on the binarized matrix and pass none of
+ * these checks, so they cannot be interrupted: a dense Data Matrix-like texture still takes as
+ * long as its detectors take, and a worker may finish a decode after the budget was cancelled.
+ * Results of such decodes have to be dropped by the caller, see {@link #isCancelled()}.
+ *
+ * One budget is shared by all decode workers.
+ * 解码时间预算
+ */
+public final class DecodeBudget {
+
+  /** A frame still undecoded after this long is abandoned. */
+  public static final long DEFAULT_BUDGET_MILLIS = 250L;
+
+  private volatile long budgetNanos = DEFAULT_BUDGET_MILLIS * 1000000L;
+  private volatile boolean cancelled;
+
+  private long abandonedCount;
+  private long cancelledCount;
+
+  /**
+   * Sets how long a worker may spend on one frame; 0 turns the budget off.
+   */
+  public void setBudgetMillis(long budgetMillis) {
+    if (budgetMillis < 0) {
+      throw new IllegalArgumentException("Budget must not be negative: " + budgetMillis);
+    }
+    budgetNanos = budgetMillis * 1000000L;
+  }
+
+  /**
+   * Abandons the frames being decoded, and every frame after them, at their next check.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * @return Whether scanning stopped; results decoded from now on must not be posted.
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  private synchronized void onAborted(boolean byCancel) {
+    if (byCancel) {
+      cancelledCount++;
+    } else {
+      abandonedCount++;
+    }
+  }
+
+  /**
+   * @return The number of frames abandoned over their budget.
+   */
+  public synchronized long getAbandonedCount() {
+    return abandonedCount;
+  }
+
+  /**
+   * @return The number of frames abandoned because the budget was cancelled.
+   */
+  public synchronized long getCancelledCount() {
+    return cancelledCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return (budgetNanos / 1000000L) + " ms budget, " + abandonedCount + " frames over it, "
+        + cancelledCount + " cancelled";
+  }
+
+  /**
+   * The deadline of the frame a worker is decoding. Not thread safe; each decode worker has its
+   * own.
+   */
+  static final class Deadline {
+
+    private final DecodeBudget budget;
+    private boolean limited;
+    private long deadlineNanos;
+
+    /**
+     * @param budget The budget to take the time limit and the cancel switch from, or null for a
+     *               deadline which never passes.
+     */
+    Deadline(DecodeBudget budget) {
+      this.budget = budget;
+    }
+
+    /**
+     * Starts the budget of the next frame.
+     */
+    void start(long startNanos) {
+      long budgetNanos = budget == null ? 0L : budget.budgetNanos;
+      limited = budgetNanos > 0;
+      deadlineNanos = startNanos + budgetNanos;
+    }
+
+    /**
+     * @throws DecodeAbortedException If the frame is over its budget or the budget was cancelled.
+     */
+    void check() {
+      if (budget != null
+          && (budget.cancelled || limited && System.nanoTime() - deadlineNanos > 0)) {
+        throw DecodeAbortedException.getInstance();
+      }
+    }
+
+    /**
+     * Counts the frame which was just abandoned.
+     */
+    void onAborted() {
+      budget.onAborted(budget.cancelled);
+    }
+  }
+
+}
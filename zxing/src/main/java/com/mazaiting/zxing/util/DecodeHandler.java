@@ -16,24 +16,24 @@
 
 package com.mazaiting.zxing.util;
 
+import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.util.Log;
 
-import com.google.zxing.BinaryBitmap;
 import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 import com.mazaiting.zxing.CaptureActivity;
 import com.mazaiting.zxing.R;
 import com.mazaiting.zxing.camera.CameraManager;
-import com.mazaiting.zxing.camera.PlanarYUVLuminanceSource;
+import com.mazaiting.zxing.camera.PreviewFrame;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
 
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 
 //Handler
 final class DecodeHandler extends Handler {
@@ -41,69 +41,150 @@ final class DecodeHandler extends Handler {
   private static final String TAG = DecodeHandler.class.getSimpleName();
   //activity
   private final CaptureActivity activity;
-  //Zxing
-  private final MultiFormatReader multiFormatReader;
+  //帧解码器, 由粗到细逐级解码并记录各阶段耗时
+  private final FrameDecoder frameDecoder;
+  //帧调度器, 为空时只解码收到的帧
+  private final FrameScheduler frameScheduler;
+  //解码线程序号
+  private final int workerIndex;
+  //解码时间预算, 退出时被取消
+  private final DecodeBudget budget;
 
-  DecodeHandler(CaptureActivity activity, Hashtable<DecodeHintType, Object> hints) {
-    multiFormatReader = new MultiFormatReader();
-    multiFormatReader.setHints(hints);
+  DecodeHandler(CaptureActivity activity, Hashtable<DecodeHintType, Object> hints,
+                FormatScheduler formatScheduler, RegionTracker regionTracker,
+                HintEscalation escalation, FrameQualityGate qualityGate,
+                SceneChangeDetector sceneDetector, DecodeBudget budget, DecodeMetrics metrics,
+                FrameScheduler frameScheduler, int workerIndex) {
+    frameDecoder = new FrameDecoder(hints, formatScheduler, regionTracker, escalation,
+        qualityGate, sceneDetector, budget, metrics);
     this.activity = activity;
+    this.frameScheduler = frameScheduler;
+    this.workerIndex = workerIndex;
+    this.budget = budget;
+  }
+
+  /**
+   * @return The handler to post results to, or null once scanning has stopped: the budget was
+   *         cancelled on quit, or the activity dropped its handler. 2D detection cannot be
+   *         interrupted, so a worker may still find a code after the pool quit.
+   */
+  private Handler getResultHandler() {
+    if (budget != null && budget.isCancelled()) {
+      return null;
+    }
+    return activity.getHandler();
   }
 
   @Override
   public void handleMessage(Message message) {
     if (message.what == R.id.zxing_decode) {
-      decode((byte[]) message.obj, message.arg1, message.arg2);
+      // Keep taking the newest waiting frame until the scheduler has none left.
+      PreviewFrame frame = (PreviewFrame) message.obj;
+      while (frame != null) {
+        if (activity.isMultipleScan()) {
+          decodeMultiple(frame);
+        } else {
+          decode(frame);
+        }
+        frame = frameScheduler == null ? null : frameScheduler.next(workerIndex);
+      }
     } else if (message.what == R.id.zxing_quit) {
       Looper.myLooper().quit();
     }
   }
 
   /**
-   * Decode the data within the viewfinder rectangle, and time how long it took. For efficiency,
+   * Decode the data within the viewfinder rectangle, and time each stage of it. For efficiency,
    * reuse the same reader objects from one decode to the next.
    *
-   * @param data   The YUV preview frame.
-   * @param width  The width of the preview frame.
-   * @param height The height of the preview frame.
+   * The result message carries the frame sequence in arg1 and the worker index in arg2.
+   *
+   * @param frame The YUV preview frame.
    */
-  private void decode(byte[] data, int width, int height) {
-    long start = System.currentTimeMillis();
-    Result rawResult = null;
+  private void decode(PreviewFrame frame) {
+    frameDecoder.begin(frame);
     
-    //modify here
-    byte[] rotatedData = new byte[data.length];
-    for (int y = 0; y < height; y++) {
-        for (int x = 0; x < width; x++)
-            rotatedData[x * height + height - y - 1] = data[x + y * width];
+    // The preview frame is read in display orientation through a rotated view, so only the
+    // pixels inside the framing rect are touched and no rotated copy of the frame is made.
+    RotatedPlanarYUVLuminanceSource source = CameraManager.get().buildRotatedLuminanceSource(frame);
+    Result rawResult = frameDecoder.decode(source);
+    Handler resultHandler = getResultHandler();
+    if (resultHandler == null) {
+      rawResult = null;
     }
-    int tmp = width; // Here we are swapping, that's the difference to #11
-    width = height;
-    height = tmp;
-    
-    PlanarYUVLuminanceSource source = CameraManager.get().buildLuminanceSource(rotatedData, width, height);
-    BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-    try {
-      rawResult = multiFormatReader.decodeWithState(bitmap);
-    } catch (ReaderException re) {
-      // continue
-    } finally {
-      multiFormatReader.reset();
+    if (rawResult != null && activity.isContinuousScan()
+        && !activity.getDuplicateFilter().accept(rawResult)) {
+      // Seen just before; continuous scanning reports every code once.
+      Log.d(TAG, "Suppressing repeated " + rawResult.getBarcodeFormat() + " result");
+      rawResult = null;
     }
 
+    // Render before the preview buffer goes back to the camera and gets overwritten.
+    Bitmap barcode = rawResult == null ? null : source.renderCroppedGreyscaleBitmap();
+    CameraManager.get().releasePreviewFrame(frame);
+
     if (rawResult != null) {
-      long end = System.currentTimeMillis();
-      Log.d(TAG, "Found barcode (" + (end - start) + " ms):\n" + rawResult.toString());
-      Message message = Message.obtain(activity.getHandler(), R.id.zxing_decode_succeeded, rawResult);
+      Log.d(TAG, "Found barcode (" + frameDecoder.getDecodeMillis() + " ms, 1/"
+          + frameDecoder.getLastFactor() + " scale):\n" + rawResult.toString());
+      Message message = Message.obtain(resultHandler, R.id.zxing_decode_succeeded,
+          frame.getSequence(), workerIndex, rawResult);
       Bundle bundle = new Bundle();
-      bundle.putParcelable(DecodeThread.BARCODE_BITMAP, source.renderCroppedGreyscaleBitmap());
+      bundle.putParcelable(DecodeThread.BARCODE_BITMAP, barcode);
       message.setData(bundle);
       //Log.d(TAG, "Sending decode succeeded message...");
       message.sendToTarget();
-    } else {
-      Message message = Message.obtain(activity.getHandler(), R.id.zxing_decode_failed);
+    } else if (frameScheduler == null && resultHandler != null) {
+      // Without a scheduler the activity has to ask for the next frame itself.
+      Message message = Message.obtain(resultHandler, R.id.zxing_decode_failed,
+          frame.getSequence(), workerIndex);
+      message.sendToTarget();
+    }
+    frameDecoder.finish(frame, rawResult != null);
+  }
+
+  /**
+   * Decode every barcode within the viewfinder rectangle. The message carries all results at
+   * once as a Result[], with the frame sequence in arg1 and the worker index in arg2.
+   *
+   * @param frame The YUV preview frame.
+   */
+  private void decodeMultiple(PreviewFrame frame) {
+    frameDecoder.begin(frame);
+
+    RotatedPlanarYUVLuminanceSource source = CameraManager.get().buildRotatedLuminanceSource(frame);
+    Result[] rawResults = frameDecoder.decodeMultiple(source);
+    Handler resultHandler = getResultHandler();
+    if (resultHandler == null) {
+      rawResults = null;
+    }
+    if (rawResults != null && activity.isContinuousScan()) {
+      List<Result> newResults = new ArrayList<>(rawResults.length);
+      for (Result rawResult : rawResults) {
+        if (activity.getDuplicateFilter().accept(rawResult)) {
+          newResults.add(rawResult);
+        }
+      }
+      rawResults = newResults.isEmpty() ? null : newResults.toArray(new Result[newResults.size()]);
+    }
+
+    Bitmap barcode = rawResults == null ? null : source.renderCroppedGreyscaleBitmap();
+    CameraManager.get().releasePreviewFrame(frame);
+
+    if (rawResults != null) {
+      Log.d(TAG, "Found " + rawResults.length + " barcodes (" + frameDecoder.getDecodeMillis()
+          + " ms)");
+      Message message = Message.obtain(resultHandler,
+          R.id.zxing_decode_multiple_succeeded, frame.getSequence(), workerIndex, rawResults);
+      Bundle bundle = new Bundle();
+      bundle.putParcelable(DecodeThread.BARCODE_BITMAP, barcode);
+      message.setData(bundle);
+      message.sendToTarget();
+    } else if (frameScheduler == null && resultHandler != null) {
+      Message message = Message.obtain(resultHandler, R.id.zxing_decode_failed,
+          frame.getSequence(), workerIndex);
       message.sendToTarget();
     }
+    frameDecoder.finish(frame, rawResults != null);
   }
 
 }
@@ -0,0 +1,117 @@
+package com.mazaiting.zxing.util;
+
+import com.mazaiting.zxing.listener.ScanMetricsListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link ScanMetrics} recorded by the workers of a {@link DecodeWorkerPool}. It may outlive
+ * the pool, so that the timings and subscriptions of one scan session carry over to the next.
+ * 解码耗时统计
+ */
+public final class DecodeMetrics implements ScanMetrics {
+
+  private final TimingHistogram[] histograms;
+  private final List<Subscription> subscriptions = new ArrayList<>();
+  private long frames;
+  private long successes;
+
+  public DecodeMetrics() {
+    histograms = new TimingHistogram[Stage.values().length];
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new TimingHistogram();
+    }
+  }
+
+  /**
+   * Records the stages of one frame and tells the listeners whose interval is up.
+   */
+  void record(StageTimer timer, boolean found) {
+    List<ScanMetricsListener> due = null;
+    synchronized (this) {
+      for (Stage stage : Stage.values()) {
+        histograms[stage.ordinal()].record(timer.get(stage));
+      }
+      frames++;
+      if (found) {
+        successes++;
+      }
+      for (Subscription subscription : subscriptions) {
+        if (frames % subscription.frameInterval == 0) {
+          if (due == null) {
+            due = new ArrayList<>();
+          }
+          due.add(subscription.listener);
+        }
+      }
+    }
+    if (due != null) {
+      for (ScanMetricsListener listener : due) {
+        listener.onScanMetrics(this);
+      }
+    }
+  }
+
+  @Override
+  public synchronized long getFrameCount() {
+    return frames;
+  }
+
+  @Override
+  public synchronized long getSuccessCount() {
+    return successes;
+  }
+
+  @Override
+  public synchronized TimingHistogram getHistogram(Stage stage) {
+    return histograms[stage.ordinal()].copy();
+  }
+
+  @Override
+  public synchronized void addListener(ScanMetricsListener listener, int frameInterval) {
+    if (frameInterval < 1) {
+      throw new IllegalArgumentException("Frame interval must be at least 1: " + frameInterval);
+    }
+    subscriptions.add(new Subscription(listener, frameInterval));
+  }
+
+  @Override
+  public synchronized void removeListener(ScanMetricsListener listener) {
+    for (int i = subscriptions.size() - 1; i >= 0; i--) {
+      if (subscriptions.get(i).listener == listener) {
+        subscriptions.remove(i);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void reset() {
+    for (TimingHistogram histogram : histograms) {
+      histogram.reset();
+    }
+    frames = 0;
+    successes = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(frames).append(" frames, ").append(successes).append(" found");
+    for (Stage stage : Stage.values()) {
+      builder.append('\n').append(stage).append(": ").append(histograms[stage.ordinal()]);
+    }
+    return builder.toString();
+  }
+
+  private static final class Subscription {
+    final ScanMetricsListener listener;
+    final int frameInterval;
+
+    Subscription(ScanMetricsListener listener, int frameInterval) {
+      this.listener = listener;
+      this.frameInterval = frameInterval;
+    }
+  }
+
+}
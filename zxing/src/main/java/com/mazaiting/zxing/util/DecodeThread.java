@@ -38,6 +38,15 @@ public final class DecodeThread extends Thread {
   
   private final CaptureActivity activity;
   private final Hashtable<DecodeHintType, Object> hints;
+  private final FormatScheduler formatScheduler;
+  private final RegionTracker regionTracker;
+  private final HintEscalation escalation;
+  private final FrameQualityGate qualityGate;
+  private final SceneChangeDetector sceneDetector;
+  private final DecodeBudget budget;
+  private final DecodeMetrics metrics;
+  private final FrameScheduler frameScheduler;
+  private final int workerIndex;
   private Handler handler;
   private final CountDownLatch handlerInitLatch;
 
@@ -45,26 +54,57 @@ public final class DecodeThread extends Thread {
                Vector<BarcodeFormat> decodeFormats,
                String characterSet,
                ResultPointCallback resultPointCallback) {
+    this(activity, decodeFormats, characterSet, resultPointCallback, new FormatScheduler(), null,
+        null, null, null, null, new DecodeMetrics(), null, 0);
+  }
+
+  /**
+   * @param formatScheduler The scheduler deciding in which order formats are tried, usually
+   *                        shared with the other workers.
+   * @param regionTracker   The tracker predicting where to decode, usually shared with the other
+   *                        workers, or null to always decode the whole framing rect.
+   * @param escalation      The policy bringing in slower decode profiles after repeated misses,
+   *                        usually shared with the other workers, or null to always decode fast.
+   * @param qualityGate     The gate skipping blurred and flat frames, usually shared with the
+   *                        other workers, or null to decode every frame.
+   * @param sceneDetector   The detector skipping frames of an unchanged scene, usually shared
+   *                        with the other workers, or null to decode every frame.
+   * @param budget          The time each frame may take, usually shared with the other workers,
+   *                        or null to decode every frame to the end.
+   * @param metrics         The metrics this thread records its stage timings into.
+   * @param frameScheduler The scheduler this thread takes its next frame from after each
+   *                       decode, or null to decode only the frames sent to it.
+   * @param workerIndex    Index of this thread in its {@link DecodeWorkerPool}, reported back
+   *                       with every decode result.
+   */
+  DecodeThread(CaptureActivity activity,
+               Vector<BarcodeFormat> decodeFormats,
+               String characterSet,
+               ResultPointCallback resultPointCallback,
+               FormatScheduler formatScheduler,
+               RegionTracker regionTracker,
+               HintEscalation escalation,
+               FrameQualityGate qualityGate,
+               SceneChangeDetector sceneDetector,
+               DecodeBudget budget,
+               DecodeMetrics metrics,
+               FrameScheduler frameScheduler,
+               int workerIndex) {
+    super("DecodeThread-" + workerIndex);
 
     this.activity = activity;
+    this.formatScheduler = formatScheduler;
+    this.regionTracker = regionTracker;
+    this.escalation = escalation;
+    this.qualityGate = qualityGate;
+    this.sceneDetector = sceneDetector;
+    this.budget = budget;
+    this.metrics = metrics;
+    this.frameScheduler = frameScheduler;
+    this.workerIndex = workerIndex;
     handlerInitLatch = new CountDownLatch(1);
 
-    hints = new Hashtable<>(3);
-
-    if (decodeFormats == null || decodeFormats.isEmpty()) {
-    	 decodeFormats = new Vector<>();
-    	 decodeFormats.addAll(DecodeFormatManager.ONE_D_FORMATS);
-    	 decodeFormats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
-    	 decodeFormats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
-    }
-    
-    hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
-
-    if (characterSet != null) {
-      hints.put(DecodeHintType.CHARACTER_SET, characterSet);
-    }
-
-    hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, resultPointCallback);
+    hints = FrameDecoder.createHints(decodeFormats, characterSet, resultPointCallback);
   }
 
   public Handler getHandler() {
@@ -79,7 +119,8 @@ public final class DecodeThread extends Thread {
   @Override
   public void run() {
     Looper.prepare();
-    handler = new DecodeHandler(activity, hints);
+    handler = new DecodeHandler(activity, hints, formatScheduler, regionTracker, escalation,
+        qualityGate, sceneDetector, budget, metrics, frameScheduler, workerIndex);
     handlerInitLatch.countDown();
     Looper.loop();
   }
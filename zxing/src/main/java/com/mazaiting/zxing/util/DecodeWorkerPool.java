@@ -0,0 +1,176 @@
+package com.mazaiting.zxing.util;
+
+import android.os.Message;
+import android.util.Log;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.ResultPointCallback;
+import com.mazaiting.zxing.CaptureActivity;
+import com.mazaiting.zxing.R;
+
+import java.util.Vector;
+
+/**
+ * A fixed set of {@link DecodeThread}s, each with its own {@link DecodeHandler} and
+ * reader, so that several preview frames can be decoded at the same time on
+ * multi-core devices. Frames reach the workers through the pool's {@link FrameScheduler}, which
+ * numbers them; every decode success reports the frame sequence in arg1 and the worker index in
+ * arg2. All workers share one {@link FormatScheduler}, so the format order learned by one
+ * worker applies to all of them, and one {@link RegionTracker}, so a barcode located on one
+ * worker's frame narrows the search on the next frame of every worker. One
+ * {@link HintEscalation} decides across all workers when slower decode profiles are due. One
+ * {@link FrameQualityGate} keeps blurred and flat frames from reaching any reader, and one
+ * {@link SceneChangeDetector} keeps a still camera from decoding the same failing image again.
+ * One {@link DecodeBudget} abandons frames which take too long, and stops every worker on quit.
+ * 解码线程池
+ */
+public final class DecodeWorkerPool {
+
+  private static final String TAG = DecodeWorkerPool.class.getSimpleName();
+
+  /** One core stays free for the UI and camera threads; more than four rarely pays off. */
+  public static final int DEFAULT_WORKER_COUNT =
+      Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+  /** The longest {@link #quitSynchronously()} waits for the workers, in total. */
+  public static final long QUIT_TIMEOUT_MILLIS = 5L;
+
+  private final DecodeThread[] workers;
+  private final FrameScheduler frameScheduler;
+  private final FormatScheduler formatScheduler;
+  private final RegionTracker regionTracker;
+  private final HintEscalation escalation;
+  private final FrameQualityGate qualityGate;
+  private final SceneChangeDetector sceneDetector;
+  private final DecodeBudget budget;
+  private final DecodeMetrics metrics;
+
+  public DecodeWorkerPool(CaptureActivity activity,
+                          Vector<BarcodeFormat> decodeFormats,
+                          String characterSet,
+                          ResultPointCallback resultPointCallback,
+                          DecodeMetrics metrics,
+                          int workerCount) {
+    if (workerCount < 1) {
+      throw new IllegalArgumentException("Worker count must be at least 1: " + workerCount);
+    }
+    workers = new DecodeThread[workerCount];
+    frameScheduler = new FrameScheduler(workerCount);
+    formatScheduler = new FormatScheduler();
+    regionTracker = new RegionTracker();
+    escalation = new HintEscalation();
+    qualityGate = new FrameQualityGate();
+    sceneDetector = new SceneChangeDetector();
+    budget = new DecodeBudget();
+    this.metrics = metrics;
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = new DecodeThread(activity, decodeFormats, characterSet, resultPointCallback,
+          formatScheduler, regionTracker, escalation, qualityGate, sceneDetector, budget,
+          metrics, frameScheduler, i);
+    }
+  }
+
+  public void start() {
+    for (DecodeThread worker : workers) {
+      worker.start();
+    }
+    for (int i = 0; i < workers.length; i++) {
+      frameScheduler.setWorker(i, workers[i].getHandler());
+    }
+  }
+
+  public int getWorkerCount() {
+    return workers.length;
+  }
+
+  /**
+   * @return The scheduler which hands preview frames to the workers; register it with
+   *         {@link com.mazaiting.zxing.camera.CameraManager#setPreviewFrameListener}.
+   */
+  public FrameScheduler getFrameScheduler() {
+    return frameScheduler;
+  }
+
+  /**
+   * @return The scheduler which orders the barcode formats, with its statistics.
+   */
+  public FormatScheduler getFormatScheduler() {
+    return formatScheduler;
+  }
+
+  /**
+   * @return The tracker predicting the region of interest, with its statistics.
+   */
+  public RegionTracker getRegionTracker() {
+    return regionTracker;
+  }
+
+  /**
+   * @return The policy bringing in slower decode profiles, with its counters; configure it
+   *         before scanning starts.
+   */
+  public HintEscalation getHintEscalation() {
+    return escalation;
+  }
+
+  /**
+   * @return The gate skipping blurred and flat frames, with its reject counts.
+   */
+  public FrameQualityGate getFrameQualityGate() {
+    return qualityGate;
+  }
+
+  /**
+   * @return The detector skipping frames of an unchanged scene, with its skip count.
+   */
+  public SceneChangeDetector getSceneChangeDetector() {
+    return sceneDetector;
+  }
+
+  /**
+   * @return The time each frame may take, with the count of frames abandoned over it; configure
+   *         it before scanning starts.
+   */
+  public DecodeBudget getDecodeBudget() {
+    return budget;
+  }
+
+  /**
+   * @return The stage timings of every frame the workers decoded.
+   */
+  public ScanMetrics getScanMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Stops handing out frames, abandons the frames being decoded, asks every worker to quit and
+   * waits up to {@link #QUIT_TIMEOUT_MILLIS} for them to finish. A worker stuck in a reader past
+   * that quits on its own at the next deadline check, or once its uninterruptible 2D detection
+   * returns; the cancelled budget keeps it from posting its result, if any.
+   */
+  public void quitSynchronously() {
+    budget.cancel();
+    frameScheduler.pause();
+    for (DecodeThread worker : workers) {
+      Message.obtain(worker.getHandler(), R.id.zxing_quit).sendToTarget();
+    }
+    long deadline = System.nanoTime() + QUIT_TIMEOUT_MILLIS * 1000000L;
+    int running = 0;
+    for (DecodeThread worker : workers) {
+      long remaining = deadline - System.nanoTime();
+      try {
+        if (remaining > 0) {
+          worker.join(remaining / 1000000L, (int) (remaining % 1000000L));
+        }
+      } catch (InterruptedException e) {
+        // continue
+      }
+      if (worker.isAlive()) {
+        running++;
+      }
+    }
+    if (running > 0) {
+      Log.w(TAG, running + " decode workers still finishing a frame");
+    }
+  }
+
+}
@@ -0,0 +1,149 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Suppresses repeated results in continuous scanning. Codes are remembered by format and text in
+ * a bounded, least recently used cache. A code which is reported stays suppressed for as long as
+ * it keeps being seen, and until it has been out of sight for the time to live; on top of that it
+ * is never reported twice within its cool-down, which can be set per format.
+ * 重复结果过滤器
+ */
+public final class DuplicateFilter {
+
+  public static final int DEFAULT_MAX_ENTRIES = 64;
+  public static final long DEFAULT_TTL_MILLIS = 1500L;
+  public static final long DEFAULT_COOLDOWN_MILLIS = 3000L;
+
+  private final int maxEntries;
+  private final LinkedHashMap<String, Entry> entries;
+  private final Map<BarcodeFormat, Long> cooldowns = new EnumMap<>(BarcodeFormat.class);
+  private long ttlMillis = DEFAULT_TTL_MILLIS;
+  private long cooldownMillis = DEFAULT_COOLDOWN_MILLIS;
+
+  private long acceptedCount;
+  private long suppressedCount;
+
+  public DuplicateFilter() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  public DuplicateFilter(int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Cache size must be at least 1: " + maxEntries);
+    }
+    this.maxEntries = maxEntries;
+    entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Sets how long a code has to be out of sight before it may be reported again.
+   */
+  public synchronized void setTtlMillis(long ttlMillis) {
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * Sets the least time between two reports of the same code.
+   */
+  public synchronized void setCooldownMillis(long cooldownMillis) {
+    this.cooldownMillis = cooldownMillis;
+  }
+
+  /**
+   * Sets the least time between two reports of the same code of the given format, overriding
+   * the default cool-down.
+   */
+  public synchronized void setCooldownMillis(BarcodeFormat format, long cooldownMillis) {
+    cooldowns.put(format, cooldownMillis);
+  }
+
+  /**
+   * @return Whether the result is new and should be reported.
+   */
+  public boolean accept(Result result) {
+    return accept(result.getBarcodeFormat(), result.getText(), System.currentTimeMillis());
+  }
+
+  /**
+   * @param nowMillis The time the code was seen.
+   * @return Whether the code is new and should be reported.
+   */
+  public synchronized boolean accept(BarcodeFormat format, String text, long nowMillis) {
+    String key = format + ":" + text;
+    Entry entry = entries.get(key);
+    if (entry != null && !isExpired(entry, nowMillis)) {
+      // Still in sight, or reported too recently: suppress and keep it alive.
+      entry.lastSeenMillis = nowMillis;
+      suppressedCount++;
+      return false;
+    }
+    if (entry == null) {
+      entry = new Entry(format);
+      entries.put(key, entry);
+    }
+    entry.lastSeenMillis = nowMillis;
+    entry.reportedMillis = nowMillis;
+    evict(nowMillis);
+    acceptedCount++;
+    return true;
+  }
+
+  private boolean isExpired(Entry entry, long nowMillis) {
+    Long cooldown = cooldowns.get(entry.format);
+    long cooldownMillis = cooldown == null ? this.cooldownMillis : cooldown;
+    return nowMillis - entry.lastSeenMillis >= ttlMillis
+        && nowMillis - entry.reportedMillis >= cooldownMillis;
+  }
+
+  /**
+   * Drops expired entries, then the least recently seen ones beyond the cache size.
+   */
+  private void evict(long nowMillis) {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (entries.size() > maxEntries || isExpired(entry, nowMillis)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Forgets every code, so each is reported again when next seen.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * @return The number of results reported.
+   */
+  public synchronized long getAcceptedCount() {
+    return acceptedCount;
+  }
+
+  /**
+   * @return The number of results suppressed as repeats.
+   */
+  public synchronized long getSuppressedCount() {
+    return suppressedCount;
+  }
+
+  private static final class Entry {
+    final BarcodeFormat format;
+    long lastSeenMillis;
+    long reportedMillis;
+
+    Entry(BarcodeFormat format) {
+      this.format = format;
+    }
+  }
+
+}
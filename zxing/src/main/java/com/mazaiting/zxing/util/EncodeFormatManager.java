@@ -23,25 +23,7 @@ public class EncodeFormatManager {
    */
   public static Bitmap encodeQrCode(String content, int width) {
     try {
-      //1,创建实例化对象
-      QRCodeWriter writer = new QRCodeWriter();
-      //2,设置字符集
-      HashMap<EncodeHintType, String> map = new HashMap<>();
-      map.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-      //3,通过encode方法将内容写入矩阵对象
-      BitMatrix matrix = writer.encode(content, BarcodeFormat.QR_CODE, width, width, map);
-      //4,定义一个二维码像素点的数组，向每个像素点中填充颜色
-      int[] pixels = new int[width * width];
-      //5,往每一像素点中填充颜色（像素没数据则用黑色填充，没有则用彩色填充，不过一般用白色）
-      for (int i = 0; i < width; i++) {
-        for (int j = 0; j < width; j++) {
-          if (matrix.get(j, i)) {
-            pixels[i * width + j] = -0x1000000;
-          } else {
-            pixels[i * width + j] = -0x1;
-          }
-        }
-      }
+      int[] pixels = encodeQrCodePixels(content, width);
       //6,创建一个指定高度和宽度的空白bitmap对象
       Bitmap bmQR = Bitmap.createBitmap(width, width, Bitmap.Config.ARGB_8888);
       //7，将每个像素的颜色填充到bitmap对象
@@ -54,6 +36,36 @@ public class EncodeFormatManager {
     return null;
   }
   
+  /**
+   * 生成二维码像素
+   * @param content 二维码内容
+   * @param width 二维码宽高
+   * @return 按行排列的ARGB像素
+   * @throws WriterException 内容无法编码
+   */
+  public static int[] encodeQrCodePixels(String content, int width) throws WriterException {
+    //1,创建实例化对象
+    QRCodeWriter writer = new QRCodeWriter();
+    //2,设置字符集
+    HashMap<EncodeHintType, String> map = new HashMap<>();
+    map.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+    //3,通过encode方法将内容写入矩阵对象
+    BitMatrix matrix = writer.encode(content, BarcodeFormat.QR_CODE, width, width, map);
+    //4,定义一个二维码像素点的数组，向每个像素点中填充颜色
+    int[] pixels = new int[width * width];
+    //5,往每一像素点中填充颜色（像素没数据则用黑色填充，没有则用彩色填充，不过一般用白色）
+    for (int i = 0; i < width; i++) {
+      for (int j = 0; j < width; j++) {
+        if (matrix.get(j, i)) {
+          pixels[i * width + j] = -0x1000000;
+        } else {
+          pixels[i * width + j] = -0x1;
+        }
+      }
+    }
+    return pixels;
+  }
+  
   /**
    * 用于向创建的二维码中添加一个login
    * @param bmQr 二维码对象
@@ -0,0 +1,335 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides in which order the barcode formats are tried on each frame. Every attempt is recorded
+ * with whether it found a barcode and how long it took; over a sliding window of recent attempts
+ * per format the formats are ordered by hits per unit of decode time, so the format which is
+ * actually being scanned is tried first.
+ *
+ * Once any format has hits in its window, formats which have been tried often enough without a
+ * single hit are pruned and skipped. Every {@code sweepInterval}-th frame is a full sweep which
+ * tries every format, pruned ones last, so a rare format is still found and comes back as soon
+ * as it hits. One scheduler is shared by all decode workers.
+ *
+ * A scheduling unit is usually one format. A unit may also stand for several formats read in one
+ * pass, such as the 1D formats; it is planned under a key format and named with
+ * {@link #nameUnit}, and its statistics count hits by the format actually found.
+ * 条码格式调度器
+ */
+public final class FormatScheduler {
+
+  public static final int DEFAULT_WINDOW_SIZE = 64;
+  public static final int DEFAULT_SWEEP_INTERVAL = 10;
+
+  /** A format needs this many misses in its window before it can be pruned. */
+  private static final int MIN_ATTEMPTS_TO_PRUNE = 16;
+  /** Assumed cost of a format which has not been tried yet. */
+  private static final long UNKNOWN_COST_NANOS = 1000000L;
+
+  private final int windowSize;
+  private final int sweepInterval;
+  private final Map<BarcodeFormat, Window> windows = new EnumMap<>(BarcodeFormat.class);
+  private final Map<BarcodeFormat, String> unitNames = new EnumMap<>(BarcodeFormat.class);
+  private long plannedFrames;
+  private long sweeps;
+
+  public FormatScheduler() {
+    this(DEFAULT_WINDOW_SIZE, DEFAULT_SWEEP_INTERVAL);
+  }
+
+  /**
+   * @param windowSize    Number of recent attempts per format the statistics are taken over.
+   * @param sweepInterval Every this many frames all formats are tried; 1 disables pruning.
+   */
+  public FormatScheduler(int windowSize, int sweepInterval) {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("Window size must be at least 1: " + windowSize);
+    }
+    if (sweepInterval < 1) {
+      throw new IllegalArgumentException("Sweep interval must be at least 1: " + sweepInterval);
+    }
+    this.windowSize = windowSize;
+    this.sweepInterval = sweepInterval;
+  }
+
+  /**
+   * Plans the next frame.
+   *
+   * @param formats The formats the caller is able to decode, in their default order.
+   * @return The formats to try on this frame, best first.
+   */
+  synchronized List<BarcodeFormat> plan(Collection<BarcodeFormat> formats) {
+    boolean sweep = plannedFrames++ % sweepInterval == 0;
+    if (sweep) {
+      sweeps++;
+    }
+    boolean anyHits = false;
+    for (BarcodeFormat format : formats) {
+      if (window(format).hits > 0) {
+        anyHits = true;
+      }
+    }
+    List<BarcodeFormat> active = new ArrayList<>(formats.size());
+    List<BarcodeFormat> pruned = new ArrayList<>();
+    for (BarcodeFormat format : formats) {
+      if (anyHits && isPruned(windows.get(format))) {
+        pruned.add(format);
+      } else {
+        active.add(format);
+      }
+    }
+    // The sort is stable, so formats without statistics keep their default order.
+    Collections.sort(active, new Comparator<BarcodeFormat>() {
+      @Override
+      public int compare(BarcodeFormat a, BarcodeFormat b) {
+        return Double.compare(windows.get(b).score(), windows.get(a).score());
+      }
+    });
+    if (sweep) {
+      active.addAll(pruned);
+    }
+    return active;
+  }
+
+  /**
+   * Names a unit of several formats planned under {@code key}, for its statistics.
+   */
+  synchronized void nameUnit(BarcodeFormat key, String name) {
+    unitNames.put(key, name);
+  }
+
+  /**
+   * Records one attempt to decode a frame as the given unit.
+   *
+   * @param unit  The format the unit is planned under.
+   * @param found The format of the barcode found, or null if there was none.
+   */
+  synchronized void record(BarcodeFormat unit, BarcodeFormat found, long costNanos) {
+    window(unit).add(found, costNanos);
+  }
+
+  /**
+   * @return A snapshot of the statistics of every format seen so far, in the order the next
+   *         frame would try them if it is not a sweep, followed by the pruned formats.
+   */
+  public synchronized List<FormatStatistics> getStatistics() {
+    boolean anyHits = false;
+    for (Window window : windows.values()) {
+      if (window.hits > 0) {
+        anyHits = true;
+      }
+    }
+    List<FormatStatistics> statistics = new ArrayList<>(windows.size());
+    for (Map.Entry<BarcodeFormat, Window> entry : windows.entrySet()) {
+      Window window = entry.getValue();
+      String name = unitNames.get(entry.getKey());
+      statistics.add(new FormatStatistics(name == null ? entry.getKey().toString() : name,
+          name != null, window.count, window.hits, window.hitsByFormat(),
+          window.totalCostNanos, window.score(), anyHits && isPruned(window)));
+    }
+    Collections.sort(statistics, new Comparator<FormatStatistics>() {
+      @Override
+      public int compare(FormatStatistics a, FormatStatistics b) {
+        if (a.isPruned() != b.isPruned()) {
+          return a.isPruned() ? 1 : -1;
+        }
+        return Double.compare(b.score, a.score);
+      }
+    });
+    return statistics;
+  }
+
+  /**
+   * @return The number of frames planned so far.
+   */
+  public synchronized long getPlannedFrameCount() {
+    return plannedFrames;
+  }
+
+  /**
+   * @return The number of planned frames which tried every format.
+   */
+  public synchronized long getSweepCount() {
+    return sweeps;
+  }
+
+  /**
+   * Forgets all statistics, e.g. when the kind of barcode being scanned is about to change.
+   */
+  public synchronized void reset() {
+    windows.clear();
+    plannedFrames = 0;
+    sweeps = 0;
+  }
+
+  private Window window(BarcodeFormat format) {
+    Window window = windows.get(format);
+    if (window == null) {
+      window = new Window(windowSize);
+      windows.put(format, window);
+    }
+    return window;
+  }
+
+  private static boolean isPruned(Window window) {
+    return window.hits == 0 && window.count >= MIN_ATTEMPTS_TO_PRUNE;
+  }
+
+  /**
+   * The most recent attempts of one format, kept as a ring.
+   */
+  private static final class Window {
+
+    /** The format found by each attempt, null for a miss. */
+    private final BarcodeFormat[] found;
+    private final long[] costNanos;
+    private int next;
+    private int count;
+    private int hits;
+    private long totalCostNanos;
+
+    Window(int size) {
+      found = new BarcodeFormat[size];
+      costNanos = new long[size];
+    }
+
+    void add(BarcodeFormat hit, long cost) {
+      if (count == found.length) {
+        if (found[next] != null) {
+          hits--;
+        }
+        totalCostNanos -= costNanos[next];
+      } else {
+        count++;
+      }
+      found[next] = hit;
+      costNanos[next] = cost;
+      if (hit != null) {
+        hits++;
+      }
+      totalCostNanos += cost;
+      next = (next + 1) % found.length;
+    }
+
+    Map<BarcodeFormat, Integer> hitsByFormat() {
+      Map<BarcodeFormat, Integer> hitsByFormat = new EnumMap<>(BarcodeFormat.class);
+      for (int i = 0; i < count; i++) {
+        BarcodeFormat format = found[i];
+        if (format != null) {
+          Integer formatHits = hitsByFormat.get(format);
+          hitsByFormat.put(format, formatHits == null ? 1 : formatHits + 1);
+        }
+      }
+      return hitsByFormat;
+    }
+
+    /**
+     * Expected hits per nanosecond; the hit rate is smoothed so that a format with few attempts
+     * is neither written off nor overrated.
+     */
+    double score() {
+      double hitRate = (hits + 1.0) / (count + 2.0);
+      double cost = count == 0 ? UNKNOWN_COST_NANOS
+          : Math.max(1.0, (double) totalCostNanos / count);
+      return hitRate / cost;
+    }
+  }
+
+  /**
+   * Statistics of one format, or unit of formats, over its current window.
+   * 条码格式统计
+   */
+  public static final class FormatStatistics {
+
+    private final String name;
+    private final boolean unit;
+    private final int attempts;
+    private final int hits;
+    private final Map<BarcodeFormat, Integer> hitsByFormat;
+    private final long totalCostNanos;
+    private final double score;
+    private final boolean pruned;
+
+    FormatStatistics(String name, boolean unit, int attempts, int hits,
+                     Map<BarcodeFormat, Integer> hitsByFormat, long totalCostNanos, double score,
+                     boolean pruned) {
+      this.name = name;
+      this.unit = unit;
+      this.attempts = attempts;
+      this.hits = hits;
+      this.hitsByFormat = hitsByFormat;
+      this.totalCostNanos = totalCostNanos;
+      this.score = score;
+      this.pruned = pruned;
+    }
+
+    /**
+     * @return The format, or the name of the unit, such as "1D".
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return The number of attempts in the window.
+     */
+    public int getAttempts() {
+      return attempts;
+    }
+
+    /**
+     * @return The number of attempts in the window which found a barcode.
+     */
+    public int getHits() {
+      return hits;
+    }
+
+    /**
+     * @return The number of attempts in the window which found a barcode of the given format.
+     */
+    public int getHits(BarcodeFormat format) {
+      Integer formatHits = hitsByFormat.get(format);
+      return formatHits == null ? 0 : formatHits;
+    }
+
+    public double getSuccessRate() {
+      return attempts == 0 ? 0.0 : (double) hits / attempts;
+    }
+
+    public long getAverageCostMicros() {
+      return attempts == 0 ? 0L : totalCostNanos / attempts / 1000L;
+    }
+
+    /**
+     * @return Whether the format is currently tried only on full sweeps.
+     */
+    public boolean isPruned() {
+      return pruned;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      builder.append(name).append(": ").append(hits).append('/').append(attempts).append(" hits");
+      if (unit && !hitsByFormat.isEmpty()) {
+        builder.append(' ').append(hitsByFormat);
+      }
+      builder.append(", ").append(getAverageCostMicros()).append(" us/attempt");
+      if (pruned) {
+        builder.append(", pruned");
+      }
+      return builder.toString();
+    }
+  }
+
+}
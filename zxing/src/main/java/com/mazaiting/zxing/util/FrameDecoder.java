@@ -0,0 +1,204 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPointCallback;
+import com.mazaiting.zxing.camera.PreviewFrame;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+import java.util.Collection;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * The part of decoding a preview frame which needs neither a camera nor a Looper: the pyramid or
+ * multiple barcode decode of the framing rect, timed stage by stage into {@link DecodeMetrics}.
+ * {@link DecodeHandler} runs one on each decode worker; the replay harness runs one over
+ * recorded frames.
+ *
+ * A frame goes through {@link #begin(PreviewFrame)}, then {@link #decode} or
+ * {@link #decodeMultiple} with the framing rect source, then {@link #finish} once the result has
+ * been dispatched. A frame taken while the lens was moving is skipped, and a frame which runs
+ * out of its {@link DecodeBudget} is abandoned, without a result. Not thread safe; each decode
+ * worker has its own.
+ * 帧解码器
+ */
+public final class FrameDecoder {
+
+  private final PyramidDecoder pyramidDecoder;
+  private final MultiBarcodeDecoder multiBarcodeDecoder;
+  private final StageTimer timer = new StageTimer();
+  private final FrameQualityGate.Meter qualityMeter;
+  private final SceneChangeDetector sceneDetector;
+  private final DecodeMetrics metrics;
+  private final DecodeBudget.Deadline deadline;
+  /** The scene signature of the frame being decoded, or null if it is not to be remembered. */
+  private int[] signature;
+  /** Whether the frame being decoded was taken while the lens was moving. */
+  private boolean focusMoving;
+  private long start;
+  private long decoded;
+
+  /**
+   * @param hints           Decode hints, see {@link #createHints}.
+   * @param formatScheduler The scheduler deciding in which order formats are tried.
+   * @param regionTracker   The tracker predicting where to decode, or null to always decode the
+   *                        whole framing rect.
+   * @param escalation      The policy bringing in slower decode profiles after repeated misses,
+   *                        or null to always decode with the fast one.
+   * @param qualityGate     The gate skipping blurred and flat frames, or null to decode all.
+   * @param sceneDetector   The detector skipping frames which show the scene of the last failed
+   *                        one, or null to decode all.
+   * @param budget          The time each frame may take and the switch to stop decoding, or
+   *                        null to always decode frames to the end.
+   * @param metrics         The metrics the stage timings of every frame are recorded into.
+   */
+  public FrameDecoder(Hashtable<DecodeHintType, Object> hints, FormatScheduler formatScheduler,
+                      RegionTracker regionTracker, HintEscalation escalation,
+                      FrameQualityGate qualityGate, SceneChangeDetector sceneDetector,
+                      DecodeBudget budget, DecodeMetrics metrics) {
+    deadline = new DecodeBudget.Deadline(budget);
+    pyramidDecoder = new PyramidDecoder(hints, formatScheduler, regionTracker, escalation, timer,
+        deadline);
+    multiBarcodeDecoder = new MultiBarcodeDecoder(hints, timer, deadline);
+    qualityMeter = qualityGate == null ? null : new FrameQualityGate.Meter(qualityGate);
+    this.sceneDetector = sceneDetector;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Builds the hints the scanner decodes with.
+   *
+   * @param decodeFormats       The formats to look for, or null or empty for all supported ones.
+   * @param characterSet        The character set of the barcode contents, or null to guess.
+   * @param resultPointCallback The callback for possible result points, or null.
+   */
+  public static Hashtable<DecodeHintType, Object> createHints(
+      Collection<BarcodeFormat> decodeFormats, String characterSet,
+      ResultPointCallback resultPointCallback) {
+    Hashtable<DecodeHintType, Object> hints = new Hashtable<>(3);
+    if (decodeFormats == null || decodeFormats.isEmpty()) {
+      decodeFormats = new Vector<>();
+      decodeFormats.addAll(DecodeFormatManager.ONE_D_FORMATS);
+      decodeFormats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
+      decodeFormats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
+    }
+    hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
+    if (characterSet != null) {
+      hints.put(DecodeHintType.CHARACTER_SET, characterSet);
+    }
+    if (resultPointCallback != null) {
+      hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, resultPointCallback);
+    }
+    return hints;
+  }
+
+  /**
+   * Starts timing a frame, and its budget; the time since the frame was delivered is its frame
+   * wait.
+   */
+  public void begin(PreviewFrame frame) {
+    timer.begin();
+    start = System.nanoTime();
+    deadline.start(start);
+    focusMoving = frame.isFocusMoving();
+    timer.add(ScanMetrics.Stage.FRAME_WAIT, start - frame.getTimestampNanos());
+  }
+
+  /**
+   * Decodes the framing rect coarse to fine; the time since {@link #begin} is the source stage.
+   *
+   * @return The barcode found, or null, also if the frame was skipped as blurred by focusing or
+   *         unchanged, rejected by the quality gate or abandoned over its budget.
+   */
+  public Result decode(RotatedPlanarYUVLuminanceSource source) {
+    long built = System.nanoTime();
+    timer.add(ScanMetrics.Stage.SOURCE, built - start);
+    Result result = null;
+    if (isWorthDecoding(source)) {
+      try {
+        result = pyramidDecoder.decode(source);
+      } catch (DecodeAbortedException dae) {
+        deadline.onAborted();
+      }
+    }
+    endDecode(built, result != null);
+    return result;
+  }
+
+  /**
+   * Decodes every barcode in the framing rect; the time since {@link #begin} is the source stage.
+   *
+   * @return Every barcode found, or null if there is none or the frame was skipped as blurred
+   *         by focusing or unchanged, rejected by the quality gate or abandoned over its budget.
+   */
+  public Result[] decodeMultiple(RotatedPlanarYUVLuminanceSource source) {
+    long built = System.nanoTime();
+    timer.add(ScanMetrics.Stage.SOURCE, built - start);
+    Result[] results = null;
+    if (isWorthDecoding(source)) {
+      try {
+        results = multiBarcodeDecoder.decode(source);
+      } catch (DecodeAbortedException dae) {
+        deadline.onAborted();
+      }
+    }
+    endDecode(built, results != null);
+    return results;
+  }
+
+  private boolean isWorthDecoding(RotatedPlanarYUVLuminanceSource source) {
+    signature = null;
+    if (focusMoving) {
+      return false;
+    }
+    int[] frameSignature = null;
+    if (sceneDetector != null) {
+      frameSignature = SceneChangeDetector.signature(source);
+      if (sceneDetector.isUnchanged(frameSignature)) {
+        return false;
+      }
+    }
+    if (qualityMeter != null && !qualityMeter.accept(source)) {
+      return false;
+    }
+    signature = frameSignature;
+    return true;
+  }
+
+  private void endDecode(long built, boolean found) {
+    if (signature != null) {
+      sceneDetector.onDecoded(signature, found);
+    }
+    decoded = System.nanoTime();
+    timer.add(ScanMetrics.Stage.DECODE, decoded - built - timer.get(ScanMetrics.Stage.BINARIZE));
+  }
+
+  /**
+   * Records the dispatch and total time of the frame.
+   *
+   * @param found Whether a result was dispatched for the frame.
+   */
+  public void finish(PreviewFrame frame, boolean found) {
+    long end = System.nanoTime();
+    timer.add(ScanMetrics.Stage.DISPATCH, end - decoded);
+    timer.add(ScanMetrics.Stage.TOTAL, end - frame.getTimestampNanos());
+    metrics.record(timer, found);
+  }
+
+  /**
+   * @return Milliseconds from {@link #begin} to the end of the last decode.
+   */
+  public long getDecodeMillis() {
+    return (decoded - start) / 1000000L;
+  }
+
+  /**
+   * @return The decimation factor of the level the last single barcode was found on.
+   */
+  public int getLastFactor() {
+    return pyramidDecoder.getLastFactor();
+  }
+
+}
@@ -0,0 +1,208 @@
+package com.mazaiting.zxing.util;
+
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+import com.mazaiting.zxing.camera.SubsampledPlanarYUVLuminanceSource;
+
+import java.util.Arrays;
+
+/**
+ * Rejects frames which are too blurred or too flat to decode, before they cost a binarization
+ * and a pass of every reader. The framing rect is measured on a sparse grid of about
+ * {@link #SAMPLES_PER_SIDE} samples a side: the contrast is the spread between the 5th and 95th
+ * percentile of the sampled luminance, and the sharpness is the mean squared gradient to the next
+ * pixel right and below, relative to the squared contrast, so that it does not depend on the
+ * lighting. Blur spreads an edge over more pixels without changing its total rise, so it is the
+ * squaring which makes the measure fall with blur.
+ *
+ * The sharpness threshold adapts: a frame is blurred when it is less sharp than a fraction of a
+ * slowly decaying maximum of recent frames, which is what focus hunting and hand motion look
+ * like. As that maximum knows nothing yet at start-up or after a flat scene, a frame is also
+ * blurred when it is less sharp than a fixed floor. A frame is flat when its contrast is below
+ * a fixed minimum. So that a scene which is never sharp still gets decoded, no more than a few
+ * frames in a row are rejected.
+ *
+ * One gate is shared by all decode workers; each measures frames with its own {@link Meter}.
+ * 帧质量门限
+ */
+public final class FrameQualityGate {
+
+  /** The least luminance spread a frame must have, in grey levels. */
+  public static final int DEFAULT_MIN_CONTRAST = 24;
+  /** A frame less sharp than this fraction of the reference is rejected. */
+  public static final float DEFAULT_SHARPNESS_RATIO = 0.3f;
+  /**
+   * A frame less sharp than this is rejected whatever the reference. Sharp codes of 3 to 8
+   * pixels a module measure 0.03 and more, and still decode at about 0.004 under a box blur 9
+   * pixels wide; a blur 17 pixels wide brings them below 0.002.
+   */
+  public static final float DEFAULT_MIN_SHARPNESS = 0.002f;
+  /** After this many rejects in a row the next frame is decoded whatever it looks like. */
+  public static final int DEFAULT_MAX_CONSECUTIVE_REJECTS = 4;
+
+  /** The sample grid is at most this many samples on its longer side. */
+  static final int SAMPLES_PER_SIDE = 64;
+  /** The sharpness reference falls by this factor with every measured frame. */
+  private static final float REFERENCE_DECAY = 0.95f;
+
+  private int minContrast = DEFAULT_MIN_CONTRAST;
+  private float sharpnessRatio = DEFAULT_SHARPNESS_RATIO;
+  private float minSharpness = DEFAULT_MIN_SHARPNESS;
+  private int maxConsecutiveRejects = DEFAULT_MAX_CONSECUTIVE_REJECTS;
+  private float referenceSharpness;
+  private int consecutiveRejects;
+
+  private long evaluatedCount;
+  private long blurRejectCount;
+  private long flatRejectCount;
+
+  /**
+   * Sets the least luminance spread, in grey levels, a frame must have to be decoded.
+   */
+  public synchronized void setMinContrast(int minContrast) {
+    this.minContrast = minContrast;
+  }
+
+  /**
+   * Sets the fraction of the recent sharpness a frame must reach to be decoded; 0 turns the
+   * sharpness check off.
+   */
+  public synchronized void setSharpnessRatio(float sharpnessRatio) {
+    this.sharpnessRatio = sharpnessRatio;
+  }
+
+  /**
+   * Sets the sharpness a frame must reach to be decoded however blurred recent frames were; 0
+   * leaves only the relative check.
+   */
+  public synchronized void setMinSharpness(float minSharpness) {
+    this.minSharpness = minSharpness;
+  }
+
+  /**
+   * Sets how many frames in a row may be rejected; 0 turns the gate off.
+   */
+  public synchronized void setMaxConsecutiveRejects(int maxConsecutiveRejects) {
+    this.maxConsecutiveRejects = maxConsecutiveRejects;
+  }
+
+  /**
+   * @param contrast  The luminance spread of the frame, in grey levels.
+   * @param sharpness The sharpness of the frame, relative to the squared contrast.
+   * @return Whether the frame is worth decoding.
+   */
+  private synchronized boolean accept(int contrast, float sharpness) {
+    evaluatedCount++;
+    boolean flat = contrast < minContrast;
+    boolean blurred = false;
+    if (!flat) {
+      referenceSharpness = Math.max(sharpness, referenceSharpness * REFERENCE_DECAY);
+      blurred = sharpness < minSharpness || sharpness < sharpnessRatio * referenceSharpness;
+    }
+    if ((flat || blurred) && consecutiveRejects < maxConsecutiveRejects) {
+      consecutiveRejects++;
+      if (flat) {
+        flatRejectCount++;
+      } else {
+        blurRejectCount++;
+      }
+      return false;
+    }
+    consecutiveRejects = 0;
+    return true;
+  }
+
+  /**
+   * @return The least luminance which at least that percentage of the samples do not exceed.
+   */
+  private static int percentile(int[] histogram, int count, int percentile) {
+    int rank = Math.max(1, count * percentile / 100);
+    int seen = 0;
+    for (int luminance = 0; luminance < histogram.length; luminance++) {
+      seen += histogram[luminance];
+      if (seen >= rank) {
+        return luminance;
+      }
+    }
+    return histogram.length - 1;
+  }
+
+  /**
+   * @return The number of frames measured.
+   */
+  public synchronized long getEvaluatedCount() {
+    return evaluatedCount;
+  }
+
+  /**
+   * @return The number of frames rejected as blurred.
+   */
+  public synchronized long getBlurRejectCount() {
+    return blurRejectCount;
+  }
+
+  /**
+   * @return The number of frames rejected as too low in contrast.
+   */
+  public synchronized long getFlatRejectCount() {
+    return flatRejectCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return evaluatedCount + " frames, " + blurRejectCount + " blurred, " + flatRejectCount
+        + " flat";
+  }
+
+  /**
+   * Measures the frames of a decode worker for the gate, in arrays it keeps from frame to frame.
+   * Not thread safe; each decode worker has its own.
+   */
+  static final class Meter {
+
+    private final FrameQualityGate gate;
+    private final int[] histogram = new int[256];
+    private byte[] samples;
+    private byte[] right;
+    private byte[] below;
+
+    Meter(FrameQualityGate gate) {
+      this.gate = gate;
+    }
+
+    /**
+     * @param source The framing rect of the frame.
+     * @return Whether the frame is worth decoding.
+     */
+    boolean accept(RotatedPlanarYUVLuminanceSource source) {
+      int width = source.getWidth() - 1;
+      int height = source.getHeight() - 1;
+      int step = Math.max(1, Math.max(width, height) / SAMPLES_PER_SIDE);
+      if (width < step || height < step) {
+        return true;
+      }
+      // Three grids, the second and third shifted one pixel right and down, give each sample
+      // its full resolution neighbours without reading anything in between.
+      SubsampledPlanarYUVLuminanceSource grid = source.crop(0, 0, width, height).subsample(step);
+      int count = grid.getWidth() * grid.getHeight();
+      samples = grid.getMatrix(samples);
+      right = source.crop(1, 0, width, height).subsample(step).getMatrix(right);
+      below = source.crop(0, 1, width, height).subsample(step).getMatrix(below);
+
+      Arrays.fill(histogram, 0);
+      long gradientEnergy = 0;
+      for (int i = 0; i < count; i++) {
+        int luminance = samples[i] & 0xff;
+        histogram[luminance]++;
+        int dx = luminance - (right[i] & 0xff);
+        int dy = luminance - (below[i] & 0xff);
+        gradientEnergy += dx * dx + dy * dy;
+      }
+      int contrast = percentile(histogram, count, 95) - percentile(histogram, count, 5);
+      float sharpness = contrast == 0 ? 0.0f
+          : (float) gradientEnergy / count / ((float) contrast * contrast);
+      return gate.accept(contrast, sharpness);
+    }
+
+  }
+
+}
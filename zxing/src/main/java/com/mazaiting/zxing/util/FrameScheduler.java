@@ -0,0 +1,152 @@
+package com.mazaiting.zxing.util;
+
+import android.os.Handler;
+import android.os.Message;
+
+import com.mazaiting.zxing.R;
+import com.mazaiting.zxing.camera.CameraManager;
+import com.mazaiting.zxing.camera.PreviewFrame;
+import com.mazaiting.zxing.listener.PreviewFrameListener;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Sits between the camera and the decode workers and always keeps only the newest preview
+ * frame. The camera delivers continuously; a frame goes straight to an idle worker if there is
+ * one, otherwise it waits in a single slot where a newer frame replaces it. A worker which
+ * finishes a frame takes the waiting one itself, so decoding never waits on a round trip through
+ * the main thread. Replaced frames go back to the camera unread and are counted as dropped.
+ * Frames delivered while the lens moves are tagged so that the workers skip them.
+ * 最新帧调度器
+ */
+public final class FrameScheduler implements PreviewFrameListener {
+
+  private final Handler[] workers;
+  private final boolean[] busy;
+  private PreviewFrame pending;
+  private int nextSequence;
+  private boolean running;
+
+  private long deliveredFrames;
+  private long droppedFrames;
+  private long focusMovingFrames;
+
+  FrameScheduler(int workerCount) {
+    workers = new Handler[workerCount];
+    busy = new boolean[workerCount];
+    // Workers take frames only once their handler is registered.
+    Arrays.fill(busy, true);
+  }
+
+  /**
+   * Registers the handler of a started worker; it receives R.id.zxing_decode messages with a
+   * {@link PreviewFrame} and must call {@link #next(int)} when it is done with each one.
+   */
+  synchronized void setWorker(int workerIndex, Handler handler) {
+    workers[workerIndex] = handler;
+    busy[workerIndex] = false;
+  }
+
+  /**
+   * Starts handing frames to the workers.
+   */
+  public synchronized void resume() {
+    running = true;
+  }
+
+  /**
+   * Stops handing frames to the workers and gives back the waiting frame. Frames already being
+   * decoded are finished.
+   */
+  public synchronized void pause() {
+    running = false;
+    if (pending != null) {
+      drop(pending);
+      pending = null;
+    }
+  }
+
+  @Override
+  public synchronized void onPreviewFrame(byte[] data, int width, int height) {
+    schedule(new PreviewFrame(data, width, height, nextSequence++, System.nanoTime(),
+        isFocusMoving()));
+  }
+
+  @Override
+  public synchronized void onPreviewImage(ByteBuffer yPlane, int rowStride, int pixelStride,
+                                          int width, int height) {
+    schedule(new PreviewFrame(yPlane, rowStride, pixelStride, width, height, nextSequence++,
+        System.nanoTime(), isFocusMoving()));
+  }
+
+  private boolean isFocusMoving() {
+    if (CameraManager.get().isFocusMoving()) {
+      focusMovingFrames++;
+      return true;
+    }
+    return false;
+  }
+
+  private void schedule(PreviewFrame frame) {
+    deliveredFrames++;
+    if (!running) {
+      drop(frame);
+      return;
+    }
+    for (int i = 0; i < workers.length; i++) {
+      if (!busy[i]) {
+        busy[i] = true;
+        Message.obtain(workers[i], R.id.zxing_decode, frame).sendToTarget();
+        return;
+      }
+    }
+    if (pending != null) {
+      drop(pending);
+    }
+    pending = frame;
+  }
+
+  /**
+   * Called by a worker which has finished its frame.
+   *
+   * @return The newest waiting frame for the worker to decode next, or null if there is none,
+   *         in which case the worker is idle until it receives another message.
+   */
+  synchronized PreviewFrame next(int workerIndex) {
+    PreviewFrame frame = pending;
+    pending = null;
+    if (frame == null) {
+      busy[workerIndex] = false;
+    }
+    return frame;
+  }
+
+  /**
+   * @return The number of frames the camera delivered to this scheduler.
+   */
+  public synchronized long getDeliveredFrameCount() {
+    return deliveredFrames;
+  }
+
+  /**
+   * @return The number of frames given back undecoded, because a newer frame superseded them or
+   *         they arrived while paused.
+   */
+  public synchronized long getDroppedFrameCount() {
+    return droppedFrames;
+  }
+
+  /**
+   * @return The number of frames tagged as delivered while the lens was moving.
+   */
+  public synchronized long getFocusMovingFrameCount() {
+    return focusMovingFrames;
+  }
+
+  private void drop(PreviewFrame frame) {
+    droppedFrames++;
+    CameraManager.get().releasePreviewFrame(frame);
+  }
+
+}
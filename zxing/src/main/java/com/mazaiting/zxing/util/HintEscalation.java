@@ -0,0 +1,225 @@
+package com.mazaiting.zxing.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides which decode profile each frame gets. Most frames get the fast profile. When the
+ * decoder keeps failing on frames where it did see possible result points, a barcode is in view
+ * but the fast profile cannot read it; after {@link #DEFAULT_FAILURE_THRESHOLD} such failures
+ * every {@link #DEFAULT_INTERVAL}-th frame is decoded with one of the slower profiles, in turn,
+ * while the frames in between stay fast. A light on dark barcode shows the fast profile no points
+ * at all, so {@link #BLIND_FAILURE_FACTOR} times as many failures without points escalate too,
+ * but to the inverted profile alone: with nothing in view the other profiles would only slow down
+ * frames of an empty scene. Points seen while escalated blindly still bring in all profiles.
+ * A success of any profile returns to the fast one, and so does a streak of
+ * {@link #DEFAULT_MAX_ESCALATED_FRAMES} escalated frames without a result. Every blind streak
+ * which ends so doubles the failures without points needed for the next, up to
+ * {@link #MAX_BLIND_BACKOFF} times, so that a scene which stays empty is not inverted on a third
+ * of its frames forever; points or a result start over from the first blind threshold.
+ *
+ * One policy is shared by all decode workers, so that the streak counts consecutive frames.
+ * 解码参数升级策略
+ */
+public final class HintEscalation {
+
+  /** How a frame is decoded. */
+  public enum Profile {
+    /** The coarse to fine pyramid with the requested hints. */
+    FAST,
+    /** The full resolution crop with TRY_HARDER. */
+    TRY_HARDER,
+    /** The full resolution crop with its luminance inverted, for light on dark barcodes. */
+    INVERTED,
+    /** The full resolution crop binarized with GlobalHistogramBinarizer instead. */
+    ALTERNATE_BINARIZER
+  }
+
+  /** Failures with result points before slower profiles are tried. */
+  public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+  /** Once escalated, every this many frames get a slower profile. */
+  public static final int DEFAULT_INTERVAL = 2;
+  /** Escalated frames without a result before going back to the fast profile alone. */
+  public static final int DEFAULT_MAX_ESCALATED_FRAMES = 30;
+  /**
+   * Failures without points count this many times less than failures with points, and only
+   * bring in {@link Profile#INVERTED}.
+   */
+  static final int BLIND_FAILURE_FACTOR = 4;
+  /** How many times in a row the failures needed for a blind escalation may double. */
+  static final int MAX_BLIND_BACKOFF = 4;
+
+  private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+  private int interval = DEFAULT_INTERVAL;
+  private int maxEscalatedFrames = DEFAULT_MAX_ESCALATED_FRAMES;
+  private final List<Profile> profiles = new ArrayList<>(Arrays.asList(
+      Profile.TRY_HARDER, Profile.INVERTED, Profile.ALTERNATE_BINARIZER));
+
+  private int failureStreak;
+  private int blindFailureStreak;
+  /** Blind escalations in a row which ended without points or a result. */
+  private int blindRounds;
+  private int escalatedFrames;
+  private int nextProfile;
+
+  private final long[] attempts = new long[Profile.values().length];
+  private final long[] successes = new long[Profile.values().length];
+  private long escalationCount;
+
+  /**
+   * Sets how many failures with result points lead to slower profiles.
+   */
+  public synchronized void setFailureThreshold(int failureThreshold) {
+    if (failureThreshold < 1) {
+      throw new IllegalArgumentException("Failure threshold must be at least 1: "
+          + failureThreshold);
+    }
+    this.failureThreshold = failureThreshold;
+  }
+
+  /**
+   * Sets how often, once escalated, a frame gets a slower profile: 1 for every frame, 2 for
+   * every other frame, and so on.
+   */
+  public synchronized void setInterval(int interval) {
+    if (interval < 1) {
+      throw new IllegalArgumentException("Interval must be at least 1: " + interval);
+    }
+    this.interval = interval;
+  }
+
+  /**
+   * Sets how many escalated frames without a result end the escalation.
+   */
+  public synchronized void setMaxEscalatedFrames(int maxEscalatedFrames) {
+    if (maxEscalatedFrames < 1) {
+      throw new IllegalArgumentException("Max escalated frames must be at least 1: "
+          + maxEscalatedFrames);
+    }
+    this.maxEscalatedFrames = maxEscalatedFrames;
+  }
+
+  /**
+   * Sets the slower profiles to take turns with, in order; none turns escalation off.
+   */
+  public synchronized void setProfiles(Profile... profiles) {
+    this.profiles.clear();
+    for (Profile profile : profiles) {
+      if (profile != Profile.FAST) {
+        this.profiles.add(profile);
+      }
+    }
+    nextProfile = 0;
+  }
+
+  /**
+   * @return The profile to decode the next frame with.
+   */
+  synchronized Profile next() {
+    Profile profile = Profile.FAST;
+    if (isEscalated()) {
+      if (escalatedFrames == 0) {
+        escalationCount++;
+      }
+      if (++escalatedFrames % interval == 0) {
+        profile = isBlindlyEscalated() ? Profile.INVERTED
+            : profiles.get(nextProfile++ % profiles.size());
+      }
+    }
+    attempts[profile.ordinal()]++;
+    return profile;
+  }
+
+  /**
+   * Reports how decoding a frame went.
+   *
+   * @param profile    The profile it was decoded with.
+   * @param sawPoints  Whether possible result points were reported.
+   * @param found      Whether a barcode was found.
+   */
+  synchronized void onDecoded(Profile profile, boolean sawPoints, boolean found) {
+    if (found) {
+      successes[profile.ordinal()]++;
+      reset();
+      return;
+    }
+    if (sawPoints) {
+      blindRounds = 0;
+    }
+    if (isEscalated()) {
+      if (escalatedFrames >= maxEscalatedFrames) {
+        if (isBlindlyEscalated()) {
+          blindRounds = Math.min(blindRounds + 1, MAX_BLIND_BACKOFF);
+        }
+        endStreak();
+      } else if (sawPoints && isBlindlyEscalated()) {
+        failureStreak++;
+      }
+    } else if (sawPoints) {
+      failureStreak++;
+    } else {
+      blindFailureStreak++;
+    }
+  }
+
+  private boolean isEscalated() {
+    return failureStreak >= failureThreshold && !profiles.isEmpty() || isBlindlyEscalated();
+  }
+
+  /**
+   * @return Whether only failures without points escalated, which calls for the inverted profile.
+   */
+  private boolean isBlindlyEscalated() {
+    return failureStreak < failureThreshold
+        && blindFailureStreak >= (failureThreshold * BLIND_FAILURE_FACTOR << blindRounds)
+        && profiles.contains(Profile.INVERTED);
+  }
+
+  /**
+   * Goes back to the fast profile, e.g. when scanning restarts after a result.
+   */
+  public synchronized void reset() {
+    blindRounds = 0;
+    endStreak();
+  }
+
+  private void endStreak() {
+    failureStreak = 0;
+    blindFailureStreak = 0;
+    escalatedFrames = 0;
+  }
+
+  /**
+   * @return The number of frames decoded with the profile.
+   */
+  public synchronized long getAttemptCount(Profile profile) {
+    return attempts[profile.ordinal()];
+  }
+
+  /**
+   * @return The number of frames the profile found a barcode on.
+   */
+  public synchronized long getSuccessCount(Profile profile) {
+    return successes[profile.ordinal()];
+  }
+
+  /**
+   * @return How often the slower profiles were brought in.
+   */
+  public synchronized long getEscalationCount() {
+    return escalationCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(escalationCount).append(" escalations");
+    for (Profile profile : Profile.values()) {
+      builder.append(", ").append(profile).append(' ')
+          .append(successes[profile.ordinal()]).append('/').append(attempts[profile.ordinal()]);
+    }
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,123 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds every barcode in the framing rect: QR codes with QRCodeMultiReader, all other requested
+ * formats with a GenericMultipleBarcodeReader. The framing rect is binarized once and the one
+ * {@link BinaryBitmap} is shared by both readers and by every crop the generic reader makes.
+ * Result points are in framing rect coordinates. The frame's deadline is checked before each
+ * reader and, through the shared binarizer, before every row and matrix. Not thread safe; each
+ * decode worker has its own.
+ * 多条码解码器
+ */
+final class MultiBarcodeDecoder {
+
+  private final Hashtable<DecodeHintType, Object> hints;
+  private final QRCodeMultiReader qrCodeReader;
+  private final Hashtable<DecodeHintType, Object> otherFormatsHints;
+  private final MultiFormatReader otherFormatsReader;
+  private final GenericMultipleBarcodeReader genericReader;
+  private final StageTimer timer;
+  private final DecodeBudget.Deadline deadline;
+  private final ReusableHybridBinarizer.Buffers buffers = new ReusableHybridBinarizer.Buffers();
+
+  /**
+   * @param timer The worker's timer, binarization time is added to it.
+   * @param deadline The deadline of the worker's frame.
+   */
+  @SuppressWarnings("unchecked")
+  MultiBarcodeDecoder(Hashtable<DecodeHintType, Object> hints, StageTimer timer,
+                      DecodeBudget.Deadline deadline) {
+    this.hints = hints;
+    this.timer = timer;
+    this.deadline = deadline;
+    Collection<BarcodeFormat> formats =
+        (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+    boolean qrCode = formats == null || formats.contains(BarcodeFormat.QR_CODE);
+    qrCodeReader = qrCode ? new QRCodeMultiReader() : null;
+
+    List<BarcodeFormat> otherFormats = new ArrayList<>();
+    if (formats == null) {
+      otherFormats.addAll(DecodeFormatManager.ONE_D_FORMATS);
+      otherFormats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
+    } else {
+      otherFormats.addAll(formats);
+      otherFormats.remove(BarcodeFormat.QR_CODE);
+    }
+    if (otherFormats.isEmpty()) {
+      otherFormatsHints = null;
+      otherFormatsReader = null;
+      genericReader = null;
+    } else {
+      otherFormatsHints = new Hashtable<>(hints);
+      otherFormatsHints.put(DecodeHintType.POSSIBLE_FORMATS, otherFormats);
+      otherFormatsReader = new MultiFormatReader();
+      genericReader = new GenericMultipleBarcodeReader(otherFormatsReader);
+    }
+  }
+
+  /**
+   * @return Every barcode found, each text and format once, or null if there is none.
+   * @throws DecodeAbortedException If the frame ran out of its budget.
+   */
+  Result[] decode(RotatedPlanarYUVLuminanceSource source) {
+    BinaryBitmap bitmap;
+    long start = System.nanoTime();
+    try {
+      bitmap = new BinaryBitmap(SharedMatrixBinarizer.binarize(source, buffers, deadline));
+    } catch (NotFoundException nfe) {
+      return null;
+    } finally {
+      timer.add(ScanMetrics.Stage.BINARIZE, System.nanoTime() - start);
+    }
+    List<Result> results = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    if (qrCodeReader != null) {
+      deadline.check();
+      try {
+        add(qrCodeReader.decodeMultiple(bitmap, hints), results, seen);
+      } catch (NotFoundException nfe) {
+        // continue
+      } finally {
+        qrCodeReader.reset();
+      }
+    }
+    if (genericReader != null) {
+      deadline.check();
+      try {
+        // The generic reader hands these hints to MultiFormatReader.decode for every crop.
+        add(genericReader.decodeMultiple(bitmap, otherFormatsHints), results, seen);
+      } catch (NotFoundException nfe) {
+        // continue
+      } finally {
+        otherFormatsReader.reset();
+      }
+    }
+    return results.isEmpty() ? null : results.toArray(new Result[results.size()]);
+  }
+
+  private static void add(Result[] found, List<Result> results, Set<String> seen) {
+    for (Result result : found) {
+      if (seen.add(result.getBarcodeFormat() + ":" + result.getText())) {
+        results.add(result);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,307 @@
+package com.mazaiting.zxing.util;
+
+import android.graphics.Rect;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Hashtable;
+
+/**
+ * Decodes a frame coarse to fine: first a 4x, then a 2x decimated view of the framing rect, and
+ * the full resolution crop last. A large, close barcode is usually found on the cheapest level.
+ * When every requested format reports possible result points while it searches, a finer level
+ * is only tried when the coarser one reported some but did not decode, or on every
+ * {@link #FULL_PYRAMID_INTERVAL}-th frame, so that small barcodes which leave no trace on a
+ * coarse level are still found. Most readers never report points, Code 128, Code 39, ITF, Data
+ * Matrix, PDF417 and Aztec among them, so as soon as one of those is requested every level is
+ * tried on every frame which did not decode. Levels whose view would be smaller than
+ * {@link #MIN_LEVEL_SIZE} pixels are skipped.
+ *
+ * With a {@link RegionTracker} the pyramid is built over the region it predicts instead of the
+ * whole framing rect, and every reported point is fed back into it. With a {@link HintEscalation}
+ * the frames it picks skip the pyramid and decode the full resolution crop with one of the
+ * slower profiles instead. The frame's deadline is checked before every level.
+ *
+ * Every level binarizes into its own {@link ReusableHybridBinarizer.Buffers}, so that a steady
+ * framing rect costs no new luminance or bit matrix per frame. Result points, both those reported
+ * while decoding and those of the result, are mapped back to full resolution framing rect
+ * coordinates. Not thread safe; each decode worker has its own.
+ * 金字塔解码器
+ */
+final class PyramidDecoder {
+
+  /** Decimation factors, coarsest first; the last level is always full resolution. */
+  private static final int[] FACTORS = {4, 2, 1};
+  /** Shortest side, in samples, a decimated level must have to be tried. */
+  static final int MIN_LEVEL_SIZE = 120;
+  /** Every this many frames all levels are tried even without result points. */
+  static final int FULL_PYRAMID_INTERVAL = 3;
+  /** The formats whose readers report possible result points while searching a level. */
+  private static final EnumSet<BarcodeFormat> POINT_REPORTING_FORMATS = EnumSet.of(
+      BarcodeFormat.QR_CODE, BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.EAN_8,
+      BarcodeFormat.EAN_13);
+
+  private final Reader reader;
+  private final MultiFormatReader tryHarderReader;
+  private final MultiFormatReader escalatedReader;
+  private final RegionTracker regionTracker;
+  private final HintEscalation escalation;
+  private final MappingResultPointCallback pointCallback;
+  private final StageTimer timer;
+  private final DecodeBudget.Deadline deadline;
+  //所有格式都会报告可能的结果点时, 粗层没有点才跳过细层
+  private final boolean pointGated;
+  private final ReusableHybridBinarizer.Buffers[] levelBuffers =
+      new ReusableHybridBinarizer.Buffers[FACTORS.length];
+  private int frames;
+  private int lastFactor = 1;
+
+  /**
+   * @param hints The decode hints; the result point callback in them is wrapped so that points
+   *              come out in full resolution coordinates.
+   * @param regionTracker The tracker to predict the decoded region with, or null to always
+   *                      decode the whole framing rect.
+   * @param escalation    The policy picking a slower profile for some frames, or null to always
+   *                      decode with the fast one.
+   * @param timer The worker's timer, binarization time is added to it.
+   * @param deadline The deadline of the worker's frame.
+   */
+  PyramidDecoder(Hashtable<DecodeHintType, Object> hints, FormatScheduler formatScheduler,
+                 RegionTracker regionTracker, HintEscalation escalation, StageTimer timer,
+                 DecodeBudget.Deadline deadline) {
+    this.regionTracker = regionTracker;
+    this.escalation = escalation;
+    this.timer = timer;
+    this.deadline = deadline;
+    pointGated = reportsPoints(hints);
+    for (int i = 0; i < levelBuffers.length; i++) {
+      levelBuffers[i] = new ReusableHybridBinarizer.Buffers();
+    }
+    Hashtable<DecodeHintType, Object> levelHints = new Hashtable<>(hints);
+    pointCallback = new MappingResultPointCallback(
+        (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK),
+        regionTracker);
+    levelHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, pointCallback);
+    reader = new AdaptiveFormatReader(levelHints, formatScheduler, deadline);
+    // Escalated attempts stay out of the format statistics, their cost would skew the order.
+    Hashtable<DecodeHintType, Object> tryHarderHints = new Hashtable<>(levelHints);
+    tryHarderHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+    tryHarderReader = new MultiFormatReader();
+    tryHarderReader.setHints(tryHarderHints);
+    escalatedReader = new MultiFormatReader();
+    escalatedReader.setHints(levelHints);
+  }
+
+  /**
+   * @return Whether every format in the hints reports possible result points; without
+   *         POSSIBLE_FORMATS all formats are decoded, and most do not.
+   */
+  @SuppressWarnings("unchecked")
+  private static boolean reportsPoints(Hashtable<DecodeHintType, Object> hints) {
+    Collection<BarcodeFormat> formats =
+        (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+    return formats != null && !formats.isEmpty() && POINT_REPORTING_FORMATS.containsAll(formats);
+  }
+
+  /**
+   * @param source The framing rect of the frame.
+   * @return The decoded barcode, with result points in full resolution framing rect
+   *         coordinates, or null if there is none on any tried level.
+   * @throws DecodeAbortedException If the frame ran out of its budget.
+   */
+  Result decode(RotatedPlanarYUVLuminanceSource source) {
+    Rect region = regionTracker == null ? null
+        : regionTracker.predict(source.getWidth(), source.getHeight());
+    if (region != null) {
+      source = source.crop(region.left, region.top, region.width(), region.height());
+      pointCallback.beginFrame(region.left, region.top);
+    } else {
+      pointCallback.beginFrame(0, 0);
+    }
+    HintEscalation.Profile profile =
+        escalation == null ? HintEscalation.Profile.FAST : escalation.next();
+    Result result = profile == HintEscalation.Profile.FAST ? decodeLevels(source)
+        : decodeEscalated(source, profile);
+    if (escalation != null) {
+      escalation.onDecoded(profile, pointCallback.getFramePointCount() > 0, result != null);
+    }
+    if (result != null && regionTracker != null && result.getResultPoints() != null) {
+      for (ResultPoint point : result.getResultPoints()) {
+        if (point != null) {
+          regionTracker.addPoint(point);
+        }
+      }
+    }
+    if (region != null) {
+      regionTracker.onRegionDecoded(pointCallback.getFramePointCount(), result != null);
+    }
+    return result;
+  }
+
+  private Result decodeLevels(RotatedPlanarYUVLuminanceSource source) {
+    boolean fullPyramid = frames++ % FULL_PYRAMID_INTERVAL == 0;
+    int shortSide = Math.min(source.getWidth(), source.getHeight());
+    for (int level = 0; level < FACTORS.length; level++) {
+      int factor = FACTORS[level];
+      if (factor > 1 && shortSide / factor < MIN_LEVEL_SIZE) {
+        continue;
+      }
+      deadline.check();
+      pointCallback.beginLevel(factor);
+      BinaryBitmap bitmap = new BinaryBitmap(new TimingBinarizer(new ReusableHybridBinarizer(
+          factor == 1 ? source : source.subsample(factor), levelBuffers[level]), timer,
+          deadline));
+      try {
+        Result result = reader.decode(bitmap);
+        lastFactor = factor;
+        return map(result);
+      } catch (ReaderException re) {
+        // continue
+      } finally {
+        reader.reset();
+      }
+      if (pointGated && !fullPyramid && pointCallback.getLevelPointCount() == 0) {
+        // Nothing that looks like a barcode on this level; a finer one rarely helps.
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Decodes the full resolution crop with a slower profile.
+   */
+  private Result decodeEscalated(RotatedPlanarYUVLuminanceSource source,
+                                 HintEscalation.Profile profile) {
+    deadline.check();
+    pointCallback.beginLevel(1);
+    // The full resolution level's buffers are free, the pyramid is skipped on this frame.
+    ReusableHybridBinarizer.Buffers buffers = levelBuffers[FACTORS.length - 1];
+    Binarizer binarizer;
+    switch (profile) {
+      case INVERTED:
+        binarizer = new ReusableHybridBinarizer(source.invert(), buffers);
+        break;
+      case ALTERNATE_BINARIZER:
+        binarizer = new GlobalHistogramBinarizer(source);
+        break;
+      default:
+        binarizer = new ReusableHybridBinarizer(source, buffers);
+        break;
+    }
+    BinaryBitmap bitmap = new BinaryBitmap(new TimingBinarizer(binarizer, timer, deadline));
+    MultiFormatReader profileReader =
+        profile == HintEscalation.Profile.TRY_HARDER ? tryHarderReader : escalatedReader;
+    try {
+      // decode(image) would clear the hints set on the MultiFormatReader.
+      Result result = profileReader.decodeWithState(bitmap);
+      lastFactor = 1;
+      return map(result);
+    } catch (ReaderException re) {
+      return null;
+    } finally {
+      profileReader.reset();
+    }
+  }
+
+  /**
+   * @return The decimation factor of the level the last barcode was found on.
+   */
+  int getLastFactor() {
+    return lastFactor;
+  }
+
+  private Result map(Result result) {
+    if (!pointCallback.isMapping()) {
+      return result;
+    }
+    ResultPoint[] points = result.getResultPoints();
+    ResultPoint[] mapped = null;
+    if (points != null) {
+      mapped = new ResultPoint[points.length];
+      for (int i = 0; i < points.length; i++) {
+        mapped[i] = points[i] == null ? null : pointCallback.map(points[i]);
+      }
+    }
+    Result mappedResult = new Result(result.getText(), result.getRawBytes(), mapped,
+        result.getBarcodeFormat(), result.getTimestamp());
+    mappedResult.putAllMetadata(result.getResultMetadata());
+    return mappedResult;
+  }
+
+  /**
+   * Maps the points reported on the current level to full resolution framing rect coordinates,
+   * counts them, and passes them on to the tracker and the original callback.
+   */
+  private static final class MappingResultPointCallback implements ResultPointCallback {
+
+    private final ResultPointCallback delegate;
+    private final RegionTracker regionTracker;
+    private int offsetX;
+    private int offsetY;
+    private int factor = 1;
+    private int framePointCount;
+    private int levelPointCount;
+
+    MappingResultPointCallback(ResultPointCallback delegate, RegionTracker regionTracker) {
+      this.delegate = delegate;
+      this.regionTracker = regionTracker;
+    }
+
+    void beginFrame(int offsetX, int offsetY) {
+      this.offsetX = offsetX;
+      this.offsetY = offsetY;
+      framePointCount = 0;
+    }
+
+    void beginLevel(int factor) {
+      this.factor = factor;
+      levelPointCount = 0;
+    }
+
+    int getFramePointCount() {
+      return framePointCount;
+    }
+
+    int getLevelPointCount() {
+      return levelPointCount;
+    }
+
+    boolean isMapping() {
+      return factor != 1 || offsetX != 0 || offsetY != 0;
+    }
+
+    ResultPoint map(ResultPoint point) {
+      return new ResultPoint(point.getX() * factor + offsetX, point.getY() * factor + offsetY);
+    }
+
+    @Override
+    public void foundPossibleResultPoint(ResultPoint point) {
+      framePointCount++;
+      levelPointCount++;
+      if (isMapping()) {
+        point = map(point);
+      }
+      if (regionTracker != null) {
+        regionTracker.addPoint(point);
+      }
+      if (delegate != null) {
+        delegate.foundPossibleResultPoint(point);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,201 @@
+package com.mazaiting.zxing.util;
+
+import android.graphics.Rect;
+
+import com.google.zxing.ResultPoint;
+
+/**
+ * Remembers where finder and result points were reported on recent frames and predicts a tight
+ * region of interest inside the framing rect for the next frame: the bounding box of those
+ * points, grown by a margin. Once a barcode has been roughly located only that region has to be
+ * binarized and searched. A frame decoded on the predicted region which reports no point at all
+ * is a miss and drops the track, so the next frame scans the whole framing rect again. So do
+ * {@link #MAX_TRACKED_FAILURES} failed frames in a row on the region, even with points: they are
+ * seen on a barcode which sticks out of the region, or on clutter which is not a barcode.
+ *
+ * Tracking only starts from reported points. Most readers report none while they search, Code
+ * 128, Code 39, ITF, Data Matrix, PDF417 and Aztec among them, so for those the track is seeded
+ * by {@link PyramidDecoder} from the result points of a barcode found on the whole framing rect,
+ * and a later frame on the region which finds nothing drops it again.
+ *
+ * All coordinates are relative to the framing rect in the preview frame. One tracker is shared
+ * by all decode workers.
+ * 感兴趣区域跟踪器
+ */
+public final class RegionTracker {
+
+  /** Points older than this no longer say where the barcode is. */
+  static final long TRACK_MILLIS = 400L;
+  /** The margin added on each side, as a fraction of the point bounding box. */
+  private static final float MARGIN_FRACTION = 0.5f;
+  /** The region is never smaller than this, so a few points on one line still cover a barcode. */
+  private static final int MIN_REGION_SIZE = 160;
+  /**
+   * Region sides are rounded up to a multiple of this, so that a track keeps its size from frame
+   * to frame and the binarizer reuses the bit matrix of that size.
+   */
+  private static final int REGION_STEP = 32;
+  /** Only this many recent points are kept. */
+  private static final int MAX_POINTS = 32;
+  /** Failed frames in a row on a predicted region which drop the track. */
+  static final int MAX_TRACKED_FAILURES = 3;
+
+  private final float[] xs = new float[MAX_POINTS];
+  private final float[] ys = new float[MAX_POINTS];
+  /** The {@link System#nanoTime()} each point was added at. */
+  private final long[] times = new long[MAX_POINTS];
+  private int next;
+  private int count;
+  private int trackedFailures;
+
+  private long trackedFrames;
+  private long fullFrames;
+  private long lostTracks;
+  private long trackedArea;
+  private long fullArea;
+
+  /**
+   * Predicts where to look on the next frame.
+   *
+   * @param width  Width of the framing rect.
+   * @param height Height of the framing rect.
+   * @return The region to decode, or null to decode the whole framing rect.
+   */
+  synchronized Rect predict(int width, int height) {
+    fullArea += (long) width * height;
+    Rect region = findRegion(width, height);
+    if (region == null) {
+      fullFrames++;
+      trackedArea += (long) width * height;
+      return null;
+    }
+    trackedFrames++;
+    trackedArea += (long) region.width() * region.height();
+    return region;
+  }
+
+  /**
+   * Tells where the barcode is being tracked to right now, without counting a frame, for
+   * example to meter the camera on it.
+   *
+   * @param width  Width of the framing rect.
+   * @param height Height of the framing rect.
+   * @return The region the next frame will be decoded on, or null if it is the whole framing
+   *         rect.
+   */
+  public synchronized Rect getRegion(int width, int height) {
+    return findRegion(width, height);
+  }
+
+  private Rect findRegion(int width, int height) {
+    long now = System.nanoTime();
+    float minX = Float.MAX_VALUE;
+    float minY = Float.MAX_VALUE;
+    float maxX = -Float.MAX_VALUE;
+    float maxY = -Float.MAX_VALUE;
+    boolean found = false;
+    for (int i = 0; i < count; i++) {
+      if (now - times[i] > TRACK_MILLIS * 1000000L) {
+        continue;
+      }
+      found = true;
+      minX = Math.min(minX, xs[i]);
+      minY = Math.min(minY, ys[i]);
+      maxX = Math.max(maxX, xs[i]);
+      maxY = Math.max(maxY, ys[i]);
+    }
+    if (!found) {
+      return null;
+    }
+    Rect region = new Rect(
+        grow(minX, maxX, width, true), grow(minY, maxY, height, true),
+        grow(minX, maxX, width, false), grow(minY, maxY, height, false));
+    if (region.width() >= width && region.height() >= height) {
+      return null;
+    }
+    return region;
+  }
+
+  /**
+   * Grows the span [min, max] by the margin and to the minimum size, rounded up to the step and
+   * shifted to fit in [0, limit).
+   *
+   * @return The low end if {@code low} is set, otherwise the exclusive high end.
+   */
+  private static int grow(float min, float max, int limit, boolean low) {
+    float span = max - min;
+    float size = Math.max(span * (1.0f + 2.0f * MARGIN_FRACTION), MIN_REGION_SIZE);
+    size = (float) Math.ceil(size / REGION_STEP) * REGION_STEP;
+    if (size >= limit) {
+      return low ? 0 : limit;
+    }
+    int start = Math.round((min + max - size) / 2.0f);
+    start = Math.max(0, Math.min(start, limit - Math.round(size)));
+    return low ? start : start + Math.round(size);
+  }
+
+  /**
+   * Adds a point reported on the current frame.
+   */
+  synchronized void addPoint(ResultPoint point) {
+    xs[next] = point.getX();
+    ys[next] = point.getY();
+    times[next] = System.nanoTime();
+    next = (next + 1) % MAX_POINTS;
+    count = Math.min(count + 1, MAX_POINTS);
+  }
+
+  /**
+   * Reports how a frame decoded on a predicted region went.
+   *
+   * @param pointCount The number of points reported on that frame.
+   * @param found      Whether a barcode was found on it.
+   */
+  synchronized void onRegionDecoded(int pointCount, boolean found) {
+    if (found) {
+      trackedFailures = 0;
+    } else if (pointCount == 0 || ++trackedFailures >= MAX_TRACKED_FAILURES) {
+      lostTracks++;
+      reset();
+    }
+  }
+
+  /**
+   * Forgets the track, e.g. when scanning restarts after a result.
+   */
+  public synchronized void reset() {
+    count = 0;
+    next = 0;
+    trackedFailures = 0;
+  }
+
+  /**
+   * @return The number of frames decoded on a predicted region.
+   */
+  public synchronized long getTrackedFrameCount() {
+    return trackedFrames;
+  }
+
+  /**
+   * @return The number of frames decoded on the whole framing rect.
+   */
+  public synchronized long getFullFrameCount() {
+    return fullFrames;
+  }
+
+  /**
+   * @return How often a track was dropped after a miss.
+   */
+  public synchronized long getLostTrackCount() {
+    return lostTracks;
+  }
+
+  /**
+   * @return The area decoded so far as a fraction of what decoding every frame on the whole
+   *         framing rect would have taken.
+   */
+  public synchronized float getAreaFraction() {
+    return fullArea == 0 ? 1.0f : (float) trackedArea / fullArea;
+  }
+
+}
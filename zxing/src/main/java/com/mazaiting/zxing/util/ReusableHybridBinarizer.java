@@ -0,0 +1,419 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+import com.mazaiting.zxing.camera.SubsampledPlanarYUVLuminanceSource;
+
+/**
+ * Binarizes exactly like {@link HybridBinarizer}, and its rows like GlobalHistogramBinarizer,
+ * but into arrays held by a {@link Buffers} which outlives the frame. As long as the crop keeps
+ * to a few sizes, binarizing the next frame allocates nothing but the binarizer itself: the
+ * luminance matrix, the block black points, the bit matrices and the row buffers are all reused.
+ *
+ * The matrix handed out is overwritten by the next frame binarized with the same buffers, so
+ * buffers belong to one decode worker and one frame is decoded at a time. Rotated images, as
+ * TRY_HARDER asks for, get a plain HybridBinarizer, so they never share the buffers.
+ * 可复用二值化器
+ */
+public final class ReusableHybridBinarizer extends Binarizer {
+
+  // This class uses 5x5 blocks to compute local luminance, where each block is 8x8 pixels.
+  // So this is the smallest dimension in each axis we can accept.
+  private static final int BLOCK_SIZE_POWER = 3;
+  private static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER; // ...0100...00
+  private static final int BLOCK_SIZE_MASK = BLOCK_SIZE - 1;   // ...0011...11
+  private static final int MINIMUM_DIMENSION = BLOCK_SIZE * 5;
+  private static final int MIN_DYNAMIC_RANGE = 24;
+
+  private static final int LUMINANCE_BITS = 5;
+  private static final int LUMINANCE_SHIFT = 8 - LUMINANCE_BITS;
+  private static final int LUMINANCE_BUCKETS = 1 << LUMINANCE_BITS;
+
+  private final Buffers buffers;
+  private BitMatrix matrix;
+
+  /**
+   * @param buffers The arrays to binarize into; reused by the next frame.
+   */
+  public ReusableHybridBinarizer(LuminanceSource source, Buffers buffers) {
+    super(source);
+    this.buffers = buffers;
+  }
+
+  /**
+   * Applies simple sharpening to the row data to improve performance of the 1D readers, exactly
+   * as GlobalHistogramBinarizer does.
+   */
+  @Override
+  public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+    LuminanceSource source = getLuminanceSource();
+    int width = source.getWidth();
+    if (row == null || row.getSize() < width) {
+      row = new BitArray(width);
+    } else {
+      row.clear();
+    }
+
+    byte[] localLuminances = buffers.rowLuminances(width);
+    localLuminances = source.getRow(y, localLuminances);
+    int[] localBuckets = buffers.buckets();
+    for (int x = 0; x < width; x++) {
+      localBuckets[(localLuminances[x] & 0xff) >> LUMINANCE_SHIFT]++;
+    }
+    int blackPoint = estimateBlackPoint(localBuckets);
+
+    if (width < 3) {
+      // Special case for very small images
+      for (int x = 0; x < width; x++) {
+        if ((localLuminances[x] & 0xff) < blackPoint) {
+          row.set(x);
+        }
+      }
+    } else {
+      int left = localLuminances[0] & 0xff;
+      int center = localLuminances[1] & 0xff;
+      for (int x = 1; x < width - 1; x++) {
+        int right = localLuminances[x + 1] & 0xff;
+        // A simple -1 4 -1 box filter with a weight of 2.
+        if (((center * 4) - left - right) / 2 < blackPoint) {
+          row.set(x);
+        }
+        left = center;
+        center = right;
+      }
+    }
+    return row;
+  }
+
+  /**
+   * Calculates the final BitMatrix once for all requests, as HybridBinarizer does, into the
+   * reused arrays.
+   */
+  @Override
+  public BitMatrix getBlackMatrix() throws NotFoundException {
+    if (matrix != null) {
+      return matrix;
+    }
+    LuminanceSource source = getLuminanceSource();
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (width >= MINIMUM_DIMENSION && height >= MINIMUM_DIMENSION) {
+      byte[] luminances;
+      if (source instanceof RotatedPlanarYUVLuminanceSource) {
+        RotatedPlanarYUVLuminanceSource rotatedSource = (RotatedPlanarYUVLuminanceSource) source;
+        luminances = rotatedSource.getMatrix(buffers.luminances);
+        // A whole unrotated frame is read in place; the next frame must not be copied into it.
+        if (!rotatedSource.isFrameData(luminances)) {
+          buffers.luminances = luminances;
+        }
+      } else if (source instanceof SubsampledPlanarYUVLuminanceSource) {
+        luminances = ((SubsampledPlanarYUVLuminanceSource) source).getMatrix(buffers.luminances);
+        buffers.luminances = luminances;
+      } else {
+        luminances = source.getMatrix();
+      }
+      int subWidth = width >> BLOCK_SIZE_POWER;
+      if ((width & BLOCK_SIZE_MASK) != 0) {
+        subWidth++;
+      }
+      int subHeight = height >> BLOCK_SIZE_POWER;
+      if ((height & BLOCK_SIZE_MASK) != 0) {
+        subHeight++;
+      }
+      int[] blackPoints = buffers.blackPoints(subWidth * subHeight);
+      calculateBlackPoints(luminances, subWidth, subHeight, width, height, blackPoints);
+
+      BitMatrix newMatrix = buffers.matrix(width, height);
+      calculateThresholdForBlock(luminances, subWidth, subHeight, width, height, blackPoints,
+          newMatrix);
+      matrix = newMatrix;
+    } else {
+      // If the image is too small, fall back to the global histogram approach.
+      matrix = new HybridBinarizer(source).getBlackMatrix();
+    }
+    return matrix;
+  }
+
+  @Override
+  public Binarizer createBinarizer(LuminanceSource source) {
+    // The buffers still hold this binarizer's matrix.
+    return new HybridBinarizer(source);
+  }
+
+  /**
+   * For each block in the image, calculate the average black point using a 5x5 grid
+   * of the blocks around it. Also handles the corner cases (fractional blocks are computed based
+   * on the last pixels in the row/column which are also used in the previous block).
+   */
+  private static void calculateThresholdForBlock(byte[] luminances,
+                                                 int subWidth,
+                                                 int subHeight,
+                                                 int width,
+                                                 int height,
+                                                 int[] blackPoints,
+                                                 BitMatrix matrix) {
+    int maxYOffset = height - BLOCK_SIZE;
+    int maxXOffset = width - BLOCK_SIZE;
+    for (int y = 0; y < subHeight; y++) {
+      int yoffset = y << BLOCK_SIZE_POWER;
+      if (yoffset > maxYOffset) {
+        yoffset = maxYOffset;
+      }
+      int top = cap(y, 2, subHeight - 3);
+      for (int x = 0; x < subWidth; x++) {
+        int xoffset = x << BLOCK_SIZE_POWER;
+        if (xoffset > maxXOffset) {
+          xoffset = maxXOffset;
+        }
+        int left = cap(x, 2, subWidth - 3);
+        int sum = 0;
+        for (int z = -2; z <= 2; z++) {
+          int blackRow = (top + z) * subWidth;
+          sum += blackPoints[blackRow + left - 2] + blackPoints[blackRow + left - 1]
+              + blackPoints[blackRow + left] + blackPoints[blackRow + left + 1]
+              + blackPoints[blackRow + left + 2];
+        }
+        int average = sum / 25;
+        thresholdBlock(luminances, xoffset, yoffset, average, width, matrix);
+      }
+    }
+  }
+
+  private static int cap(int value, int min, int max) {
+    return value < min ? min : value > max ? max : value;
+  }
+
+  /**
+   * Applies a single threshold to a block of pixels.
+   */
+  private static void thresholdBlock(byte[] luminances,
+                                     int xoffset,
+                                     int yoffset,
+                                     int threshold,
+                                     int stride,
+                                     BitMatrix matrix) {
+    for (int y = 0, offset = yoffset * stride + xoffset; y < BLOCK_SIZE; y++, offset += stride) {
+      for (int x = 0; x < BLOCK_SIZE; x++) {
+        // Comparison needs to be <= so that black == 0 pixels are black even if the threshold is 0.
+        if ((luminances[offset + x] & 0xFF) <= threshold) {
+          matrix.set(xoffset + x, yoffset + y);
+        }
+      }
+    }
+  }
+
+  /**
+   * Calculates a single black point for each block of pixels and saves it away, row by row.
+   * See the following thread for a discussion of this algorithm:
+   *  http://groups.google.com/group/zxing/browse_thread/thread/d06efa2c35a7ddc0
+   */
+  private static void calculateBlackPoints(byte[] luminances,
+                                           int subWidth,
+                                           int subHeight,
+                                           int width,
+                                           int height,
+                                           int[] blackPoints) {
+    int maxYOffset = height - BLOCK_SIZE;
+    int maxXOffset = width - BLOCK_SIZE;
+    for (int y = 0; y < subHeight; y++) {
+      int yoffset = y << BLOCK_SIZE_POWER;
+      if (yoffset > maxYOffset) {
+        yoffset = maxYOffset;
+      }
+      for (int x = 0; x < subWidth; x++) {
+        int xoffset = x << BLOCK_SIZE_POWER;
+        if (xoffset > maxXOffset) {
+          xoffset = maxXOffset;
+        }
+        int sum = 0;
+        int min = 0xFF;
+        int max = 0;
+        for (int yy = 0, offset = yoffset * width + xoffset; yy < BLOCK_SIZE; yy++, offset += width) {
+          for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+            int pixel = luminances[offset + xx] & 0xFF;
+            sum += pixel;
+            // still looking for good contrast
+            if (pixel < min) {
+              min = pixel;
+            }
+            if (pixel > max) {
+              max = pixel;
+            }
+          }
+          // short-circuit min/max tests once dynamic range is met
+          if (max - min > MIN_DYNAMIC_RANGE) {
+            // finish the rest of the rows quickly
+            for (yy++, offset += width; yy < BLOCK_SIZE; yy++, offset += width) {
+              for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+                sum += luminances[offset + xx] & 0xFF;
+              }
+            }
+          }
+        }
+
+        // The default estimate is the average of the values in the block.
+        int average = sum >> (BLOCK_SIZE_POWER * 2);
+        if (max - min <= MIN_DYNAMIC_RANGE) {
+          // If variation within the block is low, assume this is a block with only light or only
+          // dark pixels. In that case we do not want to use the average, as it would divide this
+          // low contrast area into black and white pixels, essentially creating data out of noise.
+          //
+          // The default assumption is that the block is light/background. Since no estimate for
+          // the level of dark pixels exists locally, use half the min for the block.
+          average = min / 2;
+
+          if (y > 0 && x > 0) {
+            // Correct the "white background" assumption for blocks that have neighbors by comparing
+            // the pixels in this block to the previously calculated black points. This is based on
+            // the fact that dark barcode symbology is always surrounded by some amount of light
+            // background for which reasonable black point estimates were made. The bp estimated at
+            // the boundaries is used for the interior.
+
+            // The (min < bp) is arbitrary but works better than other heuristics that were tried.
+            int above = (y - 1) * subWidth;
+            int averageNeighborBlackPoint = (blackPoints[above + x]
+                + (2 * blackPoints[y * subWidth + x - 1]) + blackPoints[above + x - 1]) / 4;
+            if (min < averageNeighborBlackPoint) {
+              average = averageNeighborBlackPoint;
+            }
+          }
+        }
+        blackPoints[y * subWidth + x] = average;
+      }
+    }
+  }
+
+  private static int estimateBlackPoint(int[] buckets) throws NotFoundException {
+    // Find the tallest peak in the histogram.
+    int numBuckets = buckets.length;
+    int maxBucketCount = 0;
+    int firstPeak = 0;
+    int firstPeakSize = 0;
+    for (int x = 0; x < numBuckets; x++) {
+      if (buckets[x] > firstPeakSize) {
+        firstPeak = x;
+        firstPeakSize = buckets[x];
+      }
+      if (buckets[x] > maxBucketCount) {
+        maxBucketCount = buckets[x];
+      }
+    }
+
+    // Find the second-tallest peak which is somewhat far from the tallest peak.
+    int secondPeak = 0;
+    int secondPeakScore = 0;
+    for (int x = 0; x < numBuckets; x++) {
+      int distanceToBiggest = x - firstPeak;
+      // Encourage more distant second peaks by multiplying by square of distance.
+      int score = buckets[x] * distanceToBiggest * distanceToBiggest;
+      if (score > secondPeakScore) {
+        secondPeak = x;
+        secondPeakScore = score;
+      }
+    }
+
+    // Make sure firstPeak corresponds to the black peak.
+    if (firstPeak > secondPeak) {
+      int temp = firstPeak;
+      firstPeak = secondPeak;
+      secondPeak = temp;
+    }
+
+    // If there is too little contrast in the image to pick a meaningful black point, throw rather
+    // than waste time trying to decode the image, and risk false positives.
+    if (secondPeak - firstPeak <= numBuckets / 16) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+
+    // Find a valley between them that is low and closer to the white peak.
+    int bestValley = secondPeak - 1;
+    int bestValleyScore = -1;
+    for (int x = secondPeak - 1; x > firstPeak; x--) {
+      int fromFirst = x - firstPeak;
+      int score = fromFirst * fromFirst * (secondPeak - x) * (maxBucketCount - buckets[x]);
+      if (score > bestValleyScore) {
+        bestValley = x;
+        bestValleyScore = score;
+      }
+    }
+
+    return bestValley << LUMINANCE_SHIFT;
+  }
+
+  /**
+   * The arrays a {@link ReusableHybridBinarizer} binarizes into. Each array grows to the largest
+   * size asked for. A bit matrix has to match the crop exactly, since the detectors search all of
+   * it, so one is kept for each of the last few crop sizes: the whole framing rect and the tracked
+   * regions, whose sizes {@link RegionTracker} rounds to a coarse step. Only a crop of a size not
+   * seen lately allocates a new matrix.
+   */
+  public static final class Buffers {
+    /** The number of crop sizes a bit matrix is kept for. */
+    private static final int MATRIX_SLOTS = 4;
+
+    private byte[] luminances;
+    private int[] blackPoints;
+    private final BitMatrix[] matrices = new BitMatrix[MATRIX_SLOTS];
+    //下一个被替换的矩阵槽位, 轮流替换
+    private int nextSlot;
+    private byte[] rowLuminances;
+    private final int[] buckets = new int[LUMINANCE_BUCKETS];
+
+    int[] blackPoints(int size) {
+      if (blackPoints == null || blackPoints.length < size) {
+        blackPoints = new int[size];
+      }
+      return blackPoints;
+    }
+
+    BitMatrix matrix(int width, int height) {
+      for (int i = 0; i < MATRIX_SLOTS; i++) {
+        BitMatrix matrix = matrices[i];
+        if (matrix != null && matrix.getWidth() == width && matrix.getHeight() == height) {
+          matrix.clear();
+          return matrix;
+        }
+      }
+      BitMatrix matrix = new BitMatrix(width, height);
+      matrices[nextSlot] = matrix;
+      nextSlot = (nextSlot + 1) % MATRIX_SLOTS;
+      return matrix;
+    }
+
+    byte[] rowLuminances(int width) {
+      if (rowLuminances == null || rowLuminances.length < width) {
+        rowLuminances = new byte[width];
+      }
+      return rowLuminances;
+    }
+
+    int[] buckets() {
+      for (int x = 0; x < LUMINANCE_BUCKETS; x++) {
+        buckets[x] = 0;
+      }
+      return buckets;
+    }
+  }
+
+}
@@ -0,0 +1,59 @@
+package com.mazaiting.zxing.util;
+
+import com.mazaiting.zxing.listener.ScanMetricsListener;
+
+/**
+ * Timings of every decoded preview frame, successful or not, broken down by pipeline stage and
+ * kept in fixed-size histograms. Poll it, or subscribe to be told every so many frames.
+ * 扫描耗时统计
+ */
+public interface ScanMetrics {
+
+  /**
+   * The stages of one frame. Detection and decoding happen inside the zxing readers and are
+   * measured together.
+   */
+  enum Stage {
+    /** From the camera delivering the frame until a worker starts on it. */
+    FRAME_WAIT,
+    /** Building the rotated, cropped view of the frame. */
+    SOURCE,
+    /** Binarizing rows and matrices. */
+    BINARIZE,
+    /** Locating and decoding barcodes, binarization excluded. */
+    DECODE,
+    /** Rendering the result image and posting the result to the main thread. */
+    DISPATCH,
+    /** From the camera delivering the frame until the worker is done with it. */
+    TOTAL
+  }
+
+  /**
+   * @return The number of frames measured.
+   */
+  long getFrameCount();
+
+  /**
+   * @return The number of measured frames on which a barcode was found.
+   */
+  long getSuccessCount();
+
+  /**
+   * @return A snapshot of the histogram of the given stage.
+   */
+  TimingHistogram getHistogram(Stage stage);
+
+  /**
+   * Subscribes to the metrics; the listener is called on a decode thread after every
+   * {@code frameInterval} measured frames.
+   */
+  void addListener(ScanMetricsListener listener, int frameInterval);
+
+  void removeListener(ScanMetricsListener listener);
+
+  /**
+   * Clears all histograms and counters.
+   */
+  void reset();
+
+}
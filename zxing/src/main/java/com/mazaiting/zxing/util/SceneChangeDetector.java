@@ -0,0 +1,153 @@
+package com.mazaiting.zxing.util;
+
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+/**
+ * Tells whether the framing rect still shows what it showed on the last frame which was decoded
+ * without a result, so that a camera looking at an unchanging scene does not decode the same
+ * failing image over and over. The signature of a frame is the mean luminance of each cell of a
+ * {@link #SIGNATURE_SIZE} by {@link #SIGNATURE_SIZE} grid, taken from a sparse sample of the
+ * crop. Two signatures match when, after taking out a change in overall brightness, fewer than
+ * {@link #MIN_CHANGED_CELLS} cells differ by more than the cell threshold.
+ *
+ * A matching frame is skipped, but a frame is decoded at least once every maximum skip interval
+ * however still the scene is. One detector is shared by all decode workers.
+ * 场景变化检测器
+ */
+public final class SceneChangeDetector {
+
+  /** The least difference, in grey levels, that makes a cell count as changed. */
+  public static final int DEFAULT_CELL_THRESHOLD = 12;
+  /** An unchanged scene is still decoded this often. */
+  public static final long DEFAULT_MAX_SKIP_MILLIS = 500L;
+
+  /** Cells per side of the signature grid. */
+  static final int SIGNATURE_SIZE = 16;
+  /** Samples per side of the grid the cell means are taken from. */
+  private static final int SAMPLES_PER_SIDE = 64;
+  /** A scene has changed when at least this many cells have. */
+  private static final int MIN_CHANGED_CELLS = 2;
+
+  private int cellThreshold = DEFAULT_CELL_THRESHOLD;
+  private long maxSkipMillis = DEFAULT_MAX_SKIP_MILLIS;
+  private int[] failedSignature;
+  private long failedMillis;
+
+  private long checkedCount;
+  private long skippedCount;
+
+  /**
+   * Sets the least difference, in grey levels, that makes a cell of the signature count as
+   * changed.
+   */
+  public synchronized void setCellThreshold(int cellThreshold) {
+    this.cellThreshold = cellThreshold;
+  }
+
+  /**
+   * Sets how long an unchanged scene may go without being decoded; 0 turns skipping off.
+   */
+  public synchronized void setMaxSkipMillis(long maxSkipMillis) {
+    this.maxSkipMillis = maxSkipMillis;
+  }
+
+  /**
+   * @param source The framing rect of the frame.
+   * @return The signature of the frame: the mean luminance of each cell, row by row.
+   */
+  static int[] signature(RotatedPlanarYUVLuminanceSource source) {
+    int step = Math.max(1, Math.max(source.getWidth(), source.getHeight()) / SAMPLES_PER_SIDE);
+    byte[] samples = source.subsample(step).getMatrix();
+    int columns = source.getWidth() / step;
+    int rows = source.getHeight() / step;
+    int[] sums = new int[SIGNATURE_SIZE * SIGNATURE_SIZE];
+    int[] counts = new int[sums.length];
+    for (int y = 0; y < rows; y++) {
+      int cellRow = y * SIGNATURE_SIZE / rows * SIGNATURE_SIZE;
+      int offset = y * columns;
+      for (int x = 0; x < columns; x++) {
+        int cell = cellRow + x * SIGNATURE_SIZE / columns;
+        sums[cell] += samples[offset + x] & 0xff;
+        counts[cell]++;
+      }
+    }
+    for (int i = 0; i < sums.length; i++) {
+      sums[i] = counts[i] == 0 ? 0 : sums[i] / counts[i];
+    }
+    return sums;
+  }
+
+  /**
+   * @param signature The signature of the frame about to be decoded.
+   * @return Whether the frame shows the scene of the last failed frame and can be skipped.
+   */
+  synchronized boolean isUnchanged(int[] signature) {
+    checkedCount++;
+    if (failedSignature == null
+        || System.currentTimeMillis() - failedMillis >= maxSkipMillis
+        || hasChanged(failedSignature, signature)) {
+      return false;
+    }
+    skippedCount++;
+    return true;
+  }
+
+  private boolean hasChanged(int[] a, int[] b) {
+    // Auto exposure shifts every cell alike; that alone is no change of scene.
+    int shift = 0;
+    for (int i = 0; i < a.length; i++) {
+      shift += b[i] - a[i];
+    }
+    shift /= a.length;
+    int changed = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (Math.abs(b[i] - a[i] - shift) > cellThreshold && ++changed >= MIN_CHANGED_CELLS) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reports how decoding a frame which was not skipped went.
+   *
+   * @param signature The signature of the frame.
+   * @param found     Whether a barcode was found; if not, later frames showing the same scene
+   *                  are skipped.
+   */
+  synchronized void onDecoded(int[] signature, boolean found) {
+    if (found) {
+      failedSignature = null;
+    } else {
+      failedSignature = signature;
+      failedMillis = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Forgets the last failed frame, so that the next frame is decoded whatever it shows.
+   */
+  public synchronized void reset() {
+    failedSignature = null;
+  }
+
+  /**
+   * @return The number of frames compared with the last failed one.
+   */
+  public synchronized long getCheckedCount() {
+    return checkedCount;
+  }
+
+  /**
+   * @return The number of frames skipped as showing an unchanged scene.
+   */
+  public synchronized long getSkippedCount() {
+    return skippedCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return checkedCount + " frames, " + skippedCount + " unchanged";
+  }
+
+}
@@ -0,0 +1,117 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+/**
+ * Binarizes a framing rect once with {@link HybridBinarizer} and answers every later request,
+ * including those for crops of it, from that one matrix. GenericMultipleBarcodeReader crops the
+ * image around each barcode it finds and would otherwise binarize every crop again.
+ *
+ * Rows for one dimensional readers are taken from the same matrix rather than binarized row by
+ * row, so all readers see the same bits. Anything other than a crop of the same rotated view,
+ * such as the rotated image TRY_HARDER asks for, falls back to a fresh HybridBinarizer. Every
+ * row and matrix handed out first checks the frame's deadline.
+ * 共享二值化矩阵
+ */
+final class SharedMatrixBinarizer extends Binarizer {
+
+  private final BitMatrix matrix;
+  private final DecodeBudget.Deadline deadline;
+  /** Position of the matrix in rotated frame coordinates. */
+  private final int matrixLeft;
+  private final int matrixTop;
+  /** Offset of this binarizer's source inside the matrix. */
+  private final int left;
+  private final int top;
+  private BitMatrix croppedMatrix;
+
+  private SharedMatrixBinarizer(RotatedPlanarYUVLuminanceSource source, BitMatrix matrix,
+                                int matrixLeft, int matrixTop, DecodeBudget.Deadline deadline) {
+    super(source);
+    this.matrix = matrix;
+    this.deadline = deadline;
+    this.matrixLeft = matrixLeft;
+    this.matrixTop = matrixTop;
+    left = source.getLeft() - matrixLeft;
+    top = source.getTop() - matrixTop;
+  }
+
+  /**
+   * Binarizes the whole source.
+   *
+   * @param buffers The arrays to binarize into, reused by the next frame.
+   * @param deadline The deadline of the worker's frame.
+   */
+  static SharedMatrixBinarizer binarize(RotatedPlanarYUVLuminanceSource source,
+                                        ReusableHybridBinarizer.Buffers buffers,
+                                        DecodeBudget.Deadline deadline)
+      throws NotFoundException {
+    BitMatrix matrix = new ReusableHybridBinarizer(source, buffers).getBlackMatrix();
+    return new SharedMatrixBinarizer(source, matrix, source.getLeft(), source.getTop(),
+        deadline);
+  }
+
+  @Override
+  public BitArray getBlackRow(int y, BitArray row) {
+    deadline.check();
+    int width = getWidth();
+    if (row == null || row.getSize() < width) {
+      row = new BitArray(width);
+    } else {
+      row.clear();
+    }
+    if (left == 0 && width == matrix.getWidth()) {
+      return matrix.getRow(top + y, row);
+    }
+    for (int x = 0; x < width; x++) {
+      if (matrix.get(left + x, top + y)) {
+        row.set(x);
+      }
+    }
+    return row;
+  }
+
+  @Override
+  public BitMatrix getBlackMatrix() {
+    deadline.check();
+    int width = getWidth();
+    int height = getHeight();
+    if (left == 0 && top == 0 && width == matrix.getWidth() && height == matrix.getHeight()) {
+      return matrix;
+    }
+    if (croppedMatrix == null) {
+      croppedMatrix = new BitMatrix(width, height);
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          if (matrix.get(left + x, top + y)) {
+            croppedMatrix.set(x, y);
+          }
+        }
+      }
+    }
+    return croppedMatrix;
+  }
+
+  @Override
+  public Binarizer createBinarizer(LuminanceSource source) {
+    RotatedPlanarYUVLuminanceSource parent =
+        (RotatedPlanarYUVLuminanceSource) getLuminanceSource();
+    if (source instanceof RotatedPlanarYUVLuminanceSource) {
+      RotatedPlanarYUVLuminanceSource crop = (RotatedPlanarYUVLuminanceSource) source;
+      if (crop.getRotation() == parent.getRotation() && crop.isMirror() == parent.isMirror()
+          && crop.getLeft() >= matrixLeft && crop.getTop() >= matrixTop
+          && crop.getLeft() - matrixLeft + crop.getWidth() <= matrix.getWidth()
+          && crop.getTop() - matrixTop + crop.getHeight() <= matrix.getHeight()) {
+        return new SharedMatrixBinarizer(crop, matrix, matrixLeft, matrixTop, deadline);
+      }
+    }
+    return new HybridBinarizer(source);
+  }
+
+}
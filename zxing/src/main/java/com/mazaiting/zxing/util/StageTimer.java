@@ -0,0 +1,26 @@
+package com.mazaiting.zxing.util;
+
+/**
+ * Collects the stage timings of the frame a worker is decoding. Not thread safe; each decode
+ * worker has its own.
+ * 阶段计时器
+ */
+final class StageTimer {
+
+  private final long[] stageNanos = new long[ScanMetrics.Stage.values().length];
+
+  void begin() {
+    for (int i = 0; i < stageNanos.length; i++) {
+      stageNanos[i] = 0L;
+    }
+  }
+
+  void add(ScanMetrics.Stage stage, long nanos) {
+    stageNanos[stage.ordinal()] += nanos;
+  }
+
+  long get(ScanMetrics.Stage stage) {
+    return stageNanos[stage.ordinal()];
+  }
+
+}
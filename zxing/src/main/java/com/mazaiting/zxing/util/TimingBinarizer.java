@@ -0,0 +1,56 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * Passes every call on to another binarizer and adds the time spent to the
+ * {@link ScanMetrics.Stage#BINARIZE} stage, so that binarization can be told apart from the
+ * detection and decoding it is interleaved with. Since every row and matrix a reader asks for
+ * passes through here, it is also where the frame's deadline is checked most often.
+ * 计时二值化器
+ */
+final class TimingBinarizer extends Binarizer {
+
+  private final Binarizer delegate;
+  private final StageTimer timer;
+  private final DecodeBudget.Deadline deadline;
+
+  TimingBinarizer(Binarizer delegate, StageTimer timer, DecodeBudget.Deadline deadline) {
+    super(delegate.getLuminanceSource());
+    this.delegate = delegate;
+    this.timer = timer;
+    this.deadline = deadline;
+  }
+
+  @Override
+  public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+    deadline.check();
+    long start = System.nanoTime();
+    try {
+      return delegate.getBlackRow(y, row);
+    } finally {
+      timer.add(ScanMetrics.Stage.BINARIZE, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public BitMatrix getBlackMatrix() throws NotFoundException {
+    deadline.check();
+    long start = System.nanoTime();
+    try {
+      return delegate.getBlackMatrix();
+    } finally {
+      timer.add(ScanMetrics.Stage.BINARIZE, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public Binarizer createBinarizer(LuminanceSource source) {
+    return new TimingBinarizer(delegate.createBinarizer(source), timer, deadline);
+  }
+
+}
@@ -0,0 +1,119 @@
+package com.mazaiting.zxing.util;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size histogram of durations. Buckets are logarithmic with four sub-buckets per power of
+ * two microseconds, so any recorded value is known to within 25% and the memory used never
+ * grows, from one microsecond up to about 17 minutes.
+ * 耗时直方图
+ */
+public final class TimingHistogram {
+
+  private static final int SUB_BUCKETS = 4;
+  private static final int OCTAVES = 30;
+
+  private final long[] counts;
+  private long count;
+  private long totalNanos;
+  private long maxNanos;
+
+  public TimingHistogram() {
+    counts = new long[OCTAVES * SUB_BUCKETS];
+  }
+
+  private TimingHistogram(TimingHistogram other) {
+    counts = other.counts.clone();
+    count = other.count;
+    totalNanos = other.totalNanos;
+    maxNanos = other.maxNanos;
+  }
+
+  void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    counts[bucket(nanos / 1000L)]++;
+    count++;
+    totalNanos += nanos;
+    maxNanos = Math.max(maxNanos, nanos);
+  }
+
+  void reset() {
+    Arrays.fill(counts, 0L);
+    count = 0;
+    totalNanos = 0;
+    maxNanos = 0;
+  }
+
+  TimingHistogram copy() {
+    return new TimingHistogram(this);
+  }
+
+  private static int bucket(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int octave = 63 - Long.numberOfLeadingZeros(micros);
+    // The two bits below the highest set bit pick the sub-bucket.
+    int sub = (int) (micros >>> (octave - 2)) & (SUB_BUCKETS - 1);
+    int index = (octave - 1) * SUB_BUCKETS + sub;
+    return Math.min(index, OCTAVES * SUB_BUCKETS - 1);
+  }
+
+  /**
+   * @return The least value, in microseconds, falling into the bucket.
+   */
+  private static long bucketStartMicros(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int octave = index / SUB_BUCKETS + 1;
+    int sub = index % SUB_BUCKETS;
+    return (long) (SUB_BUCKETS + sub) << (octave - 2);
+  }
+
+  /**
+   * @return The number of recorded durations.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  public long getMeanMicros() {
+    return count == 0 ? 0L : totalNanos / count / 1000L;
+  }
+
+  public long getMaxMicros() {
+    return maxNanos / 1000L;
+  }
+
+  /**
+   * @param percentile Between 0 and 100.
+   * @return The duration, in microseconds, which that percentage of recorded durations did not
+   *         exceed, rounded down to its bucket.
+   */
+  public long getPercentileMicros(double percentile) {
+    if (count == 0) {
+      return 0L;
+    }
+    long rank = (long) Math.ceil(percentile / 100.0 * count);
+    rank = Math.max(1L, Math.min(rank, count));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(bucketStartMicros(i), getMaxMicros());
+      }
+    }
+    return getMaxMicros();
+  }
+
+  @Override
+  public String toString() {
+    return "n=" + count + " mean=" + getMeanMicros() + "us p50=" + getPercentileMicros(50)
+        + "us p90=" + getPercentileMicros(90) + "us p99=" + getPercentileMicros(99)
+        + "us max=" + getMaxMicros() + "us";
+  }
+
+}
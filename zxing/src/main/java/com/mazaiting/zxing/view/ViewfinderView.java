@@ -89,12 +89,18 @@ public final class ViewfinderView extends View {
       int middle = frame.height() / 2 + frame.top;
       canvas.drawRect(frame.left + 2, middle - 1, frame.right - 1, middle + 2, paint);
 
-      Collection<ResultPoint> currentPossible = possibleResultPoints;
+      // Decode workers add points from their own threads.
+      Collection<ResultPoint> currentPossible;
+      synchronized (this) {
+        currentPossible = possibleResultPoints;
+        if (!currentPossible.isEmpty()) {
+          possibleResultPoints = new HashSet<ResultPoint>(5);
+        }
+      }
       Collection<ResultPoint> currentLast = lastPossibleResultPoints;
       if (currentPossible.isEmpty()) {
         lastPossibleResultPoints = null;
       } else {
-        possibleResultPoints = new HashSet<ResultPoint>(5);
         lastPossibleResultPoints = currentPossible;
         paint.setAlpha(OPAQUE);
         paint.setColor(resultPointColor);
@@ -131,7 +137,7 @@ public final class ViewfinderView extends View {
     invalidate();
   }
 
-  public void addPossibleResultPoint(ResultPoint point) {
+  public synchronized void addPossibleResultPoint(ResultPoint point) {
     possibleResultPoints.add(point);
   }
 
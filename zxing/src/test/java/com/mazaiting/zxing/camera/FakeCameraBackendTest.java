@@ -0,0 +1,153 @@
+package com.mazaiting.zxing.camera;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link FakeCameraBackend} against the {@link CameraBackend} contract which the replay
+ * relies on: strided frames, a bounded number of frames in flight, and frames which stay valid
+ * across stopPreview() and close() until they are released.
+ * 相机后端约定测试
+ */
+public class FakeCameraBackendTest {
+
+  private static final int WIDTH = 8;
+  private static final int HEIGHT = 6;
+  private static final int ROW_PADDING = 5;
+
+  private final List<ByteBuffer> frames = new ArrayList<>();
+  private final List<Integer> rowStrides = new ArrayList<>();
+  private FakeCameraBackend backend;
+
+  @Before
+  public void setUp() {
+    backend = new FakeCameraBackend(WIDTH, HEIGHT, ROW_PADDING, 90);
+    backend.setFrameCallback(new CameraBackend.FrameCallback() {
+      @Override
+      public void onFrame(ByteBuffer yPlane, int rowStride, int pixelStride, int width,
+                          int height) {
+        assertEquals(1, pixelStride);
+        assertEquals(WIDTH, width);
+        assertEquals(HEIGHT, height);
+        frames.add(yPlane);
+        rowStrides.add(rowStride);
+      }
+    });
+    backend.open(null, null);
+  }
+
+  @Test
+  public void rowsAreReadAtTheRowStride() {
+    backend.startPreview();
+    byte[] data = frame(1);
+    assertTrue(backend.deliver(data));
+
+    int rowStride = rowStrides.get(0);
+    assertEquals(WIDTH + ROW_PADDING, rowStride);
+    ByteBuffer yPlane = frames.get(0);
+    // The last row is not padded, as with camera drivers.
+    assertEquals((HEIGHT - 1) * rowStride + WIDTH, yPlane.remaining());
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        assertEquals(data[y * WIDTH + x], yPlane.get(y * rowStride + x));
+      }
+    }
+
+    RotatedPlanarYUVLuminanceSource source = new RotatedPlanarYUVLuminanceSource(yPlane,
+        rowStride, 1, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, 0, false);
+    byte[] expected = new byte[WIDTH * HEIGHT];
+    System.arraycopy(data, 0, expected, 0, expected.length);
+    assertArrayEquals(expected, source.getMatrix());
+  }
+
+  @Test
+  public void framesBeyondTheFrameCountAreDropped() {
+    backend.setFrameCount(2);
+    backend.startPreview();
+    assertTrue(backend.deliver(frame(1)));
+    assertTrue(backend.deliver(frame(2)));
+    assertFalse(backend.deliver(frame(3)));
+    assertEquals(2, backend.getInFlightCount());
+    assertEquals(1, backend.getDroppedFrameCount());
+
+    backend.releaseFrame(frames.get(0));
+    assertTrue(backend.deliver(frame(4)));
+    // The released buffer is filled again.
+    assertSame(frames.get(0), frames.get(2));
+  }
+
+  @Test
+  public void frameCountTakesEffectWhenThePreviewStarts() {
+    backend.startPreview();
+    backend.setFrameCount(1);
+    assertTrue(backend.deliver(frame(1)));
+    assertTrue(backend.deliver(frame(2)));
+    backend.releaseFrame(frames.get(0));
+    backend.releaseFrame(frames.get(1));
+
+    backend.stopPreview();
+    backend.startPreview();
+    assertTrue(backend.deliver(frame(3)));
+    assertFalse(backend.deliver(frame(4)));
+  }
+
+  @Test
+  public void framesStayValidUntilReleasedAfterClose() {
+    backend.startPreview();
+    byte[] data = frame(7);
+    assertTrue(backend.deliver(data));
+    ByteBuffer yPlane = frames.get(0);
+
+    backend.stopPreview();
+    assertFalse(backend.deliver(frame(8)));
+    backend.close();
+    assertFalse(backend.deliver(frame(9)));
+    assertEquals(data[WIDTH + 1], yPlane.get(rowStrides.get(0) + 1));
+    assertEquals(1, backend.getInFlightCount());
+
+    // A frame released after close(), or after the camera reopened, goes back to the camera.
+    backend.open(null, null);
+    backend.startPreview();
+    backend.releaseFrame(yPlane);
+    assertEquals(0, backend.getInFlightCount());
+    assertEquals(1, backend.getReleasedFrameCount());
+    for (int i = 0; i < FrameBufferPool.DEFAULT_BUFFER_COUNT; i++) {
+      assertTrue(backend.deliver(frame(i)));
+    }
+    assertFalse(backend.deliver(frame(10)));
+  }
+
+  @Test
+  public void releasingAFrameTwiceHasNoEffect() {
+    backend.startPreview();
+    assertTrue(backend.deliver(frame(1)));
+    backend.releaseFrame(frames.get(0));
+    backend.releaseFrame(frames.get(0));
+    backend.releaseFrame(ByteBuffer.allocateDirect(WIDTH * HEIGHT));
+    assertEquals(1, backend.getReleasedFrameCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void frameCountMustBePositive() {
+    backend.setFrameCount(0);
+  }
+
+  private static byte[] frame(int seed) {
+    byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (seed * 31 + i * 7);
+    }
+    return data;
+  }
+
+}
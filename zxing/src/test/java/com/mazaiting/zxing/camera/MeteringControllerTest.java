@@ -0,0 +1,98 @@
+package com.mazaiting.zxing.camera;
+
+import android.graphics.Rect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a rectangle of the display maps back to the pixels of the frame the luminance
+ * source reads there, the scaling to camera area coordinates, and when an area is replaced.
+ * 测光与对焦区域测试
+ */
+public class MeteringControllerTest {
+
+  private static final int WIDTH = 64;
+  private static final int HEIGHT = 48;
+
+  @Test
+  public void frameRectIsWhatTheSourceReadsInTheDisplayRect() {
+    for (int rotation = 0; rotation < 360; rotation += 90) {
+      for (boolean mirror : new boolean[] {false, true}) {
+        Rect display = new Rect(5, 9, 25, 21);
+        Rect frame = MeteringController.toFrame(display, WIDTH, HEIGHT, rotation, mirror);
+        String name = rotation + (mirror ? " mirrored" : "");
+        assertEquals(name, display.width() * display.height(), frame.width() * frame.height());
+
+        // Marks the frame rect, then reads the display back through the rotated source.
+        byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+        for (int y = frame.top; y < frame.bottom; y++) {
+          for (int x = frame.left; x < frame.right; x++) {
+            data[y * WIDTH + x] = (byte) 255;
+          }
+        }
+        boolean sideways = rotation % 180 != 0;
+        int width = sideways ? HEIGHT : WIDTH;
+        int height = sideways ? WIDTH : HEIGHT;
+        byte[] rotated = new RotatedPlanarYUVLuminanceSource(data, WIDTH, HEIGHT, 0, 0, width,
+            height, rotation, mirror).getMatrix();
+        for (int y = 0; y < height; y++) {
+          for (int x = 0; x < width; x++) {
+            assertEquals(name + " at " + x + ',' + y, display.contains(x, y),
+                rotated[y * width + x] != 0);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void frameRectIsClippedToTheFrame() {
+    Rect frame = MeteringController.toFrame(new Rect(-10, -10, 20, 20), WIDTH, HEIGHT, 90,
+        false);
+    assertTrue(frame.left >= 0 && frame.top >= 0);
+    assertTrue(frame.right <= WIDTH && frame.bottom <= HEIGHT);
+    assertTrue(MeteringController.toFrame(new Rect(100, 100, 120, 120), WIDTH, HEIGHT, 0, false)
+        .isEmpty());
+  }
+
+  @Test
+  public void cameraAreaSpansTheFrame() {
+    assertEquals(new Rect(-1000, -1000, 1000, 1000),
+        MeteringController.toCameraArea(new Rect(0, 0, WIDTH, HEIGHT), WIDTH, HEIGHT));
+    assertEquals(new Rect(-500, 0, 500, 500),
+        MeteringController.toCameraArea(new Rect(16, 24, 48, 36), WIDTH, HEIGHT));
+    // Beyond the frame is clamped to its edge.
+    assertEquals(new Rect(-1000, -1000, 1000, 0),
+        MeteringController.toCameraArea(new Rect(-8, -8, WIDTH + 8, 24), WIDTH, HEIGHT));
+    assertNull(MeteringController.toCameraArea(new Rect(), WIDTH, HEIGHT));
+    assertNull(MeteringController.toCameraArea(new Rect(0, 0, 10, 10), 0, HEIGHT));
+  }
+
+  @Test
+  public void smallMovesKeepTheAreaInPlace() {
+    FakeCameraBackend backend = new FakeCameraBackend(WIDTH, HEIGHT, 0, 0);
+    MeteringController metering = new MeteringController();
+    metering.configure(null);
+
+    Rect first = new Rect(16, 12, 48, 36);
+    metering.apply(backend, first, WIDTH, HEIGHT);
+    assertEquals(first, backend.getMeteringArea());
+    assertEquals(1, metering.getUpdateCount());
+
+    // One pixel of 64 is about 31 area units, below the change which replaces the area.
+    metering.apply(backend, new Rect(17, 12, 49, 36), WIDTH, HEIGHT);
+    assertEquals(first, backend.getMeteringArea());
+    assertEquals(1, metering.getUpdateCount());
+
+    Rect moved = new Rect(24, 12, 56, 36);
+    metering.apply(backend, moved, WIDTH, HEIGHT);
+    assertEquals(moved, backend.getMeteringArea());
+    assertEquals(2, metering.getUpdateCount());
+    assertEquals(MeteringController.toCameraArea(moved, WIDTH, HEIGHT), metering.getArea());
+  }
+
+}
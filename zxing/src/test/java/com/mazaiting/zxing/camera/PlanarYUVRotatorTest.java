@@ -0,0 +1,133 @@
+package com.mazaiting.zxing.camera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the tiled copies against a pixel by pixel rotation, for every turn, with and without
+ * mirroring, on crops which do not fill whole tiles.
+ * 分块旋转拷贝测试
+ */
+public class PlanarYUVRotatorTest {
+
+  /** Larger than two tiles one way and one tile the other, and a multiple of neither. */
+  private static final int WIDTH = 150;
+  private static final int HEIGHT = 100;
+  private static final int[] ROTATIONS = {0, 90, 180, 270};
+
+  private final byte[] frame = frame();
+
+  @Test
+  public void everyTurnMatchesThePixelByPixelRotation() {
+    for (int rotation : ROTATIONS) {
+      for (boolean mirror : new boolean[] {false, true}) {
+        int width = rotatedWidth(rotation) - 13;
+        int height = rotatedHeight(rotation) - 9;
+        byte[] rotated = PlanarYUVRotator.rotate(frame, WIDTH, HEIGHT, 5, 7, width, height,
+            rotation, mirror, null);
+        assertArrayEquals(rotation + (mirror ? " mirrored" : ""),
+            expected(5, 7, width, height, rotation, mirror), rotated);
+      }
+    }
+  }
+
+  @Test
+  public void imagePlaneCopyMatchesTheArrayCopy() {
+    int rowStride = WIDTH + 11;
+    ByteBuffer yPlane = ByteBuffer.allocate((HEIGHT - 1) * rowStride + WIDTH);
+    for (int y = 0; y < HEIGHT; y++) {
+      yPlane.position(y * rowStride);
+      yPlane.put(frame, y * WIDTH, WIDTH);
+    }
+    yPlane.position(3);
+    for (int rotation : ROTATIONS) {
+      for (boolean mirror : new boolean[] {false, true}) {
+        int width = rotatedWidth(rotation) - 13;
+        int height = rotatedHeight(rotation) - 9;
+        RotatedPlanarYUVLuminanceSource source = new RotatedPlanarYUVLuminanceSource(yPlane,
+            rowStride, 1, WIDTH, HEIGHT, 5, 7, width, height, rotation, mirror);
+        assertArrayEquals(rotation + (mirror ? " mirrored" : ""),
+            expected(5, 7, width, height, rotation, mirror), source.getMatrix());
+      }
+    }
+    // The copy reads at absolute indices.
+    assertEquals(3, yPlane.position());
+  }
+
+  @Test
+  public void outputIsReused() {
+    byte[] output = new byte[HEIGHT * WIDTH + 10];
+    assertSame(output, PlanarYUVRotator.rotate(frame, WIDTH, HEIGHT, 0, 0, HEIGHT, WIDTH, 90,
+        false, output));
+    byte[] small = new byte[10];
+    assertEquals(HEIGHT * WIDTH, PlanarYUVRotator.rotate(frame, WIDTH, HEIGHT, 0, 0, HEIGHT,
+        WIDTH, 90, false, small).length);
+  }
+
+  @Test
+  public void wholeUnturnedFrameIsCopied() {
+    byte[] copy = PlanarYUVRotator.rotate(frame, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, 0, false,
+        null);
+    assertNotSame(frame, copy);
+    assertArrayEquals(expected(0, 0, WIDTH, HEIGHT, 0, false), copy);
+  }
+
+  /**
+   * Rotates the crop one pixel at a time, straight from the definition of a clockwise turn.
+   */
+  private byte[] expected(int left, int top, int width, int height, int rotation,
+                          boolean mirror) {
+    byte[] expected = new byte[width * height];
+    int rotatedWidth = rotatedWidth(rotation);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int u = mirror ? rotatedWidth - 1 - (left + x) : left + x;
+        int v = top + y;
+        int column;
+        int row;
+        switch (rotation) {
+          case 90:
+            column = v;
+            row = HEIGHT - 1 - u;
+            break;
+          case 180:
+            column = WIDTH - 1 - u;
+            row = HEIGHT - 1 - v;
+            break;
+          case 270:
+            column = WIDTH - 1 - v;
+            row = u;
+            break;
+          default:
+            column = u;
+            row = v;
+            break;
+        }
+        expected[y * width + x] = frame[row * WIDTH + column];
+      }
+    }
+    return expected;
+  }
+
+  private static int rotatedWidth(int rotation) {
+    return rotation % 180 == 0 ? WIDTH : HEIGHT;
+  }
+
+  private static int rotatedHeight(int rotation) {
+    return rotation % 180 == 0 ? HEIGHT : WIDTH;
+  }
+
+  private static byte[] frame() {
+    byte[] frame = new byte[WIDTH * HEIGHT * 3 / 2];
+    new Random(17).nextBytes(frame);
+    return frame;
+  }
+
+}
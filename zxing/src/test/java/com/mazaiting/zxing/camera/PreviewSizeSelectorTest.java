@@ -0,0 +1,86 @@
+package com.mazaiting.zxing.camera;
+
+import android.graphics.Point;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the width the smallest barcode needs, and which of a camera's sizes is picked for it.
+ * 预览尺寸选择测试
+ */
+public class PreviewSizeSelectorTest {
+
+  private static final Point SCREEN = new Point(1920, 1080);
+
+  private final List<Point> sizes = Arrays.asList(
+      new Point(320, 240),
+      new Point(640, 480),
+      new Point(864, 480),
+      new Point(1280, 720),
+      new Point(1440, 1080),
+      new Point(1920, 1080));
+  private PreviewSizeSelector selector;
+
+  @Before
+  public void setUp() {
+    selector = new PreviewSizeSelector();
+  }
+
+  @Test
+  public void requiredWidthFollowsTheModuleSize() {
+    // 3 pixels on each of 33 modules of 25 mm, across 2 * 200 mm * tan(30 degrees) of scene.
+    assertEquals(915, selector.getRequiredWidth(60f));
+    // A camera which reports no angle gets the default one.
+    assertEquals(915, selector.getRequiredWidth(0f));
+
+    selector.setWorkingDistance(100f);
+    assertEquals(458, selector.getRequiredWidth(60f));
+    selector.setMinBarcode(50f, 33);
+    assertEquals(229, selector.getRequiredWidth(60f));
+  }
+
+  @Test
+  public void smallestWideEnoughSizeOfTheScreenShapeIsChosen() {
+    assertEquals(new Point(1280, 720), selector.select(sizes, SCREEN, 60f));
+
+    selector.setWorkingDistance(100f);
+    assertEquals(new Point(864, 480), selector.select(sizes, SCREEN, 60f));
+
+    // 640x480 is wide enough too, but is of a 4:3 shape.
+    selector.setMinBarcode(50f, 33);
+    assertEquals(new Point(864, 480), selector.select(sizes, SCREEN, 60f));
+    assertEquals(new Point(640, 480), selector.select(sizes, new Point(1600, 1200), 60f));
+  }
+
+  @Test
+  public void widestSizeIsTakenWhenNoneIsWideEnough() {
+    selector.setPixelsPerModule(10f);
+    assertEquals(new Point(1920, 1080), selector.select(sizes, SCREEN, 60f));
+  }
+
+  @Test
+  public void closestShapeIsUsedOnAScreenOfAnotherShape() {
+    // 2:1 is too far from both 16:9 and 4:3; 16:9 is closer.
+    assertEquals(new Point(1280, 720), selector.select(sizes, new Point(2160, 1080), 60f));
+  }
+
+  @Test
+  public void noSizesGiveNoSize() {
+    assertNull(selector.select(new ArrayList<Point>(), SCREEN, 60f));
+    assertNull(selector.select(null, SCREEN, 60f));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void workingDistanceMustBePositive() {
+    selector.setWorkingDistance(0f);
+  }
+
+}
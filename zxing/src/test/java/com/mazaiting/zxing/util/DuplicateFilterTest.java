@@ -0,0 +1,98 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks when a code seen again is reported again: time to live, cool-down, and the bounded
+ * cache.
+ * 重复结果过滤器测试
+ */
+public class DuplicateFilterTest {
+
+  private static final BarcodeFormat QR = BarcodeFormat.QR_CODE;
+  private static final BarcodeFormat EAN = BarcodeFormat.EAN_13;
+
+  private DuplicateFilter filter;
+
+  @Before
+  public void setUp() {
+    filter = new DuplicateFilter();
+  }
+
+  @Test
+  public void repeatIsSuppressed() {
+    assertTrue(filter.accept(QR, "a", 0L));
+    assertFalse(filter.accept(QR, "a", 100L));
+    assertTrue(filter.accept(QR, "b", 100L));
+    // The same text in another format is another code.
+    assertTrue(filter.accept(EAN, "a", 100L));
+    assertEquals(3, filter.getAcceptedCount());
+    assertEquals(1, filter.getSuppressedCount());
+  }
+
+  @Test
+  public void codeInSightStaysSuppressed() {
+    assertTrue(filter.accept(QR, "a", 0L));
+    long now = 0L;
+    for (int i = 0; i < 10; i++) {
+      now += DuplicateFilter.DEFAULT_TTL_MILLIS - 100L;
+      assertFalse("Reported again at " + now, filter.accept(QR, "a", now));
+    }
+    now += DuplicateFilter.DEFAULT_TTL_MILLIS;
+    assertTrue(filter.accept(QR, "a", now));
+  }
+
+  @Test
+  public void cooldownOutlastsTheTimeToLive() {
+    assertTrue(filter.accept(QR, "a", 0L));
+    long afterTtl = DuplicateFilter.DEFAULT_TTL_MILLIS + 100L;
+    assertFalse(filter.accept(QR, "a", afterTtl));
+    // Seen again above, so the time to live starts over from there.
+    assertFalse(filter.accept(QR, "a", DuplicateFilter.DEFAULT_COOLDOWN_MILLIS));
+    assertTrue(filter.accept(QR, "a",
+        DuplicateFilter.DEFAULT_COOLDOWN_MILLIS + DuplicateFilter.DEFAULT_TTL_MILLIS));
+  }
+
+  @Test
+  public void cooldownCanBeSetPerFormat() {
+    filter.setCooldownMillis(QR, 0L);
+    assertTrue(filter.accept(QR, "a", 0L));
+    assertTrue(filter.accept(EAN, "a", 0L));
+    long afterTtl = DuplicateFilter.DEFAULT_TTL_MILLIS;
+    assertTrue(filter.accept(QR, "a", afterTtl));
+    assertFalse(filter.accept(EAN, "a", afterTtl));
+  }
+
+  @Test
+  public void leastRecentlySeenCodeIsEvicted() {
+    filter = new DuplicateFilter(2);
+    assertTrue(filter.accept(QR, "a", 0L));
+    assertTrue(filter.accept(QR, "b", 0L));
+    assertFalse(filter.accept(QR, "a", 1L));
+    assertTrue(filter.accept(QR, "c", 2L));
+
+    // "b" was seen least recently and made room for "c".
+    assertTrue(filter.accept(QR, "b", 3L));
+    assertFalse(filter.accept(QR, "c", 3L));
+  }
+
+  @Test
+  public void clearForgetsEveryCode() {
+    assertTrue(filter.accept(QR, "a", 0L));
+    filter.clear();
+    assertTrue(filter.accept(QR, "a", 1L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void cacheMustHoldACode() {
+    new DuplicateFilter(0);
+  }
+
+}
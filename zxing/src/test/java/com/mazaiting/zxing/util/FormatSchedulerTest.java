@@ -0,0 +1,122 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.oned.Code128Writer;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the order the scheduler plans formats in, pruning and sweeps, and the statistics of the
+ * 1D unit.
+ * 条码格式调度器测试
+ */
+public class FormatSchedulerTest {
+
+  private static final long COST_NANOS = 1000000L;
+  private static final List<BarcodeFormat> FORMATS =
+      Arrays.asList(BarcodeFormat.QR_CODE, BarcodeFormat.DATA_MATRIX);
+
+  @Test
+  public void formatWhichHitsIsTriedFirst() {
+    FormatScheduler scheduler = new FormatScheduler();
+    assertEquals(FORMATS, scheduler.plan(FORMATS));
+
+    for (int i = 0; i < 5; i++) {
+      scheduler.record(BarcodeFormat.QR_CODE, null, COST_NANOS);
+      scheduler.record(BarcodeFormat.DATA_MATRIX, BarcodeFormat.DATA_MATRIX, COST_NANOS);
+    }
+
+    assertEquals(Arrays.asList(BarcodeFormat.DATA_MATRIX, BarcodeFormat.QR_CODE),
+        scheduler.plan(FORMATS));
+  }
+
+  @Test
+  public void cheaperFormatIsTriedFirstAtTheSameHitRate() {
+    FormatScheduler scheduler = new FormatScheduler();
+    for (int i = 0; i < 5; i++) {
+      scheduler.record(BarcodeFormat.QR_CODE, null, 10 * COST_NANOS);
+      scheduler.record(BarcodeFormat.DATA_MATRIX, null, COST_NANOS);
+    }
+
+    assertEquals(Arrays.asList(BarcodeFormat.DATA_MATRIX, BarcodeFormat.QR_CODE),
+        scheduler.plan(FORMATS));
+  }
+
+  @Test
+  public void formatWithoutHitsIsPrunedUntilTheNextSweep() {
+    FormatScheduler scheduler = new FormatScheduler(64, 4);
+    for (int i = 0; i < 16; i++) {
+      scheduler.record(BarcodeFormat.QR_CODE, null, COST_NANOS);
+    }
+    scheduler.record(BarcodeFormat.DATA_MATRIX, BarcodeFormat.DATA_MATRIX, COST_NANOS);
+
+    List<BarcodeFormat> all = Arrays.asList(BarcodeFormat.DATA_MATRIX, BarcodeFormat.QR_CODE);
+    List<BarcodeFormat> pruned = Arrays.asList(BarcodeFormat.DATA_MATRIX);
+    assertEquals(all, scheduler.plan(FORMATS));
+    assertEquals(pruned, scheduler.plan(FORMATS));
+    assertEquals(pruned, scheduler.plan(FORMATS));
+    assertEquals(pruned, scheduler.plan(FORMATS));
+    assertEquals(all, scheduler.plan(FORMATS));
+    assertEquals(2, scheduler.getSweepCount());
+    assertTrue(scheduler.getStatistics().get(1).isPruned());
+  }
+
+  @Test
+  public void nothingIsPrunedBeforeAnyFormatHits() {
+    FormatScheduler scheduler = new FormatScheduler(64, 4);
+    for (int i = 0; i < 32; i++) {
+      scheduler.record(BarcodeFormat.QR_CODE, null, COST_NANOS);
+      scheduler.record(BarcodeFormat.DATA_MATRIX, null, COST_NANOS);
+    }
+    scheduler.plan(FORMATS);
+
+    assertEquals(2, scheduler.plan(FORMATS).size());
+  }
+
+  @Test
+  public void oneDUnitCountsHitsByTheFormatFound() throws Exception {
+    FormatScheduler scheduler = new FormatScheduler();
+    AdaptiveFormatReader reader =
+        new AdaptiveFormatReader(null, scheduler, new DecodeBudget.Deadline(null));
+
+    Result result = reader.decode(code128Bitmap());
+
+    assertNotNull(result);
+    FormatScheduler.FormatStatistics oneD = null;
+    for (FormatScheduler.FormatStatistics statistics : scheduler.getStatistics()) {
+      if (AdaptiveFormatReader.ONE_D_UNIT.equals(statistics.getName())) {
+        oneD = statistics;
+      }
+    }
+    assertNotNull(oneD);
+    assertEquals(1, oneD.getHits());
+    assertEquals(1, oneD.getHits(BarcodeFormat.CODE_128));
+    assertEquals(0, oneD.getHits(BarcodeFormat.UPC_A));
+    assertTrue(oneD.toString(), oneD.toString().startsWith("1D: 1/1 hits {CODE_128=1}"));
+  }
+
+  private static BinaryBitmap code128Bitmap() throws Exception {
+    BitMatrix code = new Code128Writer().encode("SCHEDULER", BarcodeFormat.CODE_128, 240, 60);
+    byte[] frame = new byte[code.getWidth() * code.getHeight()];
+    for (int y = 0; y < code.getHeight(); y++) {
+      for (int x = 0; x < code.getWidth(); x++) {
+        frame[y * code.getWidth() + x] = code.get(x, y) ? 0 : (byte) 0xFF;
+      }
+    }
+    return new BinaryBitmap(new HybridBinarizer(new RotatedPlanarYUVLuminanceSource(frame,
+        code.getWidth(), code.getHeight(), 0, 0, code.getWidth(), code.getHeight(), 0, false)));
+  }
+
+}
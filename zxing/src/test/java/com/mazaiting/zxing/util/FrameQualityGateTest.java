@@ -0,0 +1,131 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the quality gate tells a sharp code from a blurred one, also on the first frames
+ * it sees, and rejects flat frames.
+ * 帧质量门限测试
+ */
+public class FrameQualityGateTest {
+
+  private static final int SIZE = 240;
+  private static final int MODULE_SIZE = 5;
+
+  private FrameQualityGate gate;
+  private FrameQualityGate.Meter meter;
+
+  @Before
+  public void setUp() {
+    gate = new FrameQualityGate();
+    meter = new FrameQualityGate.Meter(gate);
+  }
+
+  @Test
+  public void blurredFrameIsRejectedAtStartUp() throws Exception {
+    assertFalse(meter.accept(source(blur(codeFrame(), 8))));
+    assertTrue(meter.accept(source(codeFrame())));
+    assertEquals(1, gate.getBlurRejectCount());
+    assertEquals(2, gate.getEvaluatedCount());
+  }
+
+  @Test
+  public void blurredFrameIsRejectedAfterAFlatScene() throws Exception {
+    assertTrue(meter.accept(source(codeFrame())));
+    assertFalse(meter.accept(source(flatFrame())));
+    assertFalse(meter.accept(source(blur(codeFrame(), 8))));
+    assertEquals(1, gate.getFlatRejectCount());
+    assertEquals(1, gate.getBlurRejectCount());
+  }
+
+  @Test
+  public void lightBlurIsJudgedAgainstRecentFrames() throws Exception {
+    byte[] lightBlur = blur(codeFrame(), 3);
+    // Above the floor: nothing to compare it with yet, so it is decoded.
+    assertTrue(meter.accept(source(lightBlur)));
+    gate.setSharpnessRatio(0.5f);
+    assertTrue(meter.accept(source(codeFrame())));
+    assertFalse(meter.accept(source(lightBlur)));
+  }
+
+  @Test
+  public void floorCanBeTurnedOff() throws Exception {
+    gate.setMinSharpness(0.0f);
+    assertTrue(meter.accept(source(blur(codeFrame(), 8))));
+  }
+
+  @Test
+  public void rejectsInARowAreCapped() throws Exception {
+    byte[] blurred = blur(codeFrame(), 8);
+    for (int i = 0; i < FrameQualityGate.DEFAULT_MAX_CONSECUTIVE_REJECTS; i++) {
+      assertFalse(meter.accept(source(blurred)));
+    }
+    assertTrue(meter.accept(source(blurred)));
+    assertFalse(meter.accept(source(blurred)));
+  }
+
+  private static RotatedPlanarYUVLuminanceSource source(byte[] frame) {
+    return new RotatedPlanarYUVLuminanceSource(frame, SIZE, SIZE, 20, 20, SIZE - 40, SIZE - 40,
+        0, false);
+  }
+
+  private static byte[] flatFrame() {
+    byte[] frame = new byte[SIZE * SIZE * 3 / 2];
+    Arrays.fill(frame, (byte) 128);
+    return frame;
+  }
+
+  private static byte[] codeFrame() throws Exception {
+    BitMatrix code = new QRCodeWriter().encode("quality gate", BarcodeFormat.QR_CODE, 0, 0);
+    byte[] frame = new byte[SIZE * SIZE * 3 / 2];
+    Arrays.fill(frame, (byte) 200);
+    int side = code.getWidth() * MODULE_SIZE;
+    int origin = (SIZE - side) / 2;
+    for (int y = 0; y < side; y++) {
+      for (int x = 0; x < side; x++) {
+        if (code.get(x / MODULE_SIZE, y / MODULE_SIZE)) {
+          frame[(origin + y) * SIZE + origin + x] = 40;
+        }
+      }
+    }
+    return frame;
+  }
+
+  /**
+   * @return The Y plane box blurred over {@code 2 * radius + 1} pixels a side.
+   */
+  private static byte[] blur(byte[] frame, int radius) {
+    byte[] blurred = frame.clone();
+    for (int y = 0; y < SIZE; y++) {
+      for (int x = 0; x < SIZE; x++) {
+        int sum = 0;
+        int count = 0;
+        for (int dy = -radius; dy <= radius; dy++) {
+          for (int dx = -radius; dx <= radius; dx++) {
+            int sx = x + dx;
+            int sy = y + dy;
+            if (sx >= 0 && sy >= 0 && sx < SIZE && sy < SIZE) {
+              sum += frame[sy * SIZE + sx] & 0xff;
+              count++;
+            }
+          }
+        }
+        blurred[y * SIZE + x] = (byte) (sum / count);
+      }
+    }
+    return blurred;
+  }
+
+}
@@ -0,0 +1,127 @@
+package com.mazaiting.zxing.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks when the escalation brings in the slower profiles, and that an empty scene is not
+ * inverted on a fixed share of its frames forever.
+ * 解码参数升级策略测试
+ */
+public class HintEscalationTest {
+
+  private static final int BLIND_THRESHOLD =
+      HintEscalation.DEFAULT_FAILURE_THRESHOLD * HintEscalation.BLIND_FAILURE_FACTOR;
+
+  private HintEscalation escalation;
+
+  @Before
+  public void setUp() {
+    escalation = new HintEscalation();
+  }
+
+  @Test
+  public void failuresWithPointsBringInEverySlowerProfile() {
+    for (int i = 0; i < HintEscalation.DEFAULT_FAILURE_THRESHOLD; i++) {
+      assertEquals(HintEscalation.Profile.FAST, fail(true));
+    }
+    assertEquals(HintEscalation.Profile.FAST, fail(true));
+    assertEquals(HintEscalation.Profile.TRY_HARDER, fail(true));
+    assertEquals(HintEscalation.Profile.FAST, fail(true));
+    assertEquals(HintEscalation.Profile.INVERTED, fail(true));
+    assertEquals(HintEscalation.Profile.FAST, fail(true));
+    assertEquals(HintEscalation.Profile.ALTERNATE_BINARIZER, fail(true));
+    assertEquals(1, escalation.getEscalationCount());
+  }
+
+  @Test
+  public void successReturnsToTheFastProfile() {
+    for (int i = 0; i < HintEscalation.DEFAULT_FAILURE_THRESHOLD + 1; i++) {
+      fail(true);
+    }
+    HintEscalation.Profile profile = escalation.next();
+    assertEquals(HintEscalation.Profile.TRY_HARDER, profile);
+    escalation.onDecoded(profile, true, true);
+    assertEquals(1, escalation.getSuccessCount(HintEscalation.Profile.TRY_HARDER));
+    for (int i = 0; i < HintEscalation.DEFAULT_FAILURE_THRESHOLD; i++) {
+      assertEquals(HintEscalation.Profile.FAST, fail(true));
+    }
+  }
+
+  @Test
+  public void failuresWithoutPointsBringInOnlyTheInvertedProfile() {
+    for (int i = 0; i < BLIND_THRESHOLD; i++) {
+      assertEquals(HintEscalation.Profile.FAST, fail(false));
+    }
+    for (int i = 0; i < HintEscalation.DEFAULT_MAX_ESCALATED_FRAMES; i++) {
+      HintEscalation.Profile profile = fail(false);
+      assertTrue(profile == HintEscalation.Profile.FAST
+          || profile == HintEscalation.Profile.INVERTED);
+    }
+    assertEquals(HintEscalation.DEFAULT_MAX_ESCALATED_FRAMES / HintEscalation.DEFAULT_INTERVAL,
+        escalation.getAttemptCount(HintEscalation.Profile.INVERTED));
+    assertEquals(0, escalation.getAttemptCount(HintEscalation.Profile.TRY_HARDER));
+  }
+
+  @Test
+  public void emptySceneBacksOff() {
+    int[] fastFramesBefore = new int[HintEscalation.MAX_BLIND_BACKOFF + 2];
+    for (int round = 0; round < fastFramesBefore.length; round++) {
+      while (fail(false) == HintEscalation.Profile.FAST
+          && escalation.getEscalationCount() == round) {
+        fastFramesBefore[round]++;
+      }
+      for (int i = 1; i < HintEscalation.DEFAULT_MAX_ESCALATED_FRAMES; i++) {
+        fail(false);
+      }
+    }
+    for (int round = 0; round < fastFramesBefore.length; round++) {
+      int shift = Math.min(round, HintEscalation.MAX_BLIND_BACKOFF);
+      assertEquals(BLIND_THRESHOLD << shift, fastFramesBefore[round]);
+    }
+
+    // A thousand frames of an empty scene, well after backing off, are rarely inverted.
+    long before = escalation.getAttemptCount(HintEscalation.Profile.INVERTED);
+    for (int i = 0; i < 1000; i++) {
+      fail(false);
+    }
+    long inverted = escalation.getAttemptCount(HintEscalation.Profile.INVERTED) - before;
+    assertTrue("inverted " + inverted, inverted <= 100);
+  }
+
+  @Test
+  public void pointsEndTheBackOff() {
+    for (int i = 0; i < BLIND_THRESHOLD + HintEscalation.DEFAULT_MAX_ESCALATED_FRAMES; i++) {
+      fail(false);
+    }
+    assertEquals(1, escalation.getEscalationCount());
+    fail(true);
+    for (int i = 0; i < BLIND_THRESHOLD; i++) {
+      assertEquals(HintEscalation.Profile.FAST, fail(false));
+    }
+    // Back at the first threshold rather than twice it.
+    assertEquals(HintEscalation.Profile.FAST, fail(false));
+    assertEquals(2, escalation.getEscalationCount());
+    assertEquals(HintEscalation.Profile.INVERTED, fail(false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void maxEscalatedFramesMustBePositive() {
+    escalation.setMaxEscalatedFrames(0);
+  }
+
+  /**
+   * Decodes one frame without a result.
+   *
+   * @return The profile the frame was decoded with.
+   */
+  private HintEscalation.Profile fail(boolean sawPoints) {
+    HintEscalation.Profile profile = escalation.next();
+    escalation.onDecoded(profile, sawPoints, false);
+    return profile;
+  }
+
+}
@@ -0,0 +1,157 @@
+package com.mazaiting.zxing.util;
+
+import android.graphics.Rect;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.Code128Writer;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Hashtable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which pyramid levels are tried for formats which do and do not report result points,
+ * and what the decoder feeds back into the region tracker and the format statistics.
+ * 金字塔解码器测试
+ */
+public class PyramidDecoderTest {
+
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+  private static final String TEXT = "PYRAMID-128";
+
+  @Test
+  public void smallCode128DecodesOnEveryFrame() throws Exception {
+    byte[] frame = code128Frame();
+    PyramidDecoder decoder = createDecoder(new FormatScheduler(), BarcodeFormat.CODE_128);
+
+    for (int i = 0; i < 2 * PyramidDecoder.FULL_PYRAMID_INTERVAL; i++) {
+      Result result = decoder.decode(source(frame));
+      assertNotNull("Frame " + i + " not decoded", result);
+      assertEquals(TEXT, result.getText());
+      assertEquals(1, decoder.getLastFactor());
+    }
+  }
+
+  @Test
+  public void formatsWithoutPointsTryEveryLevel() {
+    FormatScheduler scheduler = new FormatScheduler();
+    PyramidDecoder decoder = createDecoder(scheduler, BarcodeFormat.CODE_128);
+
+    decodeBlankFrames(decoder, PyramidDecoder.FULL_PYRAMID_INTERVAL);
+
+    assertEquals(3 * PyramidDecoder.FULL_PYRAMID_INTERVAL,
+        scheduler.getStatistics().get(0).getAttempts());
+  }
+
+  @Test
+  public void formatsWithPointsSkipFinerLevelsWithoutPoints() {
+    FormatScheduler scheduler = new FormatScheduler();
+    PyramidDecoder decoder = createDecoder(scheduler, BarcodeFormat.QR_CODE);
+
+    decodeBlankFrames(decoder, PyramidDecoder.FULL_PYRAMID_INTERVAL);
+
+    // All three levels on the full pyramid frame, the coarse level alone on the others.
+    assertEquals(3 + PyramidDecoder.FULL_PYRAMID_INTERVAL - 1,
+        scheduler.getStatistics().get(0).getAttempts());
+  }
+
+  @Test
+  public void escalatedFramesStayOutOfTheFormatStatistics() {
+    FormatScheduler scheduler = new FormatScheduler();
+    HintEscalation escalation = new HintEscalation();
+    escalation.setFailureThreshold(1);
+    escalation.setInterval(1);
+    PyramidDecoder decoder = createDecoder(scheduler, BarcodeFormat.CODE_128, escalation);
+
+    // Blank frames show no points, so the inverted profile comes in after a few.
+    decodeBlankFrames(decoder, HintEscalation.BLIND_FAILURE_FACTOR);
+    assertEquals(0, escalation.getAttemptCount(HintEscalation.Profile.INVERTED));
+    int attempts = scheduler.getStatistics().get(0).getAttempts();
+    decodeBlankFrames(decoder, 2);
+
+    assertEquals(2, escalation.getAttemptCount(HintEscalation.Profile.INVERTED));
+    assertEquals(attempts, scheduler.getStatistics().get(0).getAttempts());
+  }
+
+  @Test
+  public void resultSeedsTheTrackForFormatsWithoutPoints() throws Exception {
+    RegionTracker tracker = new RegionTracker();
+    Hashtable<DecodeHintType, Object> hints = new Hashtable<>();
+    hints.put(DecodeHintType.POSSIBLE_FORMATS,
+        Collections.singletonList(BarcodeFormat.CODE_128));
+    PyramidDecoder decoder = new PyramidDecoder(hints, new FormatScheduler(), tracker, null,
+        new StageTimer(), new DecodeBudget.Deadline(null));
+
+    assertNotNull(decoder.decode(source(code128Frame())));
+    assertEquals(1, tracker.getFullFrameCount());
+    Rect region = tracker.getRegion(WIDTH, HEIGHT);
+    assertNotNull(region);
+    assertTrue(region.contains(WIDTH / 2, HEIGHT / 2));
+
+    // On the region, the next frame decodes without a single reported point.
+    assertNotNull(decoder.decode(source(code128Frame())));
+    assertEquals(1, tracker.getTrackedFrameCount());
+    assertEquals(0, tracker.getLostTrackCount());
+  }
+
+  /**
+   * @return A frame with a Code 128 of one pixel per module in its centre.
+   */
+  private static byte[] code128Frame() throws Exception {
+    byte[] frame = blankFrame();
+    // One pixel per module: invisible on the decimated levels, found only at full resolution.
+    BitMatrix code = new Code128Writer().encode(TEXT, BarcodeFormat.CODE_128, 0, 40);
+    int left = (WIDTH - code.getWidth()) / 2;
+    int top = (HEIGHT - code.getHeight()) / 2;
+    for (int y = 0; y < code.getHeight(); y++) {
+      for (int x = 0; x < code.getWidth(); x++) {
+        if (code.get(x, y)) {
+          frame[(top + y) * WIDTH + left + x] = 20;
+        }
+      }
+    }
+    return frame;
+  }
+
+  private static void decodeBlankFrames(PyramidDecoder decoder, int count) {
+    byte[] frame = blankFrame();
+    for (int i = 0; i < count; i++) {
+      decoder.decode(source(frame));
+    }
+  }
+
+  private static PyramidDecoder createDecoder(FormatScheduler scheduler, BarcodeFormat format) {
+    return createDecoder(scheduler, format, null);
+  }
+
+  private static PyramidDecoder createDecoder(FormatScheduler scheduler, BarcodeFormat format,
+                                              HintEscalation escalation) {
+    Hashtable<DecodeHintType, Object> hints = new Hashtable<>();
+    hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(format));
+    return new PyramidDecoder(hints, scheduler, null, escalation, new StageTimer(),
+        new DecodeBudget.Deadline(null));
+  }
+
+  private static RotatedPlanarYUVLuminanceSource source(byte[] frame) {
+    return new RotatedPlanarYUVLuminanceSource(frame, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, 0,
+        false);
+  }
+
+  private static byte[] blankFrame() {
+    byte[] frame = new byte[WIDTH * HEIGHT * 3 / 2];
+    Arrays.fill(frame, (byte) 200);
+    return frame;
+  }
+
+}
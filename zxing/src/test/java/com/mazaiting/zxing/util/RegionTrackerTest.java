@@ -0,0 +1,112 @@
+package com.mazaiting.zxing.util;
+
+import android.graphics.Rect;
+
+import com.google.zxing.ResultPoint;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the region predicted from reported points, and when the track is dropped.
+ * 感兴趣区域跟踪器测试
+ */
+public class RegionTrackerTest {
+
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+
+  private RegionTracker tracker;
+
+  @Before
+  public void setUp() {
+    tracker = new RegionTracker();
+  }
+
+  @Test
+  public void withoutPointsTheWholeRectIsDecoded() {
+    assertNull(tracker.predict(WIDTH, HEIGHT));
+    assertEquals(1, tracker.getFullFrameCount());
+    assertEquals(0, tracker.getTrackedFrameCount());
+  }
+
+  @Test
+  public void regionCoversThePointsWithAMargin() {
+    tracker.addPoint(new ResultPoint(200, 150));
+    tracker.addPoint(new ResultPoint(360, 250));
+
+    Rect region = tracker.predict(WIDTH, HEIGHT);
+    assertNotNull(region);
+    // 160 by 100 grown by half on each side, rounded up to steps of 32.
+    assertEquals(320, region.width());
+    assertEquals(224, region.height());
+    assertTrue(region.contains(200, 150) && region.contains(360, 250));
+    assertEquals(1, tracker.getTrackedFrameCount());
+    assertEquals(320f * 224f / (WIDTH * HEIGHT), tracker.getAreaFraction(), 1e-6f);
+  }
+
+  @Test
+  public void regionStaysInsideTheRect() {
+    tracker.addPoint(new ResultPoint(5, 5));
+
+    Rect region = tracker.predict(WIDTH, HEIGHT);
+    assertEquals(0, region.left);
+    assertEquals(0, region.top);
+    assertTrue(region.width() >= 160 && region.height() >= 160);
+  }
+
+  @Test
+  public void regionAsLargeAsTheRectIsNotTracked() {
+    tracker.addPoint(new ResultPoint(0, 0));
+    tracker.addPoint(new ResultPoint(WIDTH - 1, HEIGHT - 1));
+    assertNull(tracker.predict(WIDTH, HEIGHT));
+  }
+
+  @Test
+  public void missWithoutPointsDropsTheTrack() {
+    tracker.addPoint(new ResultPoint(300, 200));
+    assertNotNull(tracker.predict(WIDTH, HEIGHT));
+    tracker.onRegionDecoded(0, false);
+
+    assertNull(tracker.predict(WIDTH, HEIGHT));
+    assertEquals(1, tracker.getLostTrackCount());
+  }
+
+  @Test
+  public void failuresWithPointsDropTheTrackAfterAFew() {
+    tracker.addPoint(new ResultPoint(300, 200));
+    for (int i = 0; i < RegionTracker.MAX_TRACKED_FAILURES - 1; i++) {
+      assertNotNull(tracker.predict(WIDTH, HEIGHT));
+      tracker.onRegionDecoded(2, false);
+    }
+    assertNotNull(tracker.predict(WIDTH, HEIGHT));
+    tracker.onRegionDecoded(2, false);
+
+    assertNull(tracker.predict(WIDTH, HEIGHT));
+    assertEquals(1, tracker.getLostTrackCount());
+  }
+
+  @Test
+  public void successKeepsTheTrack() {
+    tracker.addPoint(new ResultPoint(300, 200));
+    for (int i = 0; i < 2 * RegionTracker.MAX_TRACKED_FAILURES; i++) {
+      assertNotNull(tracker.predict(WIDTH, HEIGHT));
+      tracker.onRegionDecoded(i % 2 == 0 ? 2 : 0, i % 2 != 0);
+    }
+    assertEquals(0, tracker.getLostTrackCount());
+  }
+
+  @Test
+  public void oldPointsExpire() throws InterruptedException {
+    tracker.addPoint(new ResultPoint(300, 200));
+    assertNotNull(tracker.getRegion(WIDTH, HEIGHT));
+    Thread.sleep(RegionTracker.TRACK_MILLIS + 50L);
+    assertNull(tracker.getRegion(WIDTH, HEIGHT));
+  }
+
+}
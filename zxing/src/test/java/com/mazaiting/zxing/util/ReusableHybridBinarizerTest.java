@@ -0,0 +1,126 @@
+package com.mazaiting.zxing.util;
+
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that binarizing preview frames allocates nothing in steady state but the binarizer
+ * itself, for a crop of one size, for crops alternating between the framing rect and a tracked
+ * region, and for whole frames, and that the buffers never take over a frame's own data.
+ * 可复用二值化器分配测试
+ */
+public class ReusableHybridBinarizerTest {
+
+  private static final int FRAME_WIDTH = 640;
+  private static final int FRAME_HEIGHT = 480;
+  private static final int WARMUP_FRAMES = 2000;
+  private static final int MEASURED_FRAMES = 1000;
+  /** Enough for the binarizer object, far below any array or bit matrix of a crop. */
+  private static final long MAX_BYTES_PER_FRAME = 64L;
+
+  private final byte[] frame = createFrame();
+  private final ReusableHybridBinarizer.Buffers buffers = new ReusableHybridBinarizer.Buffers();
+  private final BitArray row = new BitArray(FRAME_WIDTH);
+
+  @Test
+  public void binarizingOneCropSizeAllocatesNothing() throws NotFoundException {
+    RotatedPlanarYUVLuminanceSource[] sources = {
+        new RotatedPlanarYUVLuminanceSource(frame, FRAME_WIDTH, FRAME_HEIGHT, 80, 40, 360, 360,
+            90, false)
+    };
+    assertAllocatesNothing(sources);
+  }
+
+  @Test
+  public void binarizingTrackedCropsAllocatesNothing() throws NotFoundException {
+    RotatedPlanarYUVLuminanceSource[] sources = {
+        new RotatedPlanarYUVLuminanceSource(frame, FRAME_WIDTH, FRAME_HEIGHT, 80, 40, 360, 360,
+            90, false),
+        new RotatedPlanarYUVLuminanceSource(frame, FRAME_WIDTH, FRAME_HEIGHT, 120, 80, 192, 160,
+            90, false),
+        new RotatedPlanarYUVLuminanceSource(frame, FRAME_WIDTH, FRAME_HEIGHT, 100, 60, 224, 192,
+            90, false)
+    };
+    assertAllocatesNothing(sources);
+  }
+
+  @Test
+  public void binarizingWholeFramesAllocatesNothing() throws NotFoundException {
+    RotatedPlanarYUVLuminanceSource[] sources = {
+        new RotatedPlanarYUVLuminanceSource(frame, FRAME_WIDTH, FRAME_HEIGHT, 0, 0, FRAME_WIDTH,
+            FRAME_HEIGHT, 0, false)
+    };
+    assertAllocatesNothing(sources);
+  }
+
+  @Test
+  public void wholeFrameIsNotKeptAsBuffer() throws NotFoundException {
+    // A whole unrotated frame is binarized in place; a later crop must not be copied into it,
+    // the camera owns that buffer again once the frame is released.
+    byte[] wholeFrame = createFrame();
+    byte[] wholeFrameCopy = wholeFrame.clone();
+    binarize(new RotatedPlanarYUVLuminanceSource(wholeFrame, FRAME_WIDTH, FRAME_HEIGHT, 0, 0,
+        FRAME_WIDTH, FRAME_HEIGHT, 0, false));
+    byte[] nextFrame = createFrame();
+    for (int i = 0; i < FRAME_WIDTH * FRAME_HEIGHT; i++) {
+      nextFrame[i] = (byte) ~nextFrame[i];
+    }
+    binarize(new RotatedPlanarYUVLuminanceSource(nextFrame, FRAME_WIDTH, FRAME_HEIGHT, 80, 40,
+        360, 360, 90, false));
+
+    assertArrayEquals(wholeFrameCopy, wholeFrame);
+  }
+
+  private void assertAllocatesNothing(RotatedPlanarYUVLuminanceSource[] sources)
+      throws NotFoundException {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+    Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+    long threadId = Thread.currentThread().getId();
+
+    for (int i = 0; i < WARMUP_FRAMES; i++) {
+      binarize(sources[i % sources.length]);
+    }
+    long before = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASURED_FRAMES; i++) {
+      binarize(sources[i % sources.length]);
+    }
+    long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+    assertTrue("Allocated " + allocated + " bytes over " + MEASURED_FRAMES + " frames",
+        allocated <= MAX_BYTES_PER_FRAME * MEASURED_FRAMES);
+  }
+
+  private void binarize(RotatedPlanarYUVLuminanceSource source) throws NotFoundException {
+    ReusableHybridBinarizer binarizer = new ReusableHybridBinarizer(source, buffers);
+    binarizer.getBlackMatrix();
+    binarizer.getBlackRow(source.getHeight() / 2, row);
+  }
+
+  /**
+   * @return An NV21 frame of dark and light blocks over a gradient, with enough contrast for a
+   *         black point everywhere.
+   */
+  private static byte[] createFrame() {
+    byte[] frame = new byte[FRAME_WIDTH * FRAME_HEIGHT * 3 / 2];
+    for (int y = 0; y < FRAME_HEIGHT; y++) {
+      for (int x = 0; x < FRAME_WIDTH; x++) {
+        boolean dark = ((x / 12) + (y / 12)) % 2 == 0;
+        frame[y * FRAME_WIDTH + x] = (byte) (dark ? 30 + x / 16 : 200 + y / 16);
+      }
+    }
+    return frame;
+  }
+
+}
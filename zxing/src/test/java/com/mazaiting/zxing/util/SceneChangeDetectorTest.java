@@ -0,0 +1,118 @@
+package com.mazaiting.zxing.util;
+
+import com.mazaiting.zxing.camera.RotatedPlanarYUVLuminanceSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which frames count as showing the scene of the last failed frame.
+ * 场景变化检测器测试
+ */
+public class SceneChangeDetectorTest {
+
+  private static final int WIDTH = 320;
+  private static final int HEIGHT = 240;
+
+  private SceneChangeDetector detector;
+
+  @Before
+  public void setUp() {
+    detector = new SceneChangeDetector();
+  }
+
+  @Test
+  public void signatureHoldsTheCellMeans() {
+    byte[] frame = scene();
+    int[] signature = SceneChangeDetector.signature(source(frame));
+    int cells = SceneChangeDetector.SIGNATURE_SIZE;
+    assertEquals(cells * cells, signature.length);
+    // The left half of the scene is dark, the right half bright.
+    assertTrue(signature[0] < 100);
+    assertTrue(signature[cells - 1] > 150);
+  }
+
+  @Test
+  public void sceneOfAFailedFrameIsSkipped() {
+    int[] failed = SceneChangeDetector.signature(source(scene()));
+    assertFalse(detector.isUnchanged(failed));
+    detector.onDecoded(failed, false);
+
+    assertTrue(detector.isUnchanged(SceneChangeDetector.signature(source(scene()))));
+    assertEquals(2, detector.getCheckedCount());
+    assertEquals(1, detector.getSkippedCount());
+  }
+
+  @Test
+  public void brightnessChangeAloneIsNoNewScene() {
+    detector.onDecoded(SceneChangeDetector.signature(source(scene())), false);
+    byte[] brighter = scene();
+    for (int i = 0; i < WIDTH * HEIGHT; i++) {
+      brighter[i] = (byte) ((brighter[i] & 0xff) + 30);
+    }
+    assertTrue(detector.isUnchanged(SceneChangeDetector.signature(source(brighter))));
+  }
+
+  @Test
+  public void changedRegionIsANewScene() {
+    detector.onDecoded(SceneChangeDetector.signature(source(scene())), false);
+    byte[] moved = scene();
+    // Something dark enters the bright half, across a few cells.
+    for (int y = 100; y < 140; y++) {
+      for (int x = 200; x < 260; x++) {
+        moved[y * WIDTH + x] = 20;
+      }
+    }
+    assertFalse(detector.isUnchanged(SceneChangeDetector.signature(source(moved))));
+  }
+
+  @Test
+  public void successOrResetEndsSkipping() {
+    int[] signature = SceneChangeDetector.signature(source(scene()));
+    detector.onDecoded(signature, false);
+    detector.onDecoded(signature, true);
+    assertFalse(detector.isUnchanged(signature));
+
+    detector.onDecoded(signature, false);
+    detector.reset();
+    assertFalse(detector.isUnchanged(signature));
+  }
+
+  @Test
+  public void unchangedSceneIsStillDecodedNowAndThen() throws InterruptedException {
+    detector.setMaxSkipMillis(50L);
+    int[] signature = SceneChangeDetector.signature(source(scene()));
+    detector.onDecoded(signature, false);
+    assertTrue(detector.isUnchanged(signature));
+    Thread.sleep(60L);
+    assertFalse(detector.isUnchanged(signature));
+
+    detector.setMaxSkipMillis(0L);
+    detector.onDecoded(signature, false);
+    assertFalse(detector.isUnchanged(signature));
+  }
+
+  private static RotatedPlanarYUVLuminanceSource source(byte[] frame) {
+    return new RotatedPlanarYUVLuminanceSource(frame, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, 0,
+        false);
+  }
+
+  /**
+   * @return A frame dark on its left and bright on its right half, with some texture.
+   */
+  private static byte[] scene() {
+    byte[] frame = new byte[WIDTH * HEIGHT * 3 / 2];
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        int base = x < WIDTH / 2 ? 60 : 190;
+        frame[y * WIDTH + x] = (byte) (base + (x * 7 + y * 13) % 16);
+      }
+    }
+    return frame;
+  }
+
+}
@@ -0,0 +1,91 @@
+package com.mazaiting.zxing.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the bucket math of the histogram: every value lands in a bucket which starts at most
+ * 25% below it, and percentiles count ranks the way they should.
+ * 耗时直方图测试
+ */
+public class TimingHistogramTest {
+
+  @Test
+  public void smallValuesAreExact() {
+    for (long micros = 0; micros < 8; micros++) {
+      TimingHistogram histogram = new TimingHistogram();
+      histogram.record(micros * 1000L);
+      assertEquals(micros, histogram.getPercentileMicros(50));
+    }
+  }
+
+  @Test
+  public void bucketsStartWithinAQuarterBelowTheValue() {
+    for (long micros = 4; micros < 100000000L; micros = micros * 9 / 8 + 1) {
+      TimingHistogram histogram = new TimingHistogram();
+      histogram.record(micros * 1000L);
+      // A value above the bucket start, so the max does not cap the percentile.
+      histogram.record(micros * 2000L);
+      long start = histogram.getPercentileMicros(50);
+      assertTrue(micros + " in bucket at " + start, start <= micros);
+      assertTrue(micros + " in bucket at " + start, micros - start <= micros / 4);
+    }
+  }
+
+  @Test
+  public void powersOfTwoStartTheirBucket() {
+    for (int shift = 2; shift < 30; shift++) {
+      TimingHistogram histogram = new TimingHistogram();
+      histogram.record((1L << shift) * 1000L);
+      assertEquals(1L << shift, histogram.getPercentileMicros(100));
+    }
+  }
+
+  @Test
+  public void percentilesRankTheRecordedValues() {
+    TimingHistogram histogram = new TimingHistogram();
+    for (int millis = 1; millis <= 100; millis++) {
+      histogram.record(millis * 1000000L);
+    }
+    assertEquals(100, histogram.getCount());
+    assertEquals(50500, histogram.getMeanMicros());
+    assertEquals(100000, histogram.getMaxMicros());
+    assertBucketOf(1000, histogram.getPercentileMicros(0));
+    assertBucketOf(50000, histogram.getPercentileMicros(50));
+    assertBucketOf(90000, histogram.getPercentileMicros(90));
+    assertBucketOf(99000, histogram.getPercentileMicros(99));
+    assertBucketOf(100000, histogram.getPercentileMicros(100));
+  }
+
+  @Test
+  public void valuesBeyondTheRangeAreCappedAtTheMax() {
+    TimingHistogram histogram = new TimingHistogram();
+    long hour = 3600L * 1000000000L;
+    histogram.record(hour);
+    histogram.record(-5L);
+    assertEquals(0, histogram.getPercentileMicros(50));
+    long top = histogram.getPercentileMicros(100);
+    assertTrue(top <= hour / 1000L);
+    assertTrue(top > 0);
+  }
+
+  @Test
+  public void copyIsIndependent() {
+    TimingHistogram histogram = new TimingHistogram();
+    histogram.record(5000L);
+    TimingHistogram copy = histogram.copy();
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentileMicros(50));
+    assertEquals(1, copy.getCount());
+    assertEquals(5, copy.getPercentileMicros(50));
+  }
+
+  private static void assertBucketOf(long micros, long bucketStart) {
+    assertTrue(micros + " reported as " + bucketStart,
+        bucketStart <= micros && micros - bucketStart <= micros / 4);
+  }
+
+}
@@ -0,0 +1,207 @@
+package com.mazaiting.zxing.camera;
+
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link CameraBackend} without a camera, for tests and the replay. Frames handed to
+ * {@link #deliver(byte[])} are copied into direct buffers laid out like the Y plane of a
+ * YUV_420_888 image, with every row but the last padded to the row stride as camera drivers do,
+ * and passed to the frame callback on the caller's thread. As many frames as set by
+ * {@link #setFrameCount(int)} can be in flight, as with {@link Camera2Backend}; further frames
+ * are dropped until one is released, so a test sees the same back pressure as on a device.
+ * 模拟相机后端
+ */
+public final class FakeCameraBackend implements CameraBackend {
+
+  private final Point previewSize;
+  private final int rowStride;
+  private final int displayOrientation;
+  private final List<ByteBuffer> free = new ArrayList<>();
+  private final List<ByteBuffer> inFlight = new ArrayList<>();
+
+  private int frameCount = FrameBufferPool.DEFAULT_BUFFER_COUNT;
+  private FrameCallback frameCallback;
+  private Rect meteringArea;
+  private boolean opened;
+  private boolean previewing;
+  private volatile boolean focusMoving;
+
+  private long deliveredFrames;
+  private long droppedFrames;
+  private long releasedFrames;
+
+  /**
+   * @param width              The width of the frames.
+   * @param height             The height of the frames.
+   * @param rowPadding         Bytes of padding after every row but the last.
+   * @param displayOrientation Clockwise rotation between the frames and the screen.
+   */
+  public FakeCameraBackend(int width, int height, int rowPadding, int displayOrientation) {
+    if (rowPadding < 0) {
+      throw new IllegalArgumentException("Row padding must not be negative: " + rowPadding);
+    }
+    previewSize = new Point(width, height);
+    rowStride = width + rowPadding;
+    this.displayOrientation = displayOrientation;
+  }
+
+  @Override
+  public synchronized void open(Point screenResolution, PreviewSizeSelector selector) {
+    opened = true;
+    allocateFrames();
+  }
+
+  @Override
+  public void setPreviewDisplay(SurfaceHolder holder) {
+  }
+
+  @Override
+  public Point getPreviewSize() {
+    return previewSize;
+  }
+
+  @Override
+  public int getDisplayOrientation() {
+    return displayOrientation;
+  }
+
+  public int getRowStride() {
+    return rowStride;
+  }
+
+  @Override
+  public synchronized void setFrameCallback(FrameCallback callback) {
+    frameCallback = callback;
+  }
+
+  @Override
+  public synchronized void setFrameCount(int frameCount) {
+    if (frameCount < 1) {
+      throw new IllegalArgumentException("Frame count must be at least 1: " + frameCount);
+    }
+    this.frameCount = frameCount;
+  }
+
+  @Override
+  public boolean isFocusMoving() {
+    return focusMoving;
+  }
+
+  /**
+   * Makes the following frames count as taken while the lens moves, or not.
+   */
+  public void setFocusMoving(boolean focusMoving) {
+    this.focusMoving = focusMoving;
+  }
+
+  @Override
+  public synchronized void setMeteringArea(Rect area) {
+    meteringArea = area == null ? null : new Rect(area);
+  }
+
+  /**
+   * @return The area last passed to {@link #setMeteringArea(Rect)}.
+   */
+  public synchronized Rect getMeteringArea() {
+    return meteringArea;
+  }
+
+  @Override
+  public synchronized void startPreview() {
+    previewing = opened;
+    allocateFrames();
+  }
+
+  @Override
+  public synchronized void stopPreview() {
+    previewing = false;
+  }
+
+  /**
+   * Delivers a frame as the camera would.
+   *
+   * @param yuvData A frame with its Y plane first, {@code width} bytes to a row.
+   * @return Whether the frame reached the callback; false while the preview is stopped or every
+   *         frame is in flight.
+   */
+  public boolean deliver(byte[] yuvData) {
+    ByteBuffer yPlane;
+    FrameCallback callback;
+    synchronized (this) {
+      if (!previewing || frameCallback == null || free.isEmpty()) {
+        droppedFrames++;
+        return false;
+      }
+      yPlane = free.remove(free.size() - 1);
+      for (int y = 0; y < previewSize.y; y++) {
+        yPlane.position(y * rowStride);
+        yPlane.put(yuvData, y * previewSize.x, previewSize.x);
+      }
+      yPlane.clear();
+      inFlight.add(yPlane);
+      deliveredFrames++;
+      callback = frameCallback;
+    }
+    callback.onFrame(yPlane, rowStride, 1, previewSize.x, previewSize.y);
+    return true;
+  }
+
+  @Override
+  public synchronized void releaseFrame(ByteBuffer yPlane) {
+    for (int i = 0; i < inFlight.size(); i++) {
+      if (inFlight.get(i) == yPlane) {
+        ByteBuffer released = inFlight.remove(i);
+        if (free.size() + inFlight.size() < frameCount) {
+          free.add(released);
+        }
+        releasedFrames++;
+        return;
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    opened = false;
+    previewing = false;
+  }
+
+  /**
+   * Grows or shrinks the free buffers so that {@link #frameCount} frames can be in flight.
+   * Frames in flight are kept; a released frame beyond the count is dropped.
+   */
+  private void allocateFrames() {
+    while (free.size() + inFlight.size() < frameCount) {
+      free.add(ByteBuffer.allocateDirect((previewSize.y - 1) * rowStride + previewSize.x));
+    }
+    while (!free.isEmpty() && free.size() + inFlight.size() > frameCount) {
+      free.remove(free.size() - 1);
+    }
+  }
+
+  /**
+   * @return The number of frames delivered and not yet released.
+   */
+  public synchronized int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  public synchronized long getDeliveredFrameCount() {
+    return deliveredFrames;
+  }
+
+  public synchronized long getDroppedFrameCount() {
+    return droppedFrames;
+  }
+
+  public synchronized long getReleasedFrameCount() {
+    return releasedFrames;
+  }
+
+}